@@ -0,0 +1,55 @@
+package org.example.cloudopsadmin.common;
+
+import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+
+public class BillFinancials {
+
+    public double revenue;
+    public double customerPayable;
+    public double cost;
+    public double profit;
+
+    public BillFinancials() {
+    }
+
+    public BillFinancials(double revenue, double customerPayable, double cost, double profit) {
+        this.revenue = revenue;
+        this.customerPayable = customerPayable;
+        this.cost = cost;
+        this.profit = profit;
+    }
+
+    public static BillFinancials of(CustomerMonthlyBill bill) {
+        return of(bill.getUndiscountedBill(), bill.getOriginalBillingPercentage(), bill.getCostDiscountPercentage(),
+                bill.getCustomerPayableBill(), bill.getSupplierPayableBill(), bill.getProfit());
+    }
+
+    // Stored amounts win; missing ones are derived from the undiscounted bill and the percentages
+    public static BillFinancials of(Double undiscounted, Double originalPct, Double costPct,
+                                    Double customerPayable, Double supplierPayable, Double profit) {
+        double revenue = undiscounted != null ? undiscounted : 0.0;
+
+        if (customerPayable == null && originalPct != null && undiscounted != null) {
+            customerPayable = undiscounted * (originalPct / 100.0);
+        }
+        if (customerPayable == null) customerPayable = 0.0;
+
+        if (supplierPayable == null && costPct != null && undiscounted != null) {
+            supplierPayable = undiscounted * (1.0 - (costPct / 100.0));
+        }
+        if (supplierPayable == null) supplierPayable = 0.0;
+
+        if (profit == null) {
+            profit = customerPayable - supplierPayable;
+        }
+
+        return new BillFinancials(revenue, customerPayable, supplierPayable, profit);
+    }
+
+    public void add(BillFinancials other) {
+        revenue += other.revenue;
+        customerPayable += other.customerPayable;
+        cost += other.cost;
+        profit += other.profit;
+    }
+}
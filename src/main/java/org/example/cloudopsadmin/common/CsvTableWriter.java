@@ -0,0 +1,61 @@
+package org.example.cloudopsadmin.common;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// RFC 4180 CSV in UTF-8 with a BOM so Excel opens Chinese text correctly
+public class CsvTableWriter implements TabularWriter {
+
+    private final Writer out;
+    private boolean aborted;
+
+    public CsvTableWriter(OutputStream out) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.out.write('\uFEFF');
+    }
+
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values.get(i);
+            out.write(escape(value instanceof String s ? neutralizeFormula(s) : TabularWriter.text(value)));
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void abort() {
+        aborted = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!aborted) {
+            out.close();
+        }
+    }
+
+    // Text starting with =, +, -, @, tab or CR would run as a formula when the file is opened in a spreadsheet.
+    // Numbers are not Strings, so negative amounts are written as they are.
+    static String neutralizeFormula(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            return "'" + value;
+        }
+        return value;
+    }
+
+    static String escape(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.cloudopsadmin.common;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// One keyset page: the rows, the cursor to continue from, and the total when it was asked for
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasMore, Long total, boolean totalApproximate) {
+
+    public enum CountMode {
+        EXACT, NONE, APPROX;
+
+        public static CountMode from(String value) {
+            if (value == null || value.isBlank()) {
+                return EXACT;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("count 只支持 exact、none、approx");
+            }
+        }
+    }
+
+    public void putMeta(Map<String, Object> data, int pageSize) {
+        data.put("page_size", pageSize);
+        data.put("next_cursor", nextCursor);
+        data.put("has_more", hasMore);
+        data.put("total", total);
+        if (totalApproximate) {
+            data.put("total_approximate", true);
+        }
+    }
+}
@@ -1,21 +1,117 @@
 package org.example.cloudopsadmin.common;
 
+import org.hibernate.engine.config.spi.ConfigurationService;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
 
 import java.io.Serializable;
-import java.security.SecureRandom;
-import java.util.Random;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+// 8-digit primary keys without collisions: positions are leased in blocks from id_sequences (one row per table)
+// and mapped through a keyed permutation, so IDs stay non-sequential but can never repeat.
+// IDs are known before insert, which keeps Hibernate's JDBC batching available (unlike IDENTITY).
 public class EightDigitIdGenerator implements IdentifierGenerator {
 
-    private final Random random = new SecureRandom();
+    public static final String PERMUTATION_KEY_SETTING = "id-allocation.permutation-key";
+    public static final String BLOCK_SIZE_SETTING = "id-allocation.pk-block-size";
+
+    private static final long DEFAULT_PERMUTATION_KEY = 0x5DEECE66DL;
+    private static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private String table;
+    private String pkColumn;
+    private String seqKey;
+    private EightDigitPermutation permutation;
+    private LeasedSequence sequence;
+    // Random IDs issued by the previous generator that fall inside a leased block; skipped when handed out
+    private final Set<Long> preexisting = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        Map<String, Object> settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+        this.table = parameters.getProperty(PersistentIdentifierGenerator.TABLE);
+        this.pkColumn = parameters.getProperty(PersistentIdentifierGenerator.PK, "id");
+        this.seqKey = "pk_" + table;
+        this.permutation = new EightDigitPermutation(longSetting(settings, PERMUTATION_KEY_SETTING, DEFAULT_PERMUTATION_KEY));
+        this.sequence = new LeasedSequence((int) Math.max(1, longSetting(settings, BLOCK_SIZE_SETTING, DEFAULT_BLOCK_SIZE)));
+    }
 
     @Override
     public Serializable generate(SharedSessionContractImplementor session, Object object) {
-        // Generate a random integer between 10000000 and 99999999
-        // This ensures strictly 8 digits
-        int id = 10000000 + random.nextInt(90000000);
-        return (long) id;
+        while (true) {
+            long id = permutation.toId(sequence.next(size -> lease(session, size)));
+            if (!preexisting.remove(id)) {
+                return id;
+            }
+        }
+    }
+
+    // Runs on a separate connection and commits immediately, so a rolled-back insert never returns its block
+    private long lease(SharedSessionContractImplementor session, int size) {
+        return session.getTransactionCoordinator()
+                .createIsolationDelegate()
+                .delegateWork(new AbstractReturningWork<Long>() {
+                    @Override
+                    public Long execute(Connection connection) throws SQLException {
+                        try (PreparedStatement seed = connection.prepareStatement(
+                                "INSERT IGNORE INTO id_sequences (seq_key, next_value, updated_at) VALUES (?, 0, NOW())")) {
+                            seed.setString(1, seqKey);
+                            seed.executeUpdate();
+                        }
+                        try (PreparedStatement advance = connection.prepareStatement(
+                                "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + ?), updated_at = NOW() WHERE seq_key = ?")) {
+                            advance.setInt(1, size);
+                            advance.setString(2, seqKey);
+                            advance.executeUpdate();
+                        }
+                        long start;
+                        try (PreparedStatement last = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+                             ResultSet rs = last.executeQuery()) {
+                            rs.next();
+                            start = rs.getLong(1) - size;
+                        }
+                        collectPreexisting(connection, start, size);
+                        return start;
+                    }
+                }, true);
+    }
+
+    private void collectPreexisting(Connection connection, long start, int size) throws SQLException {
+        long[] ids = new long[size];
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            ids[i] = permutation.toId(start + i);
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + pkColumn + " FROM " + table + " WHERE " + pkColumn + " IN (" + placeholders + ")")) {
+            for (int i = 0; i < size; i++) {
+                ps.setLong(i + 1, ids[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    preexisting.add(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static long longSetting(Map<String, Object> settings, String name, long defaultValue) {
+        Object value = settings.get(name);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.toString().trim());
     }
 }
@@ -0,0 +1,52 @@
+package org.example.cloudopsadmin.common;
+
+// Keyed bijection from sequence positions [0, 90,000,000) onto 8-digit numbers [10,000,000, 99,999,999].
+// A Feistel network over [0, 9487^2) is a permutation of that square; cycle-walking keeps it inside the 9e7 domain,
+// so distinct positions always give distinct IDs while consecutive positions look unrelated.
+public final class EightDigitPermutation {
+
+    public static final long MIN_ID = 10_000_000L;
+    public static final long DOMAIN = 90_000_000L;
+
+    private static final long HALF = 9487L; // ceil(sqrt(DOMAIN))
+    private static final int ROUNDS = 6;
+
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public EightDigitPermutation(long key) {
+        long k = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            k = mix(k + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = k;
+        }
+    }
+
+    public long toId(long position) {
+        if (position < 0 || position >= DOMAIN) {
+            throw new IllegalArgumentException("8-digit ID space exhausted at position " + position);
+        }
+        long x = position;
+        do {
+            x = feistel(x);
+        } while (x >= DOMAIN);
+        return MIN_ID + x;
+    }
+
+    private long feistel(long x) {
+        long left = x / HALF;
+        long right = x % HALF;
+        for (long roundKey : roundKeys) {
+            long next = (left + Math.floorMod(mix(right ^ roundKey), HALF)) % HALF;
+            left = right;
+            right = next;
+        }
+        return left * HALF + right;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.cloudopsadmin.common;
+
+import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Single pass over bills (or pre-summed rows): each input is derived once and added to primitive
+// accumulators for the total and for every vendor, customer and quarter dimension at the same time
+public class FinancialAggregator {
+
+    private static final int REVENUE = 0;
+    private static final int CUSTOMER_PAYABLE = 1;
+    private static final int COST = 2;
+    private static final int PROFIT = 3;
+    private static final String[] QUARTERS = {"Q1", "Q2", "Q3", "Q4"};
+
+    private final double[] total = new double[4];
+    private final Map<String, double[]> byVendor = new HashMap<>();
+    private final Map<String, double[]> byCustomer = new HashMap<>();
+    private final double[][] byQuarter = new double[4][4];
+    private final Map<String, double[]>[] vendorRevenueByQuarter = newQuarterMaps();
+    private long count;
+
+    public void add(CustomerMonthlyBill bill) {
+        BillFinancials f = BillFinancials.of(bill);
+        add(bill.getMonth(), bill.getCloudVendor(), bill.getCustomerName(), f.revenue, f.customerPayable, f.cost, f.profit);
+    }
+
+    public void add(String month, String vendor, String customer,
+                    double revenue, double customerPayable, double cost, double profit) {
+        count++;
+        accumulate(total, revenue, customerPayable, cost, profit);
+        if (vendor != null) {
+            accumulate(byVendor.computeIfAbsent(vendor, k -> new double[4]), revenue, customerPayable, cost, profit);
+        }
+        if (customer != null) {
+            accumulate(byCustomer.computeIfAbsent(customer, k -> new double[4]), revenue, customerPayable, cost, profit);
+        }
+        int q = quarterIndex(month);
+        if (q >= 0) {
+            accumulate(byQuarter[q], revenue, customerPayable, cost, profit);
+            if (vendor != null) {
+                vendorRevenueByQuarter[q].computeIfAbsent(vendor, k -> new double[1])[0] += revenue;
+            }
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public BillFinancials total() {
+        return toFinancials(total);
+    }
+
+    public Map<String, BillFinancials> byVendor() {
+        return toFinancials(byVendor);
+    }
+
+    public Map<String, BillFinancials> byCustomer() {
+        return toFinancials(byCustomer);
+    }
+
+    // Always Q1..Q4 in order, empty quarters are zero
+    public Map<String, BillFinancials> byQuarter() {
+        Map<String, BillFinancials> result = new LinkedHashMap<>();
+        for (int q = 0; q < 4; q++) {
+            result.put(QUARTERS[q], toFinancials(byQuarter[q]));
+        }
+        return result;
+    }
+
+    public Map<String, Double> vendorRevenue(String quarter) {
+        Map<String, Double> result = new HashMap<>();
+        for (int q = 0; q < 4; q++) {
+            if (QUARTERS[q].equals(quarter)) {
+                vendorRevenueByQuarter[q].forEach((vendor, acc) -> result.put(vendor, acc[0]));
+            }
+        }
+        return result;
+    }
+
+    public static String quarterOf(String month) {
+        int q = quarterIndex(month);
+        return q >= 0 ? QUARTERS[q] : null;
+    }
+
+    // month is yyyy-MM
+    private static int quarterIndex(String month) {
+        if (month == null || month.length() < 7) return -1;
+        int m = (month.charAt(5) - '0') * 10 + (month.charAt(6) - '0');
+        return m >= 1 && m <= 12 ? (m - 1) / 3 : -1;
+    }
+
+    private static void accumulate(double[] acc, double revenue, double customerPayable, double cost, double profit) {
+        acc[REVENUE] += revenue;
+        acc[CUSTOMER_PAYABLE] += customerPayable;
+        acc[COST] += cost;
+        acc[PROFIT] += profit;
+    }
+
+    private static BillFinancials toFinancials(double[] acc) {
+        return new BillFinancials(acc[REVENUE], acc[CUSTOMER_PAYABLE], acc[COST], acc[PROFIT]);
+    }
+
+    private static Map<String, BillFinancials> toFinancials(Map<String, double[]> accs) {
+        Map<String, BillFinancials> result = new HashMap<>();
+        accs.forEach((key, acc) -> result.put(key, toFinancials(acc)));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, double[]>[] newQuarterMaps() {
+        Map<String, double[]>[] maps = new Map[4];
+        for (int q = 0; q < 4; q++) {
+            maps[q] = new HashMap<>();
+        }
+        return maps;
+    }
+}
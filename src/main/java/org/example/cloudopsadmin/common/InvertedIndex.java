@@ -0,0 +1,364 @@
+package org.example.cloudopsadmin.common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index with BM25 ranking over weighted fields. Every query term must match (AND); Latin
+// words and single CJK characters also match as prefixes so "serv" finds "server". Documents carry a version
+// (the row's update time) so a persisted segment can be reconciled against the table instead of rebuilt.
+public class InvertedIndex {
+
+    private static final int SEGMENT_MAGIC = 0x4B424958; // "KBIX"
+    private static final int SEGMENT_FORMAT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public record Hit(long id, double score) {
+    }
+
+    // Weighted term frequencies of one document, accumulated field by field
+    public static class Terms {
+        private final Map<String, Float> freqs = new HashMap<>();
+        private float length;
+
+        public Terms add(String text, float weight) {
+            for (TextTokenizer.Token token : TextTokenizer.tokenize(text)) {
+                freqs.merge(token.term(), weight, Float::sum);
+                length += weight;
+            }
+            return this;
+        }
+    }
+
+    private record Doc(long version, float length, Map<String, Float> freqs) {
+    }
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private double totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long id, long version, Terms terms) {
+        Doc doc = new Doc(version, terms.length, Map.copyOf(terms.freqs));
+        lock.writeLock().lock();
+        try {
+            putLocked(id, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Swaps in the contents of another index, e.g. one read from a segment
+    public void replaceWith(InvertedIndex other) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            totalLength = 0;
+            other.docs.forEach(this::putLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // id -> version of every indexed document
+    public Map<Long, Long> versions() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> versions = new HashMap<>(docs.size() * 2);
+            docs.forEach((id, doc) -> versions.put(id, doc.version()));
+            return versions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Matching documents, best first (ties by newest id). Empty when the query has no usable terms.
+    public List<Hit> search(String query) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (docs.isEmpty()) {
+                return List.of();
+            }
+            double avgLength = totalLength / docs.size();
+            List<Map<String, Map<Long, Float>>> groups = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<String, Map<Long, Float>> expansions = expand(term);
+                if (expansions.isEmpty()) {
+                    return List.of();
+                }
+                groups.add(expansions);
+            }
+
+            // Intersect starting from the rarest term to keep the working set small
+            List<Set<Long>> matches = new ArrayList<>(groups.size());
+            for (Map<String, Map<Long, Float>> group : groups) {
+                Set<Long> ids = new HashSet<>();
+                group.values().forEach(p -> ids.addAll(p.keySet()));
+                matches.add(ids);
+            }
+            matches.sort(Comparator.comparingInt(Set::size));
+            Set<Long> candidates = new HashSet<>(matches.get(0));
+            for (int i = 1; i < matches.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(matches.get(i));
+            }
+
+            Map<Long, Double> norms = new HashMap<>(candidates.size() * 2);
+            for (Long id : candidates) {
+                norms.put(id, K1 * (1 - B + B * docs.get(id).length() / avgLength));
+            }
+            Map<Long, Double> scores = new HashMap<>(candidates.size() * 2);
+            for (Map<String, Map<Long, Float>> group : groups) {
+                // A prefix counts once, by its best-scoring expansion, so short prefixes don't dominate. Each posting
+                // is walked from its smaller side, so a prefix with thousands of expansions costs no more than matching.
+                Map<Long, Double> best = new HashMap<>(candidates.size() * 2);
+                for (Map<Long, Float> posting : group.values()) {
+                    double idf = idf(posting.size());
+                    if (posting.size() <= candidates.size()) {
+                        posting.forEach((id, tf) -> {
+                            Double norm = norms.get(id);
+                            if (norm != null) {
+                                best.merge(id, idf * tf * (K1 + 1) / (tf + norm), Math::max);
+                            }
+                        });
+                    } else {
+                        for (Long id : candidates) {
+                            Float tf = posting.get(id);
+                            if (tf != null) {
+                                best.merge(id, idf * tf * (K1 + 1) / (tf + norms.get(id)), Math::max);
+                            }
+                        }
+                    }
+                }
+                best.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+
+            List<Hit> hits = new ArrayList<>(candidates.size());
+            for (Long id : candidates) {
+                hits.add(new Hit(id, scores.getOrDefault(id, 0.0)));
+            }
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparing(Comparator.comparingLong(Hit::id).reversed()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Term-level view of a query as the index sees it; shared with snippet highlighting
+    public static List<String> queryTerms(String query) {
+        List<TextTokenizer.Token> tokens = TextTokenizer.tokenize(query);
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            TextTokenizer.Token token = tokens.get(i);
+            // The trailing single character of a CJK run is already covered by the run's last bigram
+            boolean coveredUnigram = token.cjk() && i > 0 && tokens.get(i - 1).cjk()
+                    && tokens.get(i - 1).end() == token.end();
+            if (!coveredUnigram && !terms.contains(token.term())) {
+                terms.add(token.term());
+            }
+        }
+        return terms;
+    }
+
+    // Latin words and lone CJK characters match as prefixes; CJK bigrams match exactly
+    static boolean isPrefixTerm(String term) {
+        return !TextTokenizer.isCjk(term.codePointAt(0)) || term.codePointCount(0, term.length()) == 1;
+    }
+
+    private Map<String, Map<Long, Float>> expand(String term) {
+        if (!isPrefixTerm(term)) {
+            Map<Long, Float> posting = postings.get(term);
+            return posting == null ? Map.of() : Map.of(term, posting);
+        }
+        Map<String, Map<Long, Float>> expansions = new LinkedHashMap<>();
+        Map<Long, Float> exact = postings.get(term);
+        if (exact != null) {
+            expansions.put(term, exact);
+        }
+        // Every expansion takes part in matching; capping them would drop documents that only hold a later one
+        expansions.putAll(postings.subMap(term, false, term + Character.MAX_VALUE, false));
+        return expansions;
+    }
+
+    private double idf(int docFreq) {
+        return Math.log(1 + (docs.size() - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    private void putLocked(long id, Doc doc) {
+        removeLocked(id);
+        docs.put(id, doc);
+        totalLength += doc.length();
+        doc.freqs().forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+    }
+
+    private void removeLocked(long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length();
+        for (String term : doc.freqs().keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // Segment layout: magic, format, tokenizer version, doc count, then per doc
+    // id, version, length, term count and (term, weighted tf) pairs. Postings are derived on load.
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        lock.readLock().lock();
+        try {
+            data.writeInt(SEGMENT_MAGIC);
+            data.writeInt(SEGMENT_FORMAT);
+            data.writeInt(TextTokenizer.VERSION);
+            data.writeInt(docs.size());
+            for (Map.Entry<Long, Doc> entry : docs.entrySet()) {
+                Doc doc = entry.getValue();
+                data.writeLong(entry.getKey());
+                data.writeLong(doc.version());
+                data.writeFloat(doc.length());
+                data.writeInt(doc.freqs().size());
+                for (Map.Entry<String, Float> term : doc.freqs().entrySet()) {
+                    data.writeUTF(term.getKey());
+                    data.writeFloat(term.getValue());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        data.flush();
+    }
+
+    public static InvertedIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != SEGMENT_MAGIC) {
+            throw new IOException("Not an index segment");
+        }
+        int format = data.readInt();
+        int tokenizer = data.readInt();
+        if (format != SEGMENT_FORMAT || tokenizer != TextTokenizer.VERSION) {
+            throw new IOException("Segment format " + format + "/" + tokenizer + " is outdated");
+        }
+        InvertedIndex index = new InvertedIndex();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = data.readLong();
+            long version = data.readLong();
+            float length = data.readFloat();
+            int terms = data.readInt();
+            Map<String, Float> freqs = new HashMap<>(terms * 2);
+            for (int t = 0; t < terms; t++) {
+                freqs.put(data.readUTF(), data.readFloat());
+            }
+            index.putLocked(id, new Doc(version, length, freqs));
+        }
+        return index;
+    }
+
+    // Excerpt of text around the first query match, HTML-escaped, with matched terms wrapped in <em>
+    public static String snippet(String text, String query, int width) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        List<String> terms = queryTerms(query);
+        List<int[]> spans = new ArrayList<>();
+        for (TextTokenizer.Token token : TextTokenizer.tokenize(text)) {
+            for (String term : terms) {
+                if (token.term().equals(term) || (isPrefixTerm(term) && token.term().startsWith(term))) {
+                    // A prefix match highlights only the matched part of the word
+                    int end = Math.min(token.end(), token.start() + term.length());
+                    int[] last = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+                    if (last != null && token.start() <= last[1]) {
+                        last[1] = Math.max(last[1], end);
+                    } else {
+                        spans.add(new int[]{token.start(), end});
+                    }
+                    break;
+                }
+            }
+        }
+        int start = spans.isEmpty() ? 0 : Math.max(0, spans.get(0)[0] - width / 4);
+        int end = Math.min(text.length(), start + width);
+        if (end == text.length()) {
+            start = Math.max(0, end - width);
+        }
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) start++;
+        if (end < text.length() && Character.isLowSurrogate(text.charAt(end))) end--;
+
+        StringBuilder sb = new StringBuilder();
+        if (start > 0) sb.append("…");
+        int pos = start;
+        for (int[] span : spans) {
+            int s = Math.max(span[0], pos);
+            int e = Math.min(span[1], end);
+            if (s >= e) {
+                continue;
+            }
+            escape(text, pos, s, sb);
+            sb.append("<em>");
+            escape(text, s, e, sb);
+            sb.append("</em>");
+            pos = e;
+        }
+        escape(text, pos, end, sb);
+        if (end < text.length()) sb.append("…");
+        return sb.toString().replaceAll("\\s+", " ");
+    }
+
+    private static void escape(String text, int from, int to, StringBuilder sb) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+    }
+}
@@ -1,10 +1,33 @@
 package org.example.cloudopsadmin.common;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum InvoiceStatus {
     DRAFT,
     POSTED,
     SENT,
     PAID,
-    OVERDUE
-}
+    OVERDUE;
+
+    // Allowed moves. Any issued invoice can be reset to DRAFT; PAID -> PAID re-registers payment details.
+    private Set<InvoiceStatus> targets() {
+        return switch (this) {
+            case DRAFT -> EnumSet.of(POSTED);
+            case POSTED -> EnumSet.of(SENT, PAID, OVERDUE, DRAFT);
+            case SENT -> EnumSet.of(PAID, OVERDUE, DRAFT);
+            case OVERDUE -> EnumSet.of(PAID, DRAFT);
+            case PAID -> EnumSet.of(PAID, DRAFT);
+        };
+    }
 
+    public boolean canTransitionTo(InvoiceStatus target) {
+        return targets().contains(target);
+    }
+
+    public void checkTransitionTo(InvoiceStatus target) {
+        if (!canTransitionTo(target)) {
+            throw new IllegalStateException("Invoice cannot move from " + this + " to " + target);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.cloudopsadmin.common;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Position after the last row of a keyset page: the sort column's value and the id that breaks ties.
+// Encoded as opaque base64url text; it also records the sort it was issued for so it can't be replayed
+// against a different ordering.
+public record KeysetCursor(String sortField, Sort.Direction direction, String value, long id) {
+
+    private static final String FORMAT = "1";
+
+    public String encode() {
+        String raw = String.join("\n", FORMAT, sortField, direction.name(), Long.toString(id),
+                value == null ? "n" : "v" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor of(String sortField, Sort.Direction direction, Object value, long id) {
+        return new KeysetCursor(sortField, direction, value == null ? null : value.toString(), id);
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 5);
+            if (parts.length != 5 || !FORMAT.equals(parts[0])) {
+                throw new IllegalArgumentException("cursor 无效");
+            }
+            String value = parts[4].startsWith("v") ? parts[4].substring(1) : null;
+            return new KeysetCursor(parts[1], Sort.Direction.valueOf(parts[2]), value, Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("cursor 无效");
+        }
+    }
+
+    // Rows strictly after this cursor in (sortField, id) order. Nulls follow MySQL: first when ascending,
+    // last when descending.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> Predicate after(Root<T> root, CriteriaBuilder cb) {
+        Path<Comparable> idPath = root.get("id");
+        Comparable idValue = id;
+        boolean asc = direction.isAscending();
+        Predicate idAfter = asc ? cb.greaterThan(idPath, idValue) : cb.lessThan(idPath, idValue);
+        if ("id".equals(sortField)) {
+            return idAfter;
+        }
+        Path<Comparable> path = root.get(sortField);
+        if (value == null) {
+            Predicate sameNull = cb.and(cb.isNull(path), idAfter);
+            return asc ? cb.or(sameNull, cb.isNotNull(path)) : sameNull;
+        }
+        Comparable typed = convert(value, path.getJavaType());
+        Predicate beyond = asc ? cb.greaterThan(path, typed) : cb.lessThan(path, typed);
+        Predicate tie = cb.and(cb.equal(path, typed), idAfter);
+        return asc ? cb.or(beyond, tie) : cb.or(beyond, tie, cb.isNull(path));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable convert(String value, Class<?> type) {
+        if (type == String.class) return value;
+        if (type == Long.class || type == long.class) return Long.valueOf(value);
+        if (type == Integer.class || type == int.class) return Integer.valueOf(value);
+        if (type == Double.class || type == double.class) return Double.valueOf(value);
+        if (type == Float.class || type == float.class) return Float.valueOf(value);
+        if (type == BigDecimal.class) return new BigDecimal(value);
+        if (type == Boolean.class || type == boolean.class) return Boolean.valueOf(value);
+        if (type == LocalDateTime.class) return LocalDateTime.parse(value);
+        if (type == LocalDate.class) return LocalDate.parse(value);
+        if (type == Instant.class) return Instant.parse(value);
+        if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, value);
+        throw new IllegalArgumentException("不支持按该字段游标分页");
+    }
+}
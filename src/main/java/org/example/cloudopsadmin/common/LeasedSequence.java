@@ -0,0 +1,61 @@
+package org.example.cloudopsadmin.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hands out numbers from a leased block with a single getAndIncrement; only the thread that finds
+// the block exhausted goes back to the leaser. Values left in a block on shutdown are skipped (gaps, never duplicates).
+public class LeasedSequence {
+
+    public interface BlockLeaser {
+        // Returns the first value of a freshly reserved block of blockSize values
+        long lease(int blockSize);
+    }
+
+    private final BlockLeaser leaser;
+    private final int blockSize;
+    private final AtomicReference<Block> current = new AtomicReference<>();
+
+    public LeasedSequence(BlockLeaser leaser, int blockSize) {
+        this.leaser = leaser;
+        this.blockSize = blockSize;
+    }
+
+    // For callers whose leaser depends on per-call context (e.g. the current Hibernate session)
+    public LeasedSequence(int blockSize) {
+        this(null, blockSize);
+    }
+
+    public long next() {
+        return next(leaser);
+    }
+
+    public long next(BlockLeaser leaser) {
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            long start = leaser.lease(blockSize);
+            Block fresh = new Block(start, start + blockSize);
+            if (current.compareAndSet(block, fresh)) {
+                continue;
+            }
+            // Another thread installed a block first; still use ours for this call so the lease isn't wasted entirely
+            return fresh.next.getAndIncrement();
+        }
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.cloudopsadmin.common;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Trigram inverted index answering "which ids may contain this substring". Text is folded the way the
+// MySQL *_ai_ci collations compare it (case and accents ignored), so results are a superset of what
+// LIKE '%term%' matches; callers keep the LIKE as the final check.
+public class NgramIndex {
+
+    public static final int GRAM = 3;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, Set<String>> docGrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long id, String... fields) {
+        Set<String> grams = new HashSet<>();
+        for (String field : fields) {
+            addGrams(fold(field), grams);
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+            }
+            docGrams.put(id, grams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docGrams.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null when the term is too short to use the index; otherwise the candidate ids (possibly empty)
+    public Set<Long> search(String term) {
+        String folded = fold(term);
+        if (folded.length() < GRAM) {
+            return null;
+        }
+        Set<String> grams = new HashSet<>();
+        addGrams(folded, grams);
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Set<String> grams = docGrams.remove(id);
+        if (grams == null) {
+            return;
+        }
+        for (String gram : grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static void addGrams(String folded, Set<String> grams) {
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            grams.add(folded.substring(i, i + GRAM));
+        }
+    }
+
+    static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
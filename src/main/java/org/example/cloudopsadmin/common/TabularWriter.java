@@ -0,0 +1,100 @@
+package org.example.cloudopsadmin.common;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// Row sink for the streaming exports. Rows go straight through a small buffer to the response, so memory use does
+// not depend on the row count. The first row written is the header.
+public interface TabularWriter extends Closeable {
+
+    enum Format {
+        CSV, XLSX;
+
+        public static Format from(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format 只支持 csv、xlsx");
+            }
+        }
+    }
+
+    void writeRow(List<?> values) throws IOException;
+
+    // Gives up on a failed export: a later close() writes nothing more, so no gzip trailer or XLSX directory makes
+    // a truncated file look complete
+    void abort();
+
+    interface Body {
+        void writeTo(TabularWriter out) throws IOException;
+    }
+
+    // Opens the writer, runs the body and finishes the file only if the body completed
+    static void export(HttpServletResponse response, String baseName, Format format, boolean gzip, Body body) throws IOException {
+        TabularWriter out = open(response, baseName, format, gzip);
+        try {
+            body.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        out.close();
+    }
+
+    // Sets the download headers and wraps the servlet stream. gzip only applies to CSV; XLSX is already a zip.
+    static TabularWriter open(HttpServletResponse response, String baseName, Format format, boolean gzip) throws IOException {
+        String fileName = baseName + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        OutputStream out;
+        if (format == Format.XLSX) {
+            fileName += ".xlsx";
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            out = response.getOutputStream();
+        } else if (gzip) {
+            fileName += ".csv.gz";
+            response.setContentType("application/gzip");
+            out = new GZIPOutputStream(response.getOutputStream(), 64 * 1024);
+        } else {
+            fileName += ".csv";
+            response.setContentType("text/csv;charset=UTF-8");
+            out = response.getOutputStream();
+        }
+        response.setHeader("Content-Disposition",
+                "attachment; filename*=UTF-8''" + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20"));
+        return format == Format.XLSX ? new XlsxTableWriter(out) : new CsvTableWriter(out);
+    }
+
+    // Plain decimal notation for doubles (no 1.0E7), ISO text for dates
+    static String text(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return Double.isFinite(d) ? BigDecimal.valueOf(d).stripTrailingZeros().toPlainString() : "";
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString().replace('T', ' ');
+        }
+        if (value instanceof java.time.LocalDateTime dateTime) {
+            return dateTime.toString().replace('T', ' ');
+        }
+        return value.toString();
+    }
+}
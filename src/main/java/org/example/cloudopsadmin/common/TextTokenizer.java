@@ -0,0 +1,79 @@
+package org.example.cloudopsadmin.common;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Splits mixed Chinese/English text into index terms. Latin and digit runs become whole words folded to lower
+// case without accents; CJK runs (which have no spaces to split on) become overlapping bigrams, plus the run's
+// last character on its own so a one-character query can still find it. Offsets point into the original text.
+public final class TextTokenizer {
+
+    // Bump when tokenization changes so persisted segments built with the old rules are discarded
+    public static final int VERSION = 1;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    public record Token(String term, int start, int end, boolean cjk) {
+    }
+
+    private TextTokenizer() {
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int i = 0;
+        int len = text.length();
+        while (i < len) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                List<Integer> starts = new ArrayList<>();
+                while (i < len && isCjk(text.codePointAt(i))) {
+                    starts.add(i);
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                starts.add(i);
+                int chars = starts.size() - 1;
+                for (int c = 0; c + 1 < chars; c++) {
+                    tokens.add(new Token(text.substring(starts.get(c), starts.get(c + 2)), starts.get(c), starts.get(c + 2), true));
+                }
+                int last = starts.get(chars - 1);
+                tokens.add(new Token(text.substring(last, i), last, i, true));
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < len) {
+                    int c = text.codePointAt(i);
+                    if (isCjk(c) || !(Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                String term = fold(text.substring(start, i));
+                if (!term.isEmpty()) {
+                    tokens.add(new Token(term, start, i, false));
+                }
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.cloudopsadmin.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    @Value("${billing.sync.queue-capacity:10000}")
+    private int billSyncQueueCapacity;
+
+    @Value("${invoice.generation.workers:4}")
+    private int invoiceGenerationWorkers;
+
+    @Value("${invoice.generation.queue-capacity:8}")
+    private int invoiceGenerationQueueCapacity;
+
+    @Bean(name = "invoiceGenerationExecutor")
+    public ThreadPoolTaskExecutor invoiceGenerationExecutor() {
+        // Bounded on both sides: a full queue makes the job coordinator run the chunk itself, which throttles it
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(invoiceGenerationWorkers);
+        executor.setMaxPoolSize(invoiceGenerationWorkers);
+        executor.setQueueCapacity(invoiceGenerationQueueCapacity);
+        executor.setThreadNamePrefix("invoice-gen-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "billSyncExecutor")
+    public ThreadPoolTaskExecutor billSyncExecutor() {
+        // Single worker keeps bill row updates serialized; when the queue is full the publishing thread applies the sync itself
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(billSyncQueueCapacity);
+        executor.setThreadNamePrefix("bill-sync-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
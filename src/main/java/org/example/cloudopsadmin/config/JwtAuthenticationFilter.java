@@ -5,24 +5,27 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.entity.UserStatus;
 import org.example.cloudopsadmin.service.JwtService;
+import org.example.cloudopsadmin.service.PrincipalCache;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     @Override
@@ -54,14 +57,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && authenticateFromClaims(jwt, request)) {
+            log.debug("JWT authenticated from embedded authorities. email={}, uri={}", userEmail, request.getRequestURI());
+        } else if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            PrincipalCache.CachedPrincipal principal = principalCache.load(userEmail);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(jwt, principal.user())) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal.user(),
                         null,
-                        userDetails.getAuthorities()
+                        principal.authorities()
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
@@ -81,4 +87,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throw e; 
         }
     }
+
+    private boolean authenticateFromClaims(String jwt, HttpServletRequest request) {
+        JwtService.EmbeddedPrincipal embedded = jwtService.extractEmbeddedPrincipal(jwt);
+        if (embedded == null) {
+            return false;
+        }
+        User user = new User();
+        user.setId(embedded.userId());
+        user.setEmail(embedded.email());
+        user.setName(embedded.name());
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRoles(List.of());
+        user.setPermissions(List.of());
+
+        List<SimpleGrantedAuthority> authorities = embedded.authorities().stream().map(SimpleGrantedAuthority::new).toList();
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(user, null, authorities);
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        return true;
+    }
 }
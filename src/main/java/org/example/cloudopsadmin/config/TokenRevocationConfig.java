@@ -0,0 +1,38 @@
+package org.example.cloudopsadmin.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.cloudopsadmin.service.InMemoryTokenRevocationStore;
+import org.example.cloudopsadmin.service.JdbcTokenRevocationStore;
+import org.example.cloudopsadmin.service.TokenRevocationStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class TokenRevocationConfig {
+
+    @Value("${jwt.revocation.max-entries:100000}")
+    private int maxEntries;
+
+    @Bean
+    @ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "memory", matchIfMissing = true)
+    public TokenRevocationStore inMemoryTokenRevocationStore(MeterRegistry meterRegistry) {
+        return register(new InMemoryTokenRevocationStore(maxEntries), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "jwt.revocation.store", havingValue = "jdbc")
+    public TokenRevocationStore jdbcTokenRevocationStore(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        JdbcTokenRevocationStore store = new JdbcTokenRevocationStore(jdbcTemplate, maxEntries);
+        store.sync();
+        return register(store, meterRegistry);
+    }
+
+    private TokenRevocationStore register(TokenRevocationStore store, MeterRegistry meterRegistry) {
+        Gauge.builder("jwt.revocation.entries", store, TokenRevocationStore::size).register(meterRegistry);
+        return store;
+    }
+}
@@ -2,13 +2,21 @@ package org.example.cloudopsadmin.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.CursorPage;
+import org.example.cloudopsadmin.common.TabularWriter;
 import org.example.cloudopsadmin.entity.Account;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.exception.ExportAbortedException;
+import org.example.cloudopsadmin.service.AccountBulkUpdateService;
+import org.example.cloudopsadmin.service.AccountImportService;
 import org.example.cloudopsadmin.service.AccountService;
+import org.example.cloudopsadmin.service.ExportService;
 import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +30,10 @@ import java.util.stream.Collectors;
 public class AccountController {
 
     private final AccountService accountService;
+    private final AccountImportService accountImportService;
+    private final AccountBulkUpdateService accountBulkUpdateService;
+    private final ExportService exportService;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AccountController.class);
 
     @GetMapping
     @Operation(summary = "Get account list", description = "Get list of accounts with pagination, search, and filtering")
@@ -34,12 +46,32 @@ public class AccountController {
             @RequestParam(name = "account_source", required = false) String accountSource,
             @RequestParam(required = false) String label,
             @RequestParam(name = "sort_by", required = false) String sortBy,
-            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder
+            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "count", defaultValue = "exact") String count
     ) {
         // Pass vendor to vendor arg (maps to accountType DB), accountType to accountCategory arg (maps to accountCategory DB)
-        Page<Account> accountPage = accountService.getAccountList(page, pageSize, search, vendor, accountType, accountSource, label, sortBy, sortOrder);
+        Map<String, Object> data = new HashMap<>();
+        List<Account> rows;
+        if (cursor != null) {
+            // Cursor mode (cursor present, empty for the first page): no OFFSET, count per the count parameter
+            CursorPage<Account> slice;
+            try {
+                slice = accountService.getAccountListByCursor(cursor, pageSize, search, vendor, accountType, accountSource, label, sortBy, sortOrder, CursorPage.CountMode.from(count));
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
+            }
+            rows = slice.content();
+            slice.putMeta(data, pageSize);
+        } else {
+            Page<Account> accountPage = accountService.getAccountList(page, pageSize, search, vendor, accountType, accountSource, label, sortBy, sortOrder);
+            rows = accountPage.getContent();
+            data.put("total", accountPage.getTotalElements());
+            data.put("page", accountPage.getNumber() + 1);
+            data.put("page_size", accountPage.getSize());
+        }
 
-        List<Map<String, Object>> list = accountPage.getContent().stream().map(account -> {
+        List<Map<String, Object>> list = rows.stream().map(account -> {
             Map<String, Object> map = new HashMap<>();
             map.put("account_internal_id", account.getAccountInternalId());
             map.put("uid", account.getUid());
@@ -108,15 +140,48 @@ public class AccountController {
             return map;
         }).collect(Collectors.toList());
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("total", accountPage.getTotalElements());
-        data.put("page", accountPage.getNumber() + 1);
-        data.put("page_size", accountPage.getSize());
         data.put("list", list);
 
         return ApiResponse.success("success", data);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "导出账号", description = "按账号列表的筛选条件流式导出（卡号仅导出掩码），支持 csv / xlsx，csv 可 gzip 压缩")
+    public ApiResponse<Object> exportAccounts(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String vendor,
+            @RequestParam(name = "account_type", required = false) String accountType,
+            @RequestParam(name = "account_source", required = false) String accountSource,
+            @RequestParam(required = false) String label,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) {
+        // Rows go straight to the response; a null return means the body has been written
+        try {
+            TabularWriter.export(response, "accounts", TabularWriter.Format.from(format), gzip,
+                    out -> exportService.exportAccounts(search, vendor, accountType, accountSource, label, out));
+            return null;
+        } catch (IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(400, e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        } catch (ExportService.ExportBusyException e) {
+            // Refused before the first row, so nothing has been written yet
+            response.reset();
+            return ApiResponse.error(503, e.getMessage());
+        } catch (Exception e) {
+            log.error("Export accounts failed", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        }
+    }
+
     @GetMapping("/sp-list")
     @Operation(summary = "Get SP account list", description = "Get list of SP accounts with pagination, search, and filtering")
     public ApiResponse<Map<String, Object>> getSpAccountList(
@@ -245,6 +310,43 @@ public class AccountController {
         }
     }
 
+    @PostMapping(value = "/importAccounts", consumes = "multipart/form-data")
+    @Operation(summary = "Bulk import accounts", description = "Import accounts from a UTF-8 CSV whose header uses the addAccount field names; labels are separated by ';'")
+    public ApiResponse<Map<String, Object>> importAccounts(@RequestPart("file") MultipartFile file) {
+        try {
+            if (file == null || file.isEmpty()) {
+                return ApiResponse.error(400, "请上传 CSV 文件");
+            }
+            User operator = (User) org.springframework.security.core.context.SecurityContextHolder.getContext()
+                    .getAuthentication().getPrincipal();
+            Map<String, Object> data = accountImportService.importCsv(file, operator);
+            return ApiResponse.success("账号导入完成", data);
+        } catch (AccountService.ApiException e) {
+            return ApiResponse.error(e.getCode(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (Exception e) {
+            return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/bulkUpdate")
+    @Operation(summary = "Bulk update accounts", description = "Apply one patch to the accounts matching uids or the list filters; returns affected counts")
+    public ApiResponse<Map<String, Object>> bulkUpdate(@RequestBody AccountBulkUpdateService.BulkUpdateAccountsRequest request) {
+        try {
+            User operator = (User) org.springframework.security.core.context.SecurityContextHolder.getContext()
+                    .getAuthentication().getPrincipal();
+            Map<String, Object> data = accountBulkUpdateService.bulkUpdate(request, operator);
+            return ApiResponse.success("批量更新成功", data);
+        } catch (AccountService.ApiException e) {
+            return ApiResponse.error(e.getCode(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (Exception e) {
+            return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/updateAccount")
     @Operation(summary = "Update account", description = "RPC style endpoint to update an account with associations")
     public ApiResponse<Map<String, Object>> updateAccount(@RequestBody AccountService.UpdateAccountRequest request) {
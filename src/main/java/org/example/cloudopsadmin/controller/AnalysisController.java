@@ -4,10 +4,14 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.BillFinancials;
+import org.example.cloudopsadmin.common.FinancialAggregator;
 import org.example.cloudopsadmin.entity.Customer;
-import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
 import org.example.cloudopsadmin.repository.CustomerRepository;
-import org.example.cloudopsadmin.service.CustomerMonthlyBillService;
+import org.example.cloudopsadmin.repository.MonthlyFinancialRollupRepository.CustomerTotals;
+import org.example.cloudopsadmin.repository.MonthlyFinancialRollupRepository.VendorMonthTotals;
+import org.example.cloudopsadmin.service.AnalysisCache;
+import org.example.cloudopsadmin.service.FinancialRollupService;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,7 +29,8 @@ import java.util.stream.Collectors;
 @Tag(name = "Business Analysis", description = "Monthly business analysis APIs")
 public class AnalysisController {
 
-    private final CustomerMonthlyBillService customerMonthlyBillService;
+    private final FinancialRollupService financialRollupService;
+    private final AnalysisCache analysisCache;
     private final CustomerRepository customerRepository;
 
     @GetMapping("/monthly")
@@ -39,78 +44,53 @@ public class AnalysisController {
                 LocalDate.parse(targetMonth + "-01").minusMonths(1)
         );
 
-        // Fetch data
         String vendorFilter = null;
         if (StringUtils.hasText(cloudProvider) && !"All".equalsIgnoreCase(cloudProvider) && !"全部".equals(cloudProvider)) {
-            vendorFilter = cloudProvider;
+            vendorFilter = cloudProvider.trim();
         }
 
-        List<CustomerMonthlyBill> currentBills = customerMonthlyBillService.listBillsByFilters(targetMonth, null, null, vendorFilter);
-        List<CustomerMonthlyBill> prevBills = customerMonthlyBillService.listBillsByFilters(prevMonth, null, null, vendorFilter);
+        final String vendor = vendorFilter;
+        return analysisCache.get("monthly", prevMonth, targetMonth, vendor,
+                () -> buildMonthlyAnalysis(targetMonth, prevMonth, vendor));
+    }
 
-        // Process Current Month
-        Map<String, List<CustomerMonthlyBill>> currentByVendor = currentBills.stream()
-                .filter(b -> b.getCloudVendor() != null)
-                .collect(Collectors.groupingBy(CustomerMonthlyBill::getCloudVendor));
+    private ApiResponse<Map<String, Object>> buildMonthlyAnalysis(String targetMonth, String prevMonth, String vendorFilter) {
+        // One row per (month, vendor), already summed by the database
+        FinancialAggregator current = new FinancialAggregator();
+        FinancialAggregator previous = new FinancialAggregator();
+        for (VendorMonthTotals row : filterByVendor(financialRollupService.sumByMonthAndVendor(prevMonth, targetMonth), vendorFilter)) {
+            accumulate(targetMonth.equals(row.getMonth()) ? current : previous, row);
+        }
 
-        double totalProfitAll = 0.0;
-        double totalRevenueAll = 0.0;
-        double totalCostAll = 0.0;
-        double totalCustomerPayableAll = 0.0;
+        BillFinancials totalAll = current.total();
+        Map<String, BillFinancials> currentByVendor = current.byVendor();
+        Map<String, BillFinancials> prevByVendor = previous.byVendor();
 
         List<Map<String, Object>> thisMonthProviderStats = new ArrayList<>();
-
-        // First pass to calculate totals for profit share
-        for (CustomerMonthlyBill bill : currentBills) {
-            Financials f = calculateFinancials(bill);
-            totalRevenueAll += f.revenue;
-            totalCustomerPayableAll += f.customerPayable;
-            totalCostAll += f.cost;
-            totalProfitAll += f.profit;
-        }
-
-        // Second pass to build provider stats
-        for (Map.Entry<String, List<CustomerMonthlyBill>> entry : currentByVendor.entrySet()) {
+        for (Map.Entry<String, BillFinancials> entry : currentByVendor.entrySet()) {
             String vendor = entry.getKey();
-            List<CustomerMonthlyBill> bills = entry.getValue();
-
-            double revenue = 0;
-            double customerPayable = 0;
-            double cost = 0;
-            double profit = 0;
-
-            for (CustomerMonthlyBill bill : bills) {
-                Financials f = calculateFinancials(bill);
-                revenue += f.revenue;
-                customerPayable += f.customerPayable;
-                cost += f.cost;
-                profit += f.profit;
-            }
+            BillFinancials f = entry.getValue();
 
             // Get previous month stats for this vendor
-            double prevRevenue = 0;
-            for (CustomerMonthlyBill pb : prevBills) {
-                if (vendor.equals(pb.getCloudVendor())) {
-                    prevRevenue += calculateFinancials(pb).revenue;
-                }
-            }
+            BillFinancials prev = prevByVendor.get(vendor);
+            double prevRevenue = prev != null ? prev.revenue : 0;
 
             Map<String, Object> stat = new HashMap<>();
             stat.put("cloud_vendor", vendor);
-            stat.put("revenue", round2(revenue));
-            stat.put("customer_payable", round2(customerPayable));
-            stat.put("cost", round2(cost));
-            stat.put("profit", round2(profit));
-            
-            double margin = revenue != 0 ? (profit / revenue) * 100 : 0; // Using Profit / Revenue as Margin
+            stat.put("revenue", round2(f.revenue));
+            stat.put("customer_payable", round2(f.customerPayable));
+            stat.put("cost", round2(f.cost));
+            stat.put("profit", round2(f.profit));
+
+            double margin = f.revenue != 0 ? (f.profit / f.revenue) * 100 : 0; // Using Profit / Revenue as Margin
             stat.put("margin", round2(margin) + "%");
-            
-            double profitShare = totalProfitAll != 0 ? (profit / totalProfitAll) * 100 : 0;
+
+            double profitShare = totalAll.profit != 0 ? (f.profit / totalAll.profit) * 100 : 0;
             stat.put("profit_share", round2(profitShare) + "%");
 
             String revenueMom = "-";
             if (prevRevenue != 0) {
-                double mom = ((revenue - prevRevenue) / prevRevenue) * 100;
+                double mom = ((f.revenue - prevRevenue) / prevRevenue) * 100;
                 revenueMom = round2(mom) + "%";
             }
             stat.put("revenue_mom", revenueMom);
@@ -119,40 +99,21 @@ public class AnalysisController {
         }
 
         // Process Previous Month for "Last Month Revenue" section
-        Map<String, List<CustomerMonthlyBill>> prevByVendor = prevBills.stream()
-                .filter(b -> b.getCloudVendor() != null)
-                .collect(Collectors.groupingBy(CustomerMonthlyBill::getCloudVendor));
-        
         List<Map<String, Object>> lastMonthProviderStats = new ArrayList<>();
-        for (Map.Entry<String, List<CustomerMonthlyBill>> entry : prevByVendor.entrySet()) {
-            String vendor = entry.getKey();
-            List<CustomerMonthlyBill> bills = entry.getValue();
-
-            double revenue = 0;
-            double customerPayable = 0;
-            double cost = 0;
-            double profit = 0;
-
-            for (CustomerMonthlyBill bill : bills) {
-                Financials f = calculateFinancials(bill);
-                revenue += f.revenue;
-                customerPayable += f.customerPayable;
-                cost += f.cost;
-                profit += f.profit;
-            }
-
+        for (Map.Entry<String, BillFinancials> entry : prevByVendor.entrySet()) {
+            BillFinancials f = entry.getValue();
             Map<String, Object> stat = new HashMap<>();
-            stat.put("cloud_vendor", vendor);
-            stat.put("revenue", round2(revenue));
-            stat.put("customer_payable", round2(customerPayable));
-            stat.put("cost", round2(cost));
-            stat.put("profit", round2(profit));
+            stat.put("cloud_vendor", entry.getKey());
+            stat.put("revenue", round2(f.revenue));
+            stat.put("customer_payable", round2(f.customerPayable));
+            stat.put("cost", round2(f.cost));
+            stat.put("profit", round2(f.profit));
             lastMonthProviderStats.add(stat);
         }
 
         // Overview
         Map<String, Object> overview = new HashMap<>();
-        overview.put("total_revenue", round2(totalRevenueAll));
+        overview.put("total_revenue", round2(totalAll.revenue));
         // Assuming tax is 0 or needs to be calculated. Using 6% as a placeholder derived from image if needed, 
         // but safe to set 0 or leave empty if unknown. 
         // Let's check if we can calculate it from invoices? 
@@ -160,8 +121,8 @@ public class AnalysisController {
         // Image: Rev 21500, Tax 1290 -> 6%. 
         // Let's assume tax is 0 unless we have data.
         overview.put("tax", 0.0); 
-        overview.put("total_cost", round2(totalCostAll));
-        overview.put("total_profit", round2(totalProfitAll));
+        overview.put("total_cost", round2(totalAll.cost));
+        overview.put("total_profit", round2(totalAll.profit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("this_month_revenue_by_provider", thisMonthProviderStats);
@@ -177,111 +138,86 @@ public class AnalysisController {
             @RequestParam(required = false) Integer year
     ) {
         int targetYear = year != null ? year : LocalDate.now().getYear();
+        return analysisCache.get("yearly", (targetYear - 1) + "-01", targetYear + "-12", null,
+                () -> buildYearlyAnalysis(targetYear));
+    }
+
+    private ApiResponse<Map<String, Object>> buildYearlyAnalysis(int targetYear) {
         int prevYear = targetYear - 1;
+        String targetYearPrefix = targetYear + "-";
 
-        // Fetch data
-        List<CustomerMonthlyBill> thisYearBills = customerMonthlyBillService.listBillsByYear(targetYear);
-        List<CustomerMonthlyBill> lastYearBills = customerMonthlyBillService.listBillsByYear(prevYear);
+        // Fetch data: both years in one grouped query
+        FinancialAggregator thisYear = new FinancialAggregator();
+        FinancialAggregator lastYear = new FinancialAggregator();
+        for (VendorMonthTotals row : financialRollupService.sumByMonthAndVendor(prevYear + "-01", targetYear + "-12")) {
+            accumulate(row.getMonth().startsWith(targetYearPrefix) ? thisYear : lastYear, row);
+        }
+
+        Map<String, BillFinancials> thisYearByVendor = thisYear.byVendor();
+        Map<String, Double> lastYearRevenueByVendor = new HashMap<>();
+        lastYear.byVendor().forEach((vendor, f) -> lastYearRevenueByVendor.put(vendor, f.revenue));
 
         // Calculate totals for overview
-        double totalRevenue = 0;
-        double totalCost = 0;
-        double totalProfit = 0;
+        BillFinancials total = thisYear.total();
         double totalTax = 0; // Currently 0 as per requirement
 
-        for (CustomerMonthlyBill bill : thisYearBills) {
-            Financials f = calculateFinancials(bill);
-            totalRevenue += f.revenue;
-            totalCost += f.cost;
-            totalProfit += f.profit;
-        }
-
         // Revenue Comparison Chart (This Year vs Last Year)
-        Map<String, Double> thisYearRevenueByVendor = thisYearBills.stream()
-                .filter(b -> b.getCloudVendor() != null)
-                .collect(Collectors.groupingBy(
-                        CustomerMonthlyBill::getCloudVendor,
-                        Collectors.summingDouble(b -> calculateFinancials(b).revenue)
-                ));
-
-        Map<String, Double> lastYearRevenueByVendor = lastYearBills.stream()
-                .filter(b -> b.getCloudVendor() != null)
-                .collect(Collectors.groupingBy(
-                        CustomerMonthlyBill::getCloudVendor,
-                        Collectors.summingDouble(b -> calculateFinancials(b).revenue)
-                ));
-
         Set<String> allVendors = new HashSet<>();
-        allVendors.addAll(thisYearRevenueByVendor.keySet());
+        allVendors.addAll(thisYearByVendor.keySet());
         allVendors.addAll(lastYearRevenueByVendor.keySet());
 
         List<Map<String, Object>> revenueComparison = new ArrayList<>();
         for (String vendor : allVendors) {
+            BillFinancials f = thisYearByVendor.get(vendor);
             Map<String, Object> item = new HashMap<>();
             item.put("cloud_vendor", vendor);
-            item.put("this_year", round2(thisYearRevenueByVendor.getOrDefault(vendor, 0.0)));
+            item.put("this_year", round2(f != null ? f.revenue : 0.0));
             item.put("last_year", round2(lastYearRevenueByVendor.getOrDefault(vendor, 0.0)));
             revenueComparison.add(item);
         }
 
         // Revenue Share Chart (This Year)
         List<Map<String, Object>> revenueShare = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : thisYearRevenueByVendor.entrySet()) {
+        for (Map.Entry<String, BillFinancials> entry : thisYearByVendor.entrySet()) {
+            double revenue = entry.getValue().revenue;
             Map<String, Object> item = new HashMap<>();
             item.put("cloud_vendor", entry.getKey());
-            item.put("revenue", round2(entry.getValue()));
-            double percentage = totalRevenue > 0 ? (entry.getValue() / totalRevenue) * 100 : 0;
+            item.put("revenue", round2(revenue));
+            double percentage = total.revenue > 0 ? (revenue / total.revenue) * 100 : 0;
             item.put("percentage", round2(percentage));
             revenueShare.add(item);
         }
 
         // Details Table
         List<Map<String, Object>> details = new ArrayList<>();
-        Map<String, List<CustomerMonthlyBill>> thisYearByVendor = thisYearBills.stream()
-                .filter(b -> b.getCloudVendor() != null)
-                .collect(Collectors.groupingBy(CustomerMonthlyBill::getCloudVendor));
-
-        for (Map.Entry<String, List<CustomerMonthlyBill>> entry : thisYearByVendor.entrySet()) {
+        for (Map.Entry<String, BillFinancials> entry : thisYearByVendor.entrySet()) {
             String vendor = entry.getKey();
-            List<CustomerMonthlyBill> bills = entry.getValue();
-
-            double revenue = 0;
-            double customerPayable = 0;
-            double cost = 0;
-            double profit = 0;
-
-            for (CustomerMonthlyBill bill : bills) {
-                Financials f = calculateFinancials(bill);
-                revenue += f.revenue;
-                customerPayable += f.customerPayable;
-                cost += f.cost;
-                profit += f.profit;
-            }
+            BillFinancials f = entry.getValue();
 
             double lastYearRev = lastYearRevenueByVendor.getOrDefault(vendor, 0.0);
             double yoy = 0;
             if (lastYearRev > 0) {
-                yoy = ((revenue - lastYearRev) / lastYearRev) * 100;
+                yoy = ((f.revenue - lastYearRev) / lastYearRev) * 100;
             }
 
             Map<String, Object> row = new HashMap<>();
             row.put("cloud_vendor", vendor);
-            row.put("revenue", round2(revenue));
-            row.put("customer_payable", round2(customerPayable));
-            row.put("cost", round2(cost));
-            row.put("profit", round2(profit));
-            row.put("margin", round2(revenue > 0 ? (profit / revenue) * 100 : 0) + "%");
-            row.put("share", round2(totalRevenue > 0 ? (revenue / totalRevenue) * 100 : 0) + "%");
+            row.put("revenue", round2(f.revenue));
+            row.put("customer_payable", round2(f.customerPayable));
+            row.put("cost", round2(f.cost));
+            row.put("profit", round2(f.profit));
+            row.put("margin", round2(f.revenue > 0 ? (f.profit / f.revenue) * 100 : 0) + "%");
+            row.put("share", round2(total.revenue > 0 ? (f.revenue / total.revenue) * 100 : 0) + "%");
             row.put("yoy_growth", round2(yoy) + "%");
             details.add(row);
         }
 
         // Overview
         Map<String, Object> overview = new HashMap<>();
-        overview.put("total_revenue", round2(totalRevenue));
-        overview.put("total_cost", round2(totalCost));
+        overview.put("total_revenue", round2(total.revenue));
+        overview.put("total_cost", round2(total.cost));
         overview.put("total_tax", round2(totalTax));
-        overview.put("total_profit", round2(totalProfit));
+        overview.put("total_profit", round2(total.profit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("overview", overview);
@@ -298,6 +234,11 @@ public class AnalysisController {
             @RequestParam(required = false) Integer year
     ) {
         int targetYear = year != null ? year : LocalDate.now().getYear();
+        return analysisCache.get(AnalysisCache.CUSTOMER_YEARLY, targetYear + "-01", targetYear + "-12", null,
+                () -> buildCustomerYearlyAnalysis(targetYear));
+    }
+
+    private ApiResponse<Map<String, Object>> buildCustomerYearlyAnalysis(int targetYear) {
 
         // 1. Get all customers (The Source of Truth)
         List<Customer> customers = customerRepository.findAll();
@@ -313,47 +254,31 @@ public class AnalysisController {
             normalizedNameMap.put(name.toLowerCase(), name);
         }
 
-        // 2. Fetch bills
-        List<CustomerMonthlyBill> bills = customerMonthlyBillService.listBillsByYear(targetYear);
-
-        // 3. Aggregate data
-        Map<String, Financials> customerStats = new HashMap<>();
-        for (String customer : validCustomerNames) {
-            customerStats.put(customer, new Financials(0, 0, 0, 0));
-        }
-
-        double totalRevenueYear = 0;
-        double totalCustomerPayableYear = 0;
-        double totalCostYear = 0;
-        double totalProfitYear = 0;
+        // 2. Fetch per-customer sums
+        List<CustomerTotals> rows = financialRollupService.sumByCustomer(targetYear + "-01", targetYear + "-12");
 
-        for (CustomerMonthlyBill bill : bills) {
-            String rawName = bill.getCustomerName();
+        // 3. Aggregate data, keyed by the customer's canonical name
+        FinancialAggregator aggregator = new FinancialAggregator();
+        for (CustomerTotals row : rows) {
+            String rawName = row.getCustomerName();
             if (!StringUtils.hasText(rawName)) continue;
 
             String normalizedKey = rawName.trim().toLowerCase();
             String standardName = normalizedNameMap.get(normalizedKey);
 
             if (standardName != null) {
-                Financials f = calculateFinancials(bill);
-                Financials current = customerStats.get(standardName);
-                
-                current.revenue += f.revenue;
-                current.customerPayable += f.customerPayable;
-                current.cost += f.cost;
-                current.profit += f.profit;
-
-                totalRevenueYear += f.revenue;
-                totalCustomerPayableYear += f.customerPayable;
-                totalCostYear += f.cost;
-                totalProfitYear += f.profit;
+                aggregator.add(null, null, standardName,
+                        nz(row.getRevenue()), nz(row.getCustomerPayable()), nz(row.getCost()), nz(row.getProfit()));
             }
         }
 
+        Map<String, BillFinancials> customerStats = aggregator.byCustomer();
+        BillFinancials totalYear = aggregator.total();
+
         // 4. Build response list
         List<Map<String, Object>> list = new ArrayList<>();
         for (String customer : validCustomerNames) {
-            Financials f = customerStats.get(customer);
+            BillFinancials f = customerStats.getOrDefault(customer, new BillFinancials());
             Map<String, Object> item = new HashMap<>();
             item.put("customer_name", customer);
             item.put("revenue", round2(f.revenue)); // Undiscounted
@@ -373,10 +298,10 @@ public class AnalysisController {
 
         Map<String, Object> summary = new HashMap<>();
         summary.put("year", targetYear);
-        summary.put("total_revenue", round2(totalRevenueYear));
-        summary.put("total_customer_payable", round2(totalCustomerPayableYear));
-        summary.put("total_cost", round2(totalCostYear));
-        summary.put("total_profit", round2(totalProfitYear));
+        summary.put("total_revenue", round2(totalYear.revenue));
+        summary.put("total_customer_payable", round2(totalYear.customerPayable));
+        summary.put("total_cost", round2(totalYear.cost));
+        summary.put("total_profit", round2(totalYear.profit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("summary", summary);
@@ -391,63 +316,36 @@ public class AnalysisController {
             @RequestParam(required = false) Integer year
     ) {
         int targetYear = year != null ? year : LocalDate.now().getYear();
-        List<CustomerMonthlyBill> bills = customerMonthlyBillService.listBillsByYear(targetYear);
+        return analysisCache.get("quarterly", targetYear + "-01", targetYear + "-12", null,
+                () -> buildQuarterlyAnalysis(targetYear));
+    }
+
+    private ApiResponse<Map<String, Object>> buildQuarterlyAnalysis(int targetYear) {
 
         // Group by Quarter
-        Map<String, List<CustomerMonthlyBill>> billsByQuarter = new HashMap<>();
-        billsByQuarter.put("Q1", new ArrayList<>());
-        billsByQuarter.put("Q2", new ArrayList<>());
-        billsByQuarter.put("Q3", new ArrayList<>());
-        billsByQuarter.put("Q4", new ArrayList<>());
-
-        for (CustomerMonthlyBill bill : bills) {
-            String q = getQuarter(bill.getMonth());
-            if (q != null) {
-                billsByQuarter.get(q).add(bill);
-            }
+        FinancialAggregator aggregator = new FinancialAggregator();
+        for (VendorMonthTotals row : financialRollupService.sumByMonthAndVendor(targetYear + "-01", targetYear + "-12")) {
+            accumulate(aggregator, row);
         }
 
         List<Map<String, Object>> quartersData = new ArrayList<>();
-        double totalRevenueYear = 0;
-        double totalCostYear = 0;
-        double totalProfitYear = 0;
-
-        String[] quarters = {"Q1", "Q2", "Q3", "Q4"};
-        for (String q : quarters) {
-            List<CustomerMonthlyBill> qBills = billsByQuarter.get(q);
-            double qRevenue = 0;
-            double qCost = 0;
-            double qProfit = 0;
-
-            // Vendor breakdown for this quarter
-            Map<String, Double> vendorRevenue = new HashMap<>();
-            
-            for (CustomerMonthlyBill bill : qBills) {
-                Financials f = calculateFinancials(bill);
-                qRevenue += f.revenue;
-                qCost += f.cost;
-                qProfit += f.profit;
-
-                if (bill.getCloudVendor() != null) {
-                    vendorRevenue.merge(bill.getCloudVendor(), f.revenue, Double::sum);
-                }
-            }
+        BillFinancials totalYear = aggregator.total();
 
-            totalRevenueYear += qRevenue;
-            totalCostYear += qCost;
-            totalProfitYear += qProfit;
+        for (Map.Entry<String, BillFinancials> quarter : aggregator.byQuarter().entrySet()) {
+            String q = quarter.getKey();
+            BillFinancials f = quarter.getValue();
 
             Map<String, Object> qData = new HashMap<>();
             qData.put("quarter", q);
-            qData.put("revenue", round2(qRevenue));
-            qData.put("cost", round2(qCost));
-            qData.put("profit", round2(qProfit));
-            double margin = qRevenue > 0 ? (qProfit / qRevenue) * 100 : 0;
+            qData.put("revenue", round2(f.revenue));
+            qData.put("cost", round2(f.cost));
+            qData.put("profit", round2(f.profit));
+            double margin = f.revenue > 0 ? (f.profit / f.revenue) * 100 : 0;
             qData.put("margin", round2(margin) + "%");
 
             // Vendor details
             List<Map<String, Object>> vendorDetails = new ArrayList<>();
-            for (Map.Entry<String, Double> entry : vendorRevenue.entrySet()) {
+            for (Map.Entry<String, Double> entry : aggregator.vendorRevenue(q).entrySet()) {
                 Map<String, Object> v = new HashMap<>();
                 v.put("cloud_vendor", entry.getKey());
                 v.put("revenue", round2(entry.getValue()));
@@ -460,9 +358,9 @@ public class AnalysisController {
 
         Map<String, Object> overview = new HashMap<>();
         overview.put("year", targetYear);
-        overview.put("total_revenue", round2(totalRevenueYear));
-        overview.put("total_cost", round2(totalCostYear));
-        overview.put("total_profit", round2(totalProfitYear));
+        overview.put("total_revenue", round2(totalYear.revenue));
+        overview.put("total_cost", round2(totalYear.cost));
+        overview.put("total_profit", round2(totalYear.profit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("overview", overview);
@@ -471,60 +369,24 @@ public class AnalysisController {
         return ApiResponse.success("success", response);
     }
 
-    private String getQuarter(String month) {
-        if (month == null || month.length() < 7) return null;
-        String m = month.substring(5, 7);
-        switch (m) {
-            case "01": case "02": case "03": return "Q1";
-            case "04": case "05": case "06": return "Q2";
-            case "07": case "08": case "09": return "Q3";
-            case "10": case "11": case "12": return "Q4";
-            default: return null;
-        }
+    private void accumulate(FinancialAggregator aggregator, VendorMonthTotals row) {
+        aggregator.add(row.getMonth(), row.getCloudVendor(), null,
+                nz(row.getRevenue()), nz(row.getCustomerPayable()), nz(row.getCost()), nz(row.getProfit()));
     }
 
-    private Financials calculateFinancials(CustomerMonthlyBill bill) {
-        Double originalPct = bill.getOriginalBillingPercentage();
-        Double undiscounted = bill.getUndiscountedBill();
-        Double costPct = bill.getCostDiscountPercentage();
-
-        double revenue = undiscounted != null ? undiscounted : 0.0;
-
-        Double customerPayable = bill.getCustomerPayableBill();
-        if (customerPayable == null && originalPct != null && undiscounted != null) {
-            customerPayable = undiscounted * (originalPct / 100.0);
-        }
-        if (customerPayable == null) customerPayable = 0.0;
-
-        Double supplierPayable = bill.getSupplierPayableBill();
-        if (supplierPayable == null && costPct != null && undiscounted != null) {
-            supplierPayable = undiscounted * (1.0 - (costPct / 100.0));
-        }
-        if (supplierPayable == null) supplierPayable = 0.0;
-
-        Double profit = bill.getProfit();
-        if (profit == null) {
-            profit = customerPayable - supplierPayable;
+    private List<VendorMonthTotals> filterByVendor(List<VendorMonthTotals> rows, String vendorFilter) {
+        if (!StringUtils.hasText(vendorFilter)) {
+            return rows;
         }
+        String vendor = vendorFilter.trim();
+        return rows.stream().filter(r -> vendor.equals(r.getCloudVendor())).collect(Collectors.toList());
+    }
 
-        return new Financials(revenue, customerPayable, supplierPayable, profit);
+    private double nz(Double value) {
+        return value != null ? value : 0.0;
     }
 
     private double round2(double value) {
         return Math.round(value * 100.0) / 100.0;
     }
-
-    private static class Financials {
-        double revenue;
-        double customerPayable;
-        double cost;
-        double profit;
-
-        public Financials(double revenue, double customerPayable, double cost, double profit) {
-            this.revenue = revenue;
-            this.customerPayable = customerPayable;
-            this.cost = cost;
-            this.profit = profit;
-        }
-    }
 }
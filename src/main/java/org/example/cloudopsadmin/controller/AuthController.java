@@ -59,7 +59,12 @@ public class AuthController {
         Map<String, Object> data = new HashMap<>();
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            jwtService.blacklistToken(token);
+            try {
+                jwtService.blacklistToken(token);
+            } catch (IllegalStateException e) {
+                // The token could not be revoked and stays valid, so the client must not treat this as a logout
+                return ApiResponse.error(503, "退出登录失败，请稍后重试");
+            }
         }
         return ApiResponse.success("退出登录成功", data);
     }
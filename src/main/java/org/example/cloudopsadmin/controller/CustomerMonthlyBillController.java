@@ -2,17 +2,23 @@ package org.example.cloudopsadmin.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.CursorPage;
+import org.example.cloudopsadmin.common.TabularWriter;
 import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+import org.example.cloudopsadmin.exception.ExportAbortedException;
 import org.example.cloudopsadmin.service.CustomerMonthlyBillService;
+import org.example.cloudopsadmin.service.ExportService;
 import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,6 +33,7 @@ import java.util.stream.Collectors;
 public class CustomerMonthlyBillController {
 
     private final CustomerMonthlyBillService customerMonthlyBillService;
+    private final ExportService exportService;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CustomerMonthlyBillController.class);
 
     @GetMapping
@@ -37,23 +44,49 @@ public class CustomerMonthlyBillController {
             @RequestParam(name = "customer_name", required = false) String customerName,
             @RequestParam(name = "linked_account_uid", required = false) String linkedAccountUid,
             @RequestParam(required = false) String month,
-            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder
+            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "count", defaultValue = "exact") String count
     ) {
         try {
-            Page<CustomerMonthlyBill> billPage = customerMonthlyBillService.getMonthlyBillList(
-                    page,
-                    pageSize,
-                    customerName,
-                    linkedAccountUid,
-                    month,
-                    sortOrder
-            );
-
-            final int[] offsetHolder = { (billPage.getNumber()) * billPage.getSize() };
-            List<Map<String, Object>> list = billPage.getContent().stream().map(bill -> {
+            Map<String, Object> data = new HashMap<>();
+            List<CustomerMonthlyBill> bills;
+            // Row numbers only exist in page mode; a cursor page has no absolute position
+            final int[] offsetHolder = { -1 };
+            if (cursor != null) {
+                CursorPage<CustomerMonthlyBill> slice;
+                try {
+                    slice = customerMonthlyBillService.getMonthlyBillListByCursor(
+                            cursor, pageSize, customerName, linkedAccountUid, month, sortOrder, CursorPage.CountMode.from(count));
+                } catch (IllegalArgumentException e) {
+                    return ApiResponse.error(400, e.getMessage());
+                }
+                bills = slice.content();
+                slice.putMeta(data, pageSize);
+            } else {
+                Page<CustomerMonthlyBill> billPage = customerMonthlyBillService.getMonthlyBillList(
+                        page,
+                        pageSize,
+                        customerName,
+                        linkedAccountUid,
+                        month,
+                        sortOrder
+                );
+                bills = billPage.getContent();
+                offsetHolder[0] = billPage.getNumber() * billPage.getSize();
+                data.put("total", billPage.getTotalElements());
+                data.put("page", billPage.getNumber() + 1);
+                data.put("page_size", billPage.getSize());
+            }
+
+            Map<String, CustomerMonthlyBill> previousBills = customerMonthlyBillService.findPreviousMonthBills(bills);
+
+            List<Map<String, Object>> list = bills.stream().map(bill -> {
                 Map<String, Object> map = new HashMap<>();
-                offsetHolder[0] = offsetHolder[0] + 1;
-                map.put("index", offsetHolder[0]);
+                if (offsetHolder[0] >= 0) {
+                    offsetHolder[0] = offsetHolder[0] + 1;
+                    map.put("index", offsetHolder[0]);
+                }
                 map.put("id", bill.getId());
                 map.put("cloud_vendor", bill.getCloudVendor());
                 map.put("customer_name", bill.getCustomerName());
@@ -92,7 +125,7 @@ public class CustomerMonthlyBillController {
                 final Double[] lastMonthProfit = { null };
                 final Double[] usageMoM = { null };
                 final Double[] profitMoM = { null };
-                customerMonthlyBillService.findPreviousMonthBill(bill.getMonth(), bill.getLinkedAccountUid()).ifPresent(prev -> {
+                Optional.ofNullable(previousBills.get(bill.getLinkedAccountUid())).ifPresent(prev -> {
                     Double prevUndiscounted = prev.getUndiscountedBill();
                     
                     Double prevProfit = prev.getProfit();
@@ -122,10 +155,6 @@ public class CustomerMonthlyBillController {
                 return map;
             }).collect(Collectors.toList());
 
-            Map<String, Object> data = new HashMap<>();
-            data.put("total", billPage.getTotalElements());
-            data.put("page", billPage.getNumber() + 1);
-            data.put("page_size", billPage.getSize());
             data.put("list", list);
 
             return ApiResponse.success("success", data);
@@ -136,6 +165,42 @@ public class CustomerMonthlyBillController {
         }
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "导出客户月账单", description = "按筛选条件流式导出客户月账单，不传 month 时导出全部月份，支持 csv / xlsx，csv 可 gzip 压缩")
+    public ApiResponse<Object> exportMonthlyBills(
+            @RequestParam(required = false) String month,
+            @RequestParam(name = "customer_name", required = false) String customerName,
+            @RequestParam(name = "linked_account_uid", required = false) String linkedAccountUid,
+            @RequestParam(name = "cloud_vendor", required = false) String cloudVendor,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) {
+        // Rows go straight to the response; a null return means the body has been written
+        try {
+            TabularWriter.export(response, "customer-monthly-bills", TabularWriter.Format.from(format), gzip,
+                    out -> exportService.exportBills(month, customerName, linkedAccountUid, cloudVendor, out));
+            return null;
+        } catch (IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(400, e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        } catch (ExportService.ExportBusyException e) {
+            // Refused before the first row, so nothing has been written yet
+            response.reset();
+            return ApiResponse.error(503, e.getMessage());
+        } catch (Exception e) {
+            log.error("Export monthly bills failed", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update customer monthly bill", description = "Update total bill, undiscounted bill and financial details")
     public ApiResponse<CustomerMonthlyBill> updateBill(
@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.Email;
 import org.example.cloudopsadmin.service.EmailService;
 import org.springframework.data.domain.Page;
@@ -32,11 +33,31 @@ public class EmailController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String label,
             @RequestParam(name = "sort_by", required = false) String sortBy,
-            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder
+            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "count", defaultValue = "exact") String count
     ) {
-        Page<Email> emailPage = emailService.getEmailList(page, pageSize, search, category, status, label, sortBy, sortOrder);
+        Map<String, Object> data = new HashMap<>();
+        List<Email> rows;
+        if (cursor != null) {
+            // Cursor mode (cursor present, empty for the first page): no OFFSET, count per the count parameter
+            CursorPage<Email> slice;
+            try {
+                slice = emailService.getEmailListByCursor(cursor, pageSize, search, category, status, label, sortBy, sortOrder, CursorPage.CountMode.from(count));
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
+            }
+            rows = slice.content();
+            slice.putMeta(data, pageSize);
+        } else {
+            Page<Email> emailPage = emailService.getEmailList(page, pageSize, search, category, status, label, sortBy, sortOrder);
+            rows = emailPage.getContent();
+            data.put("total", emailPage.getTotalElements());
+            data.put("page", emailPage.getNumber() + 1);
+            data.put("page_size", emailPage.getSize());
+        }
 
-        List<Map<String, Object>> list = emailPage.getContent().stream().map(email -> {
+        List<Map<String, Object>> list = rows.stream().map(email -> {
             Map<String, Object> map = new HashMap<>();
             map.put("email_internal_id", email.getEmailInternalId());
             map.put("email_address", email.getEmailAddress());
@@ -85,10 +106,6 @@ public class EmailController {
             return map;
         }).collect(Collectors.toList());
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("total", emailPage.getTotalElements());
-        data.put("page", emailPage.getNumber() + 1);
-        data.put("page_size", emailPage.getSize());
         data.put("list", list);
 
         return ApiResponse.success("success", data);
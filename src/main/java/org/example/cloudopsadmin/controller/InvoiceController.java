@@ -2,11 +2,18 @@ package org.example.cloudopsadmin.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.CursorPage;
+import org.example.cloudopsadmin.common.TabularWriter;
 import org.example.cloudopsadmin.entity.Invoice;
+import org.example.cloudopsadmin.entity.InvoiceGenerationJob;
 import org.example.cloudopsadmin.entity.InvoiceLineItem;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.exception.ExportAbortedException;
+import org.example.cloudopsadmin.service.ExportService;
+import org.example.cloudopsadmin.service.InvoiceGenerationService;
 import org.example.cloudopsadmin.service.InvoiceService;
 import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +31,8 @@ import java.util.Set;
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
+    private final InvoiceGenerationService invoiceGenerationService;
+    private final ExportService exportService;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InvoiceController.class);
 
     @GetMapping
@@ -34,23 +43,74 @@ public class InvoiceController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String status,
             @RequestParam(name = "sort_by", required = false) String sortBy,
-            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder
+            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "count", defaultValue = "exact") String count
     ) {
-        Page<Invoice> invoicePage = invoiceService.getInvoiceList(page, pageSize, search, status, sortBy, sortOrder);
+        Map<String, Object> data = new HashMap<>();
+        List<Invoice> rows;
+        if (cursor != null) {
+            // Cursor mode (cursor present, empty for the first page): no OFFSET, count per the count parameter
+            CursorPage<Invoice> slice;
+            try {
+                slice = invoiceService.getInvoiceListByCursor(cursor, pageSize, search, status, sortBy, sortOrder, CursorPage.CountMode.from(count));
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
+            }
+            rows = slice.content();
+            slice.putMeta(data, pageSize);
+        } else {
+            Page<Invoice> invoicePage = invoiceService.getInvoiceList(page, pageSize, search, status, sortBy, sortOrder);
+            rows = invoicePage.getContent();
+            data.put("total", invoicePage.getTotalElements());
+            data.put("page", invoicePage.getNumber() + 1);
+            data.put("page_size", invoicePage.getSize());
+        }
 
-        List<Map<String, Object>> list = invoicePage.getContent().stream()
+        List<Map<String, Object>> list = rows.stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("total", invoicePage.getTotalElements());
-        data.put("page", invoicePage.getNumber() + 1);
-        data.put("page_size", invoicePage.getSize());
         data.put("list", list);
 
         return ApiResponse.success("success", data);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "导出发票", description = "按筛选条件流式导出发票及行项目，支持 csv / xlsx，csv 可 gzip 压缩")
+    public ApiResponse<Object> exportInvoices(
+            @RequestParam(required = false) String month,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) {
+        // Rows go straight to the response; a null return means the body has been written
+        try {
+            TabularWriter.export(response, "invoices", TabularWriter.Format.from(format), gzip,
+                    out -> exportService.exportInvoices(month, status, search, out));
+            return null;
+        } catch (IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(400, e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        } catch (ExportService.ExportBusyException e) {
+            // Refused before the first row, so nothing has been written yet
+            response.reset();
+            return ApiResponse.error(503, e.getMessage());
+        } catch (Exception e) {
+            log.error("Export invoices failed", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+            }
+            throw new ExportAbortedException(e);
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "获取发票详情", description = "根据ID获取发票详情")
     public ApiResponse<Map<String, Object>> getInvoice(@PathVariable Long id) {
@@ -141,12 +201,74 @@ public class InvoiceController {
             return ApiResponse.success("success", toResponse(posted));
         } catch (IllegalArgumentException e) {
             return ApiResponse.error(404, e.getMessage());
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(409, e.getMessage());
         } catch (Exception e) {
             log.error("Post invoice failed", e);
             return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
         }
     }
 
+    @PostMapping("/post-batch")
+    @Operation(summary = "批量过账发票", description = "在一个事务内将指定月份（按开票日期）的全部草稿发票过账")
+    public ApiResponse<Map<String, Object>> postDraftInvoicesForMonth(@RequestParam String month) {
+        try {
+            User operator = (User) org.springframework.security.core.context.SecurityContextHolder.getContext()
+                    .getAuthentication().getPrincipal();
+            return ApiResponse.success("success", invoiceService.postDraftInvoicesForMonth(month, operator));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("Batch post invoices failed. month={}", month, e);
+            return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/generation-jobs")
+    @Operation(summary = "批量开票", description = "为指定月份所有尚未开票的客户生成草稿发票，后台分批执行，返回任务进度")
+    public ApiResponse<Map<String, Object>> startGenerationJob(@RequestBody InvoiceGenerationService.GenerateInvoicesRequest request) {
+        try {
+            User operator = (User) org.springframework.security.core.context.SecurityContextHolder.getContext()
+                    .getAuthentication().getPrincipal();
+            InvoiceGenerationJob job = invoiceGenerationService.start(request, operator);
+            return ApiResponse.success("Invoice generation started", invoiceGenerationService.toProgress(job));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("Start invoice generation failed. month={}", request.getMonth(), e);
+            return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/generation-jobs/{jobId}")
+    @Operation(summary = "批量开票进度", description = "查询批量开票任务的状态和进度")
+    public ApiResponse<Map<String, Object>> getGenerationJob(@PathVariable Long jobId) {
+        try {
+            return ApiResponse.success("success", invoiceGenerationService.toProgress(invoiceGenerationService.getJob(jobId)));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(404, e.getMessage());
+        }
+    }
+
+    @PostMapping("/generation-jobs/{jobId}/resume")
+    @Operation(summary = "恢复批量开票", description = "继续执行失败或中断的批量开票任务，只处理仍未开票的客户")
+    public ApiResponse<Map<String, Object>> resumeGenerationJob(@PathVariable Long jobId) {
+        try {
+            return ApiResponse.success("success", invoiceGenerationService.toProgress(invoiceGenerationService.resume(jobId)));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(404, e.getMessage());
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("Resume invoice generation failed. jobId={}", jobId, e);
+            return ApiResponse.error(500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/{id}/payment")
     @Operation(summary = "登记付款", description = "登记发票付款信息，并更新发票状态为已付款")
     public ApiResponse<Map<String, Object>> registerPayment(@PathVariable Long id, @RequestBody InvoiceService.RegisterPaymentRequest request) {
@@ -189,6 +311,7 @@ public class InvoiceController {
         Map<String, Object> map = new HashMap<>();
         map.put("id", invoice.getId());
         map.put("customer_name", invoice.getCustomerName());
+        map.put("customer_id", invoice.getCustomerId());
         map.put("invoice_date", invoice.getInvoiceDate());
         map.put("due_date", invoice.getDueDate());
         map.put("currency", invoice.getCurrency());
@@ -23,7 +23,7 @@ public class KnowledgeArticleController {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(KnowledgeArticleController.class);
 
     @GetMapping
-    @Operation(summary = "获取知识库文章列表", description = "分页获取知识库文章列表，支持搜索")
+    @Operation(summary = "获取知识库文章列表", description = "分页获取知识库文章列表，支持搜索；搜索时按相关度排序并返回高亮摘要")
     public ApiResponse<Map<String, Object>> list(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(name = "page_size", defaultValue = "20") int pageSize,
@@ -41,6 +41,9 @@ public class KnowledgeArticleController {
                 m.put("tags", a.getTags());
                 m.put("keywords", a.getKeywords());
                 m.put("created_at", a.getCreatedAt());
+                if (search != null && !search.isBlank()) {
+                    m.put("snippet", knowledgeArticleService.snippet(a, search));
+                }
                 return m;
             }).toList();
             Map<String, Object> data = new HashMap<>();
@@ -111,6 +114,7 @@ public class KnowledgeArticleController {
         map.put("tags", article.getTags());
         map.put("keywords", article.getKeywords());
         map.put("created_at", article.getCreatedAt());
+        map.put("updated_at", article.getUpdatedAt());
         return map;
     }
 }
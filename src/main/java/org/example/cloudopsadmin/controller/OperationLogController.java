@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.ApiResponse;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.OperationLog;
 import org.example.cloudopsadmin.service.OperationLogService;
 import org.springframework.data.domain.Page;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +27,7 @@ public class OperationLogController {
     private final OperationLogService operationLogService;
 
     @GetMapping
-    @Operation(summary = "获取操作日志列表", description = "分页获取操作日志，显示谁对什么内容进行了操作以及时间")
+    @Operation(summary = "获取操作日志列表", description = "分页获取操作日志，显示谁对什么内容进行了操作以及时间；传 cursor 时使用游标分页，start_time/end_time 限定时间范围")
     public ApiResponse<Map<String, Object>> list(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(name = "page_size", defaultValue = "20") int pageSize,
@@ -33,11 +35,42 @@ public class OperationLogController {
             @RequestParam(name = "target_type", required = false) String targetType,
             @RequestParam(name = "action", required = false) String action,
             @RequestParam(name = "search", required = false) String search,
-            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder
+            @RequestParam(name = "start_time", required = false) String startTime,
+            @RequestParam(name = "end_time", required = false) String endTime,
+            @RequestParam(name = "sort_order", defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "count", defaultValue = "exact") String count
     ) {
-        Page<OperationLog> logPage = operationLogService.list(page, pageSize, operator, targetType, action, search, sortOrder);
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = OperationLogService.parseTime(startTime, "start_time", false);
+            end = OperationLogService.parseTime(endTime, "end_time", true);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        }
 
-        List<Map<String, Object>> list = logPage.getContent().stream().map(log -> {
+        Map<String, Object> data = new HashMap<>();
+        List<OperationLog> rows;
+        if (cursor != null) {
+            // Cursor mode (cursor present, empty for the first page): no OFFSET, count per the count parameter
+            CursorPage<OperationLog> slice;
+            try {
+                slice = operationLogService.listByCursor(cursor, pageSize, operator, targetType, action, search, start, end, sortOrder, CursorPage.CountMode.from(count));
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
+            }
+            rows = slice.content();
+            slice.putMeta(data, pageSize);
+        } else {
+            Page<OperationLog> logPage = operationLogService.list(page, pageSize, operator, targetType, action, search, start, end, sortOrder);
+            rows = logPage.getContent();
+            data.put("total", logPage.getTotalElements());
+            data.put("page", logPage.getNumber() + 1);
+            data.put("page_size", logPage.getSize());
+        }
+
+        List<Map<String, Object>> list = rows.stream().map(log -> {
             Map<String, Object> map = new HashMap<>();
             map.put("id", log.getId());
             map.put("operator_email", log.getOperatorEmail());
@@ -50,10 +83,6 @@ public class OperationLogController {
             return map;
         }).toList();
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("total", logPage.getTotalElements());
-        data.put("page", logPage.getNumber() + 1);
-        data.put("page_size", logPage.getSize());
         data.put("list", list);
 
         return ApiResponse.success("success", data);
@@ -13,6 +13,7 @@ import org.example.cloudopsadmin.repository.PermissionRepository;
 import org.example.cloudopsadmin.repository.RoleRepository;
 import org.example.cloudopsadmin.repository.UserRepository;
 import org.example.cloudopsadmin.service.AliyunStorageService;
+import org.example.cloudopsadmin.service.PrincipalCache;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -36,6 +37,7 @@ public class UserController {
     private final PermissionRepository permissionRepository;
     private final AliyunStorageService storageService;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     @PostMapping
     @Operation(summary = "创建用户", description = "创建新用户，包含角色和权限配置")
@@ -91,6 +93,7 @@ public class UserController {
         }
 
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         Map<String, Object> response = new HashMap<>();
         response.put("id", user.getId());
@@ -111,6 +114,7 @@ public class UserController {
                     .orElseThrow(() -> new IllegalStateException("User not found"));
             userToUpdate.setAvatar(avatarKey);
             userRepository.save(userToUpdate);
+            principalCache.evict(userToUpdate.getEmail());
 
             Map<String, Object> response = new HashMap<>();
             response.put("avatar", avatarUrl);
@@ -0,0 +1,26 @@
+package org.example.cloudopsadmin.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "bill_sync_versions")
+@Data
+public class BillSyncVersion {
+
+    // "source" is bumped on every account/customer change, "month:yyyy-MM" records the source version a month was materialized at,
+    // "analysis:yyyy-MM" and "analysis:customers" are bumped by every commit that changes that month's bills or the customers
+    @Id
+    @Column(name = "sync_key", length = 32)
+    private String syncKey;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "customer_monthly_bills", indexes = {
         @Index(name = "idx_cmb_month_uid", columnList = "month,linked_account_uid"),
-        @Index(name = "idx_cmb_month_customer", columnList = "month,customer_name")
+        @Index(name = "idx_cmb_month_customer", columnList = "month,customer_name"),
+        @Index(name = "idx_cmb_invoice", columnList = "invoice_id")
 })
 @Data
 public class CustomerMonthlyBill {
@@ -0,0 +1,26 @@
+package org.example.cloudopsadmin.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "id_sequences")
+@Data
+public class IdSequence {
+
+    // e.g. "acc_20260101": one row per prefix per day; "inv_2026" is the per-year invoice number counter
+    @Id
+    @Column(name = "seq_key", length = 64)
+    private String seqKey;
+
+    // Next value not yet handed out to any node
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
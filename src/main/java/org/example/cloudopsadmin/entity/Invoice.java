@@ -9,10 +9,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
 @Table(name = "invoices", indexes = {
-        @Index(name = "idx_inv_customer_date", columnList = "customer_name,invoice_date")
+        @Index(name = "idx_inv_customer_date", columnList = "customer_name,invoice_date"),
+        @Index(name = "idx_inv_payment_reference", columnList = "payment_reference"),
+        @Index(name = "idx_inv_customer_fk", columnList = "customer_id_fk"),
+        @Index(name = "idx_inv_customer_name_norm", columnList = "customer_name_norm")
 })
 @Data
 public class Invoice {
@@ -24,6 +28,14 @@ public class Invoice {
     @Column(name = "customer_name", nullable = false)
     private String customerName;
 
+    // Customer the name currently resolves to, null if none; maintained by InvoiceCustomerLinker
+    @Column(name = "customer_id_fk")
+    private Long customerId;
+
+    // lower(trim(customer_name)), so the name filter is an index range scan
+    @Column(name = "customer_name_norm")
+    private String customerNameNorm;
+
     @Column(name = "invoice_date", nullable = false)
     private LocalDate invoiceDate;
 
@@ -66,4 +78,14 @@ public class Invoice {
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        customerNameNorm = normalizeName(customerName);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,82 @@
+package org.example.cloudopsadmin.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One month-end bulk invoicing run. Counters are advanced in the same transaction as each chunk's invoices,
+// so after a crash they match what was actually committed and a resume only has to pick up the rest.
+// A RUNNING job belongs to the node named in owner_node for as long as that node keeps renewing lease_until.
+@Entity
+@Table(name = "invoice_generation_jobs", indexes = {
+        @Index(name = "idx_igj_month_status", columnList = "month,status")
+})
+@Data
+public class InvoiceGenerationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "month", nullable = false, length = 7)
+    private String month;
+
+    @Column(name = "invoice_date", nullable = false)
+    private LocalDate invoiceDate;
+
+    @Column(name = "due_date", nullable = false)
+    private LocalDate dueDate;
+
+    @Column(name = "currency", nullable = false)
+    private String currency;
+
+    @Column(name = "tax_pct")
+    private Double taxPct;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private InvoiceGenerationStatus status = InvoiceGenerationStatus.RUNNING;
+
+    @Column(name = "total_customers", nullable = false)
+    private Integer totalCustomers = 0;
+
+    @Column(name = "processed_customers", nullable = false)
+    private Integer processedCustomers = 0;
+
+    @Column(name = "failed_customers", nullable = false)
+    private Integer failedCustomers = 0;
+
+    @Column(name = "invoices_created", nullable = false)
+    private Integer invoicesCreated = 0;
+
+    @Column(name = "bills_linked", nullable = false)
+    private Integer billsLinked = 0;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @Column(name = "owner_node", length = 128)
+    private String ownerNode;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "operator_email")
+    private String operatorEmail;
+
+    @Column(name = "operator_name")
+    private String operatorName;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
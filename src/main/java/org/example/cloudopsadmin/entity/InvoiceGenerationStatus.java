@@ -0,0 +1,5 @@
+package org.example.cloudopsadmin.entity;
+
+public enum InvoiceGenerationStatus {
+    RUNNING, COMPLETED, FAILED
+}
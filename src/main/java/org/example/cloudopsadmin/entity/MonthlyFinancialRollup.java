@@ -0,0 +1,47 @@
+package org.example.cloudopsadmin.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "monthly_financial_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_mfr_month_vendor_customer", columnNames = {"month", "cloud_vendor", "customer_name"})
+})
+@Data
+public class MonthlyFinancialRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "month", nullable = false, length = 7)
+    private String month;
+
+    @Column(name = "cloud_vendor", nullable = false)
+    private String cloudVendor;
+
+    @Column(name = "customer_name", nullable = false)
+    private String customerName;
+
+    @Column(name = "revenue", nullable = false)
+    private Double revenue;
+
+    @Column(name = "customer_payable", nullable = false)
+    private Double customerPayable;
+
+    @Column(name = "cost", nullable = false)
+    private Double cost;
+
+    @Column(name = "profit", nullable = false)
+    private Double profit;
+
+    @Column(name = "bill_count", nullable = false)
+    private Long billCount;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "operation_logs", indexes = {
         @Index(name = "idx_oplog_target", columnList = "targetType,targetId"),
-        @Index(name = "idx_oplog_operator", columnList = "operatorEmail")
+        @Index(name = "idx_oplog_operator", columnList = "operatorEmail"),
+        @Index(name = "idx_oplog_operator_name", columnList = "operatorName"),
+        @Index(name = "idx_oplog_created", columnList = "createdAt")
 })
 @Data
 public class OperationLog {
@@ -0,0 +1,4 @@
+package org.example.cloudopsadmin.event;
+
+public record AccountChangedEvent(Long accountId) {
+}
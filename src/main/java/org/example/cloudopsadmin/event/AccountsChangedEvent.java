@@ -0,0 +1,7 @@
+package org.example.cloudopsadmin.event;
+
+import java.util.List;
+
+// Bulk counterpart of AccountChangedEvent (imports, mass updates): one event per committed batch instead of one per account
+public record AccountsChangedEvent(List<Long> accountIds) {
+}
@@ -0,0 +1,7 @@
+package org.example.cloudopsadmin.event;
+
+import java.util.Set;
+
+// Months (yyyy-MM) whose bill amounts or invoice state changed
+public record BillsChangedEvent(Set<String> months) {
+}
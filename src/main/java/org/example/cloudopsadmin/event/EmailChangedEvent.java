@@ -0,0 +1,4 @@
+package org.example.cloudopsadmin.event;
+
+public record EmailChangedEvent(Long emailId) {
+}
@@ -0,0 +1,9 @@
+package org.example.cloudopsadmin.exception;
+
+// An export failed after part of the file was sent; see GlobalExceptionHandler
+public class ExportAbortedException extends RuntimeException {
+
+    public ExportAbortedException(Throwable cause) {
+        super("Export aborted after the response was committed", cause);
+    }
+}
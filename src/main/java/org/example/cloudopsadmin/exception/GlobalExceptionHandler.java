@@ -31,6 +31,13 @@ public class GlobalExceptionHandler {
         return ApiResponse.error(400, "Validation failed: " + errors.toString());
     }
 
+    // The download is already partly sent, so no error body can follow it. Rethrowing lets the servlet container
+    // close the connection, and the client sees a failed transfer instead of a truncated file that looks complete.
+    @ExceptionHandler(ExportAbortedException.class)
+    public void handleExportAborted(ExportAbortedException ex) {
+        throw ex;
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiResponse<Void> handleAllExceptions(Exception ex) {
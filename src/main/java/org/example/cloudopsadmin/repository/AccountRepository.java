@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long>, JpaSpecificationExecutor<Account> {
@@ -15,12 +17,18 @@ public interface AccountRepository extends JpaRepository<Account, Long>, JpaSpec
 
     Optional<Account> findByAccountInternalId(String accountInternalId);
 
-    @Query("SELECT a.accountInternalId FROM Account a WHERE a.accountInternalId LIKE :pattern ORDER BY a.accountInternalId DESC LIMIT 1")
-    Optional<String> findLastAccountInternalId(@Param("pattern") String pattern);
-
     int countByBoundCreditCardMasked(String boundCreditCardMasked);
 
     boolean existsByLinkedEmail(org.example.cloudopsadmin.entity.Email linkedEmail);
 
     boolean existsByLinkedEmailAndUidNot(org.example.cloudopsadmin.entity.Email linkedEmail, String uid);
+
+    @Query("SELECT a.uid FROM Account a WHERE a.uid IN :uids")
+    List<String> findExistingUids(@Param("uids") Collection<String> uids);
+
+    @Query("SELECT a.id FROM Account a WHERE a.uid IN :uids")
+    List<Long> findIdsByUidIn(@Param("uids") Collection<String> uids);
+
+    @Query("SELECT a.linkedEmail.id FROM Account a WHERE a.linkedEmail.id IN :emailIds")
+    List<Long> findLinkedEmailIds(@Param("emailIds") Collection<Long> emailIds);
 }
@@ -0,0 +1,35 @@
+package org.example.cloudopsadmin.repository;
+
+import org.example.cloudopsadmin.entity.BillSyncVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface BillSyncVersionRepository extends JpaRepository<BillSyncVersion, String> {
+
+    @Query("SELECT v.version FROM BillSyncVersion v WHERE v.syncKey = :syncKey")
+    Optional<Long> findVersion(@Param("syncKey") String syncKey);
+
+    // Primary-key range scan; the sum of monotonic counters changes whenever any key in the range is bumped
+    @Query(value = "SELECT COALESCE(SUM(version), 0) FROM bill_sync_versions WHERE sync_key BETWEEN :fromKey AND :toKey", nativeQuery = true)
+    long sumVersions(@Param("fromKey") String fromKey, @Param("toKey") String toKey);
+
+    @Query(value = "SELECT version FROM bill_sync_versions WHERE sync_key = :syncKey FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockVersion(@Param("syncKey") String syncKey);
+
+    @Modifying
+    @Query(value = "INSERT INTO bill_sync_versions (sync_key, version, updated_at) VALUES (:syncKey, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1, updated_at = NOW()", nativeQuery = true)
+    int increment(@Param("syncKey") String syncKey);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO bill_sync_versions (sync_key, version, updated_at) VALUES (:syncKey, :version, NOW())", nativeQuery = true)
+    int insertIfAbsent(@Param("syncKey") String syncKey, @Param("version") long version);
+
+    @Modifying
+    @Query(value = "UPDATE bill_sync_versions SET version = :version, updated_at = NOW() WHERE sync_key = :syncKey", nativeQuery = true)
+    int updateVersion(@Param("syncKey") String syncKey, @Param("version") long version);
+}
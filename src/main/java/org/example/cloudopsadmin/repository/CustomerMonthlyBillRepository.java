@@ -1,17 +1,68 @@
 package org.example.cloudopsadmin.repository;
 
+import org.example.cloudopsadmin.common.InvoiceStatus;
 import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 
 
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface CustomerMonthlyBillRepository extends JpaRepository<CustomerMonthlyBill, Long>, JpaSpecificationExecutor<CustomerMonthlyBill> {
-    
+
     @Query("SELECT c.customerName, SUM(b.customerPayableBill), COUNT(DISTINCT b.linkedAccountUid) FROM CustomerMonthlyBill b LEFT JOIN b.customer c WHERE b.month = :month GROUP BY c.customerName")
     List<Object[]> sumPayableByMonth(@Param("month") String month);
-}
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM CustomerMonthlyBill b WHERE b.id = :id")
+    Optional<CustomerMonthlyBill> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT b.month FROM CustomerMonthlyBill b")
+    List<String> findDistinctMonths();
+
+    long countByMonthBetween(String fromMonth, String toMonth);
+
+    @Query("SELECT COUNT(b) FROM CustomerMonthlyBill b WHERE b.month BETWEEN :fromMonth AND :toMonth AND (b.isInvoiced IS NULL OR b.isInvoiced = false)")
+    long countOpenBills(@Param("fromMonth") String fromMonth, @Param("toMonth") String toMonth);
+
+    // Served by idx_cmb_month_uid (month, linked_account_uid)
+    List<CustomerMonthlyBill> findByMonthAndLinkedAccountUidIn(String month, Collection<String> linkedAccountUids);
+
+    // Bulk invoicing: customers with bills in the month and none of them invoiced yet (idx_cmb_month_customer)
+    @Query("SELECT b.customerName FROM CustomerMonthlyBill b WHERE b.month = :month " +
+            "GROUP BY b.customerName HAVING COUNT(b.invoiceId) = 0 ORDER BY b.customerName")
+    List<String> findUninvoicedCustomers(@Param("month") String month);
+
+    List<CustomerMonthlyBill> findByMonthAndCustomerNameInAndInvoiceIdIsNullOrderByCustomerNameAscIdAsc(String month, Collection<String> customerNames);
+
+    // Only claims bills nobody linked in the meantime; callers compare the count with what they expected
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CustomerMonthlyBill b SET b.invoiceId = :invoiceId, b.isInvoiced = true, b.invoiceStatus = :status " +
+            "WHERE b.id IN :billIds AND b.invoiceId IS NULL")
+    int linkToInvoice(@Param("billIds") Collection<Long> billIds, @Param("invoiceId") Long invoiceId, @Param("status") InvoiceStatus status);
+
+    // Bill side of invoice state changes: one statement per transition over idx_cmb_invoice, no per-row load/save.
+    // Callers must not rely on bills already loaded in the same persistence context afterwards.
+    @Query("SELECT DISTINCT b.month FROM CustomerMonthlyBill b WHERE b.invoiceId IN :invoiceIds")
+    Set<String> findMonthsByInvoiceIdIn(@Param("invoiceIds") Collection<Long> invoiceIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CustomerMonthlyBill b SET b.invoiceStatus = :status WHERE b.invoiceId IN :invoiceIds")
+    int updateInvoiceStatus(@Param("invoiceIds") Collection<Long> invoiceIds, @Param("status") InvoiceStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CustomerMonthlyBill b SET b.invoiceStatus = :status, b.isInvoiced = true WHERE b.invoiceId IN :invoiceIds")
+    int markInvoiced(@Param("invoiceIds") Collection<Long> invoiceIds, @Param("status") InvoiceStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CustomerMonthlyBill b SET b.invoiceId = null, b.isInvoiced = false, b.invoiceStatus = :status WHERE b.invoiceId IN :invoiceIds")
+    int detachFromInvoices(@Param("invoiceIds") Collection<Long> invoiceIds, @Param("status") InvoiceStatus status);
+}
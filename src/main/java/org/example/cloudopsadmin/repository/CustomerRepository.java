@@ -6,16 +6,22 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer> {
 
     Optional<Customer> findByCustomerInternalId(String customerInternalId);
 
+    List<Customer> findByCustomerInternalIdIn(Collection<String> customerInternalIds);
+
     boolean existsByEmailIgnoreCase(String email);
 
     boolean existsByCustomerNameIgnoreCase(String customerName);
-    
-    @Query("SELECT c.customerInternalId FROM Customer c WHERE c.customerInternalId LIKE :pattern ORDER BY c.customerInternalId DESC LIMIT 1")
-    Optional<String> findLastCustomerInternalId(@Param("pattern") String pattern);
+
+    Optional<Customer> findFirstByCustomerNameIgnoreCase(String customerName);
+
+    @Query("SELECT c.id, c.customerName FROM Customer c WHERE c.customerName IN :customerNames")
+    List<Object[]> findIdsByCustomerNameIn(@Param("customerNames") Collection<String> customerNames);
 }
@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface EmailRepository extends JpaRepository<Email, Long>, JpaSpecificationExecutor<Email> {
@@ -14,7 +16,8 @@ public interface EmailRepository extends JpaRepository<Email, Long>, JpaSpecific
     Optional<Email> findByEmailInternalId(String emailInternalId);
     boolean existsByEmailAddress(String emailAddress);
     boolean existsByEmailAddressIgnoreCase(String emailAddress);
+    List<Email> findByEmailInternalIdIn(Collection<String> emailInternalIds);
 
-    @Query("SELECT e.emailInternalId FROM Email e WHERE e.emailInternalId LIKE :pattern ORDER BY e.emailInternalId DESC LIMIT 1")
-    Optional<String> findLastEmailInternalId(@Param("pattern") String pattern);
+    @Query("SELECT e FROM Email e WHERE LOWER(e.emailAddress) IN :addresses")
+    List<Email> findByLowerEmailAddressIn(@Param("addresses") Collection<String> addresses);
 }
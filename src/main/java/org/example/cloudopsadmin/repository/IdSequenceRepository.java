@@ -0,0 +1,22 @@
+package org.example.cloudopsadmin.repository;
+
+import org.example.cloudopsadmin.entity.IdSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IdSequenceRepository extends JpaRepository<IdSequence, String> {
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO id_sequences (seq_key, next_value, updated_at) VALUES (:seqKey, :nextValue, NOW())", nativeQuery = true)
+    int insertIfAbsent(@Param("seqKey") String seqKey, @Param("nextValue") long nextValue);
+
+    // Single-statement reservation; the pre-increment value is read back via lastInsertId() on the same connection
+    @Modifying
+    @Query(value = "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + :blockSize), updated_at = NOW() WHERE seq_key = :seqKey", nativeQuery = true)
+    int advance(@Param("seqKey") String seqKey, @Param("blockSize") int blockSize);
+
+    @Query(value = "SELECT LAST_INSERT_ID()", nativeQuery = true)
+    long lastInsertId();
+}
@@ -0,0 +1,66 @@
+package org.example.cloudopsadmin.repository;
+
+import org.example.cloudopsadmin.entity.InvoiceGenerationJob;
+import org.example.cloudopsadmin.entity.InvoiceGenerationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface InvoiceGenerationJobRepository extends JpaRepository<InvoiceGenerationJob, Long> {
+
+    boolean existsByMonthAndStatus(String month, InvoiceGenerationStatus status);
+
+    // Counter updates are increments so concurrent chunks of the same job never overwrite each other
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.processedCustomers = j.processedCustomers + :customers, " +
+            "j.invoicesCreated = j.invoicesCreated + :invoices, j.billsLinked = j.billsLinked + :bills, j.updatedAt = :now " +
+            "WHERE j.id = :id")
+    int addProgress(@Param("id") Long id, @Param("customers") int customers, @Param("invoices") int invoices,
+                    @Param("bills") int bills, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.failedCustomers = j.failedCustomers + :customers, j.lastError = :error, " +
+            "j.updatedAt = :now WHERE j.id = :id")
+    int addFailures(@Param("id") Long id, @Param("customers") int customers, @Param("error") String error,
+                    @Param("now") LocalDateTime now);
+
+    // Only the lease holder may close the job; a coordinator that lost its lease leaves that to the new owner
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.status = :status, j.updatedAt = :now, j.finishedAt = :now, j.leaseUntil = null " +
+            "WHERE j.id = :id AND j.ownerNode = :owner")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") InvoiceGenerationStatus status,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.leaseUntil = :leaseUntil WHERE j.id = :id AND j.ownerNode = :owner " +
+            "AND j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.RUNNING")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Takes over a RUNNING job whose owner stopped renewing its lease; the WHERE clause lets exactly one node win
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.ownerNode = :owner, j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.RUNNING " +
+            "AND (j.leaseUntil IS NULL OR j.leaseUntil < :now)")
+    int claimExpired(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+                     @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.id FROM InvoiceGenerationJob j WHERE j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.RUNNING " +
+            "AND (j.leaseUntil IS NULL OR j.leaseUntil < :now)")
+    List<Long> findExpiredRunning(@Param("now") LocalDateTime now);
+
+    // Resume: failed customers are still un-invoiced and will be retried, so their count starts over.
+    // A FAILED job, or a RUNNING one whose lease has expired, can be restarted; a live one is left to its owner.
+    @Modifying
+    @Query("UPDATE InvoiceGenerationJob j SET j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.RUNNING, " +
+            "j.failedCustomers = 0, j.lastError = null, j.ownerNode = :owner, j.leaseUntil = :leaseUntil, " +
+            "j.updatedAt = :now, j.finishedAt = null " +
+            "WHERE j.id = :id AND (j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.FAILED " +
+            "OR (j.status = org.example.cloudopsadmin.entity.InvoiceGenerationStatus.RUNNING " +
+            "AND (j.leaseUntil IS NULL OR j.leaseUntil < :now)))")
+    int restart(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+                @Param("now") LocalDateTime now);
+}
@@ -1,17 +1,38 @@
 package org.example.cloudopsadmin.repository;
 
+import jakarta.persistence.LockModeType;
+import org.example.cloudopsadmin.common.InvoiceStatus;
 import org.example.cloudopsadmin.entity.Invoice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice> {
-    @Query(
-            value = "SELECT i.payment_reference FROM invoices i WHERE i.payment_reference LIKE :pattern ORDER BY i.payment_reference DESC LIMIT 1",
-            nativeQuery = true
-    )
-    Optional<String> findLastPaymentReference(@Param("pattern") String pattern);
+    // Served by idx_inv_payment_reference
+    @Query("SELECT i.paymentReference FROM Invoice i WHERE i.paymentReference IN :references")
+    List<String> findPaymentReferencesIn(@Param("references") Collection<String> references);
+
+    // Served by idx_inv_payment_reference
+    @Query("SELECT i.paymentReference FROM Invoice i WHERE i.paymentReference IN :references AND i.id NOT IN :excludeIds")
+    List<String> findPaymentReferencesInUse(@Param("references") Collection<String> references,
+                                            @Param("excludeIds") Collection<Long> excludeIds);
+
+    // Single-invoice transitions lock the row first, so two posts of the same draft reserve one number between them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Invoice i WHERE i.id = :id")
+    Optional<Invoice> findByIdForUpdate(@Param("id") Long id);
+
+    // Locked so a concurrent single post/reset of the same invoice (findByIdForUpdate) waits for the batch
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Invoice i WHERE i.status = :status AND i.invoiceDate >= :from AND i.invoiceDate < :to ORDER BY i.id")
+    List<Invoice> findForUpdateByStatusAndInvoiceDate(@Param("status") InvoiceStatus status,
+                                                     @Param("from") LocalDate from,
+                                                     @Param("to") LocalDate to);
 }
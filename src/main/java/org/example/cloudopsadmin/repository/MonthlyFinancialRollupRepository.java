@@ -0,0 +1,55 @@
+package org.example.cloudopsadmin.repository;
+
+import org.example.cloudopsadmin.entity.MonthlyFinancialRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MonthlyFinancialRollupRepository extends JpaRepository<MonthlyFinancialRollup, Long> {
+
+    interface VendorMonthTotals {
+        String getMonth();
+        String getCloudVendor();
+        Double getRevenue();
+        Double getCustomerPayable();
+        Double getCost();
+        Double getProfit();
+    }
+
+    interface CustomerTotals {
+        String getCustomerName();
+        Double getRevenue();
+        Double getCustomerPayable();
+        Double getCost();
+        Double getProfit();
+    }
+
+    // month is yyyy-MM, so a string range covers a month, quarter or year
+    @Query("SELECT r.month AS month, r.cloudVendor AS cloudVendor, SUM(r.revenue) AS revenue, SUM(r.customerPayable) AS customerPayable, " +
+            "SUM(r.cost) AS cost, SUM(r.profit) AS profit FROM MonthlyFinancialRollup r " +
+            "WHERE r.month BETWEEN :fromMonth AND :toMonth GROUP BY r.month, r.cloudVendor")
+    List<VendorMonthTotals> sumByMonthAndVendor(@Param("fromMonth") String fromMonth, @Param("toMonth") String toMonth);
+
+    @Query("SELECT r.customerName AS customerName, SUM(r.revenue) AS revenue, SUM(r.customerPayable) AS customerPayable, " +
+            "SUM(r.cost) AS cost, SUM(r.profit) AS profit FROM MonthlyFinancialRollup r " +
+            "WHERE r.month BETWEEN :fromMonth AND :toMonth GROUP BY r.customerName")
+    List<CustomerTotals> sumByCustomer(@Param("fromMonth") String fromMonth, @Param("toMonth") String toMonth);
+
+    @Modifying
+    @Query(value = "INSERT INTO monthly_financial_rollups (month, cloud_vendor, customer_name, revenue, customer_payable, cost, profit, bill_count, updated_at) " +
+            "VALUES (:month, :cloudVendor, :customerName, :revenue, :customerPayable, :cost, :profit, :billCount, NOW()) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), customer_payable = customer_payable + VALUES(customer_payable), " +
+            "cost = cost + VALUES(cost), profit = profit + VALUES(profit), bill_count = bill_count + VALUES(bill_count), updated_at = NOW()",
+            nativeQuery = true)
+    int applyDelta(@Param("month") String month,
+                   @Param("cloudVendor") String cloudVendor,
+                   @Param("customerName") String customerName,
+                   @Param("revenue") double revenue,
+                   @Param("customerPayable") double customerPayable,
+                   @Param("cost") double cost,
+                   @Param("profit") double profit,
+                   @Param("billCount") long billCount);
+}
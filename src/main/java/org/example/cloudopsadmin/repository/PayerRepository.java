@@ -4,10 +4,14 @@ import org.example.cloudopsadmin.entity.Payer;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PayerRepository extends JpaRepository<Payer, Long>, JpaSpecificationExecutor<Payer> {
     Optional<Payer> findByPayerId(String payerId);
     Optional<Payer> findByPayerInternalId(String payerInternalId);
     boolean existsByPayerId(String payerId);
+    List<Payer> findByPayerInternalIdIn(Collection<String> payerInternalIds);
+    List<Payer> findByPayerIdIn(Collection<String> payerIds);
 }
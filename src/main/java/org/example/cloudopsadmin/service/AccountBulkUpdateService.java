@@ -0,0 +1,288 @@
+package org.example.cloudopsadmin.service;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.entity.Account;
+import org.example.cloudopsadmin.entity.Customer;
+import org.example.cloudopsadmin.entity.Payer;
+import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.AccountsChangedEvent;
+import org.example.cloudopsadmin.repository.AccountRepository;
+import org.example.cloudopsadmin.repository.CustomerRepository;
+import org.example.cloudopsadmin.repository.PayerRepository;
+import org.example.cloudopsadmin.service.AccountService.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Mass edits (move to a payer, change discounts, relabel) as a handful of set-based statements instead of
+// one updateAccount round trip per account. Field rules match updateAccount; one audit entry per call.
+@Service
+@RequiredArgsConstructor
+public class AccountBulkUpdateService {
+
+    private static final int ID_CHUNK = 1000;
+
+    private static final String ADD_LABEL =
+            "INSERT INTO account_labels (account_id, label) " +
+            "SELECT a.id, :label FROM accounts a WHERE a.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM account_labels l WHERE l.account_id = a.id AND l.label = :label)";
+    private static final String REMOVE_LABELS =
+            "DELETE FROM account_labels WHERE account_id IN (:ids) AND label IN (:labels)";
+
+    private final AccountService accountService;
+    private final AccountRepository accountRepository;
+    private final PayerRepository payerRepository;
+    private final CustomerRepository customerRepository;
+    private final OperationLogService operationLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Value("${account.bulk-update.max-accounts:5000}")
+    private int maxAccounts;
+
+    @Transactional
+    public Map<String, Object> bulkUpdate(BulkUpdateAccountsRequest request, User operator) {
+        accountService.requireAccountManagePermission();
+
+        AccountPatch patch = request.getPatch();
+        if (patch == null) {
+            throw new ApiException(400, "patch 必填");
+        }
+        Map<String, Object> assignments = resolveAssignments(patch);
+        List<String> addLabels = normalizeLabels(patch.getAddLabels());
+        List<String> removeLabels = normalizeLabels(patch.getRemoveLabels());
+        if (assignments.isEmpty() && addLabels.isEmpty() && removeLabels.isEmpty()) {
+            throw new ApiException(400, "patch 中没有可更新的字段");
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        List<Long> ids = resolveTargets(request, data);
+        if (ids.size() > maxAccounts) {
+            throw new ApiException(400, "单次最多批量更新 " + maxAccounts + " 个账号，当前匹配 " + ids.size() + " 个");
+        }
+
+        int updated = 0;
+        int labelsAdded = 0;
+        int labelsRemoved = 0;
+        for (int from = 0; from < ids.size(); from += ID_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_CHUNK, ids.size()));
+            if (!assignments.isEmpty()) {
+                CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+                CriteriaUpdate<Account> update = cb.createCriteriaUpdate(Account.class);
+                Root<Account> root = update.from(Account.class);
+                assignments.forEach(update::set);
+                update.where(root.get("id").in(chunk));
+                updated += entityManager.createQuery(update).executeUpdate();
+            }
+            for (String label : addLabels) {
+                labelsAdded += namedParameterJdbcTemplate.update(ADD_LABEL,
+                        new MapSqlParameterSource("ids", chunk).addValue("label", label));
+            }
+            if (!removeLabels.isEmpty()) {
+                labelsRemoved += namedParameterJdbcTemplate.update(REMOVE_LABELS,
+                        new MapSqlParameterSource("ids", chunk).addValue("labels", removeLabels));
+            }
+        }
+        // Bulk statements bypass the persistence context; drop anything loaded before them
+        entityManager.clear();
+
+        if (!ids.isEmpty() && !assignments.isEmpty()) {
+            eventPublisher.publishEvent(new AccountsChangedEvent(ids));
+        }
+
+        if (operator != null && !ids.isEmpty()) {
+            List<String> fields = new ArrayList<>(assignments.keySet());
+            if (!addLabels.isEmpty()) fields.add("+labels" + addLabels);
+            if (!removeLabels.isEmpty()) fields.add("-labels" + removeLabels);
+            // Recorded in the same transaction as the bulk statements
+            operationLogService.logAtomic(
+                    operator.getEmail(),
+                    operator.getName(),
+                    "BULK_UPDATE",
+                    "account",
+                    null,
+                    "批量更新账号 " + ids.size() + " 个: " + String.join(", ", fields)
+            );
+        }
+
+        data.put("matched", ids.size());
+        data.put("updated", assignments.isEmpty() ? 0 : updated);
+        data.put("labels_added", labelsAdded);
+        data.put("labels_removed", labelsRemoved);
+        return data;
+    }
+
+    private Map<String, Object> resolveAssignments(AccountPatch patch) {
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        if (StringUtils.hasText(patch.getPayerId())) {
+            String payerId = patch.getPayerId().trim();
+            Payer payer = payerRepository.findByPayerInternalId(payerId)
+                    .orElseGet(() -> payerRepository.findByPayerId(payerId)
+                            .orElseThrow(() -> new ApiException(1002, "关联的 Payer 不存在")));
+            assignments.put("payer", payer);
+        }
+        if (StringUtils.hasText(patch.getCustomerId())) {
+            Customer customer = customerRepository.findByCustomerInternalId(patch.getCustomerId().trim())
+                    .orElseThrow(() -> new ApiException(1003, "关联的 Customer 不存在"));
+            accountService.validateCustomerUsable(customer);
+            assignments.put("customer", customer);
+        }
+        if (patch.getRiskDiscount() != null) {
+            accountService.validatePercentage(patch.getRiskDiscount(), "risk_discount");
+            assignments.put("riskDiscount", patch.getRiskDiscount());
+        }
+        if (patch.getCostDiscount() != null) {
+            accountService.validatePercentage(patch.getCostDiscount(), "cost_discount");
+            assignments.put("costDiscount", patch.getCostDiscount());
+        }
+        if (StringUtils.hasText(patch.getAccountSource())) {
+            assignments.put("accountSource", patch.getAccountSource().trim());
+        }
+        if (StringUtils.hasText(patch.getAccountAttribution())) {
+            assignments.put("accountAttribution", patch.getAccountAttribution().trim());
+        }
+        if (StringUtils.hasText(patch.getMonitorBillGroup())) {
+            assignments.put("monitorBillGroup", patch.getMonitorBillGroup().trim());
+        }
+        if (patch.getIsSubmitted() != null) {
+            assignments.put("isSubmitted", patch.getIsSubmitted());
+        }
+        if (patch.getIsNew() != null) {
+            assignments.put("isNew", patch.getIsNew());
+        }
+        if (patch.getSendPo() != null) {
+            assignments.put("sendPo", patch.getSendPo());
+        }
+        if (patch.getRemarks() != null) {
+            assignments.put("remarks", patch.getRemarks());
+        }
+        return assignments;
+    }
+
+    private List<Long> resolveTargets(BulkUpdateAccountsRequest request, Map<String, Object> data) {
+        if (request.getUids() != null && !request.getUids().isEmpty()) {
+            Set<String> uids = request.getUids().stream()
+                    .filter(StringUtils::hasText)
+                    .map(String::trim)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (uids.size() > maxAccounts) {
+                throw new ApiException(400, "单次最多批量更新 " + maxAccounts + " 个账号");
+            }
+            List<Long> ids = uids.isEmpty() ? List.of() : accountRepository.findIdsByUidIn(uids);
+            if (ids.size() < uids.size()) {
+                Set<String> missing = new LinkedHashSet<>(uids);
+                missing.removeAll(accountRepository.findExistingUids(uids));
+                data.put("not_found", missing);
+            }
+            return ids;
+        }
+
+        AccountFilter filter = request.getFilter();
+        if (filter == null || !filter.hasCriteria()) {
+            // Refuse an unfiltered request rather than silently patching every account
+            throw new ApiException(400, "uids 或 filter 必填其一");
+        }
+        Specification<Account> spec = accountService.accountFilter(filter.getSearch(), filter.getVendor(),
+                filter.getAccountType(), filter.getAccountSource(), filter.getLabel());
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Account> root = query.from(Account.class);
+        query.select(root.get("id")).where(spec.toPredicate(root, query, cb));
+        return entityManager.createQuery(query).setMaxResults(maxAccounts + 1).getResultList();
+    }
+
+    private List<String> normalizeLabels(List<String> labels) {
+        if (labels == null) {
+            return List.of();
+        }
+        return labels.stream()
+                .filter(StringUtils::hasText)
+                .map(String::trim)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Data
+    @Schema(description = "Bulk Update Accounts Request")
+    public static class BulkUpdateAccountsRequest {
+        @Schema(description = "Target account UIDs; takes precedence over filter")
+        private List<String> uids;
+
+        @Schema(description = "Same filters as the account list")
+        private AccountFilter filter;
+
+        private AccountPatch patch;
+    }
+
+    @Data
+    public static class AccountFilter {
+        private String search;
+        private String vendor;
+        private String account_type;
+        private String account_source;
+        private String label;
+
+        public String getSearch() { return search; }
+        public String getVendor() { return vendor; }
+        public String getAccountType() { return account_type; }
+        public String getAccountSource() { return account_source; }
+        public String getLabel() { return label; }
+
+        boolean hasCriteria() {
+            return StringUtils.hasText(search) || StringUtils.hasText(vendor) || StringUtils.hasText(account_type)
+                    || StringUtils.hasText(account_source) || StringUtils.hasText(label);
+        }
+    }
+
+    @Data
+    public static class AccountPatch {
+        private String payer_id;
+        private String customer_id;
+        private Double risk_discount;
+        private Double cost_discount;
+        private String account_source;
+        private String account_attribution;
+        private String monitor_bill_group;
+        private Boolean is_submitted;
+        private Boolean is_new;
+        private Boolean send_po;
+        private String remarks;
+        private List<String> add_labels;
+        private List<String> remove_labels;
+
+        public String getPayerId() { return payer_id; }
+        public String getCustomerId() { return customer_id; }
+        public Double getRiskDiscount() { return risk_discount; }
+        public Double getCostDiscount() { return cost_discount; }
+        public String getAccountSource() { return account_source; }
+        public String getAccountAttribution() { return account_attribution; }
+        public String getMonitorBillGroup() { return monitor_bill_group; }
+        public Boolean getIsSubmitted() { return is_submitted; }
+        public Boolean getIsNew() { return is_new; }
+        public Boolean getSendPo() { return send_po; }
+        public String getRemarks() { return remarks; }
+        public List<String> getAddLabels() { return add_labels; }
+        public List<String> getRemoveLabels() { return remove_labels; }
+    }
+}
@@ -0,0 +1,357 @@
+package org.example.cloudopsadmin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.CsvReader;
+import org.example.cloudopsadmin.entity.Account;
+import org.example.cloudopsadmin.entity.Customer;
+import org.example.cloudopsadmin.entity.Email;
+import org.example.cloudopsadmin.entity.Payer;
+import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.AccountsChangedEvent;
+import org.example.cloudopsadmin.repository.AccountRepository;
+import org.example.cloudopsadmin.repository.CustomerRepository;
+import org.example.cloudopsadmin.repository.EmailRepository;
+import org.example.cloudopsadmin.repository.PayerRepository;
+import org.example.cloudopsadmin.service.AccountService.AddAccountRequest;
+import org.example.cloudopsadmin.service.AccountService.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// CSV counterpart of AccountService.addAccount. Rows are validated with the same rules, but lookups are
+// done once per chunk with IN queries and each chunk is written with batched inserts in one transaction.
+@Service
+@RequiredArgsConstructor
+public class AccountImportService {
+
+    private final AccountService accountService;
+    private final AccountRepository accountRepository;
+    private final PayerRepository payerRepository;
+    private final CustomerRepository customerRepository;
+    private final EmailRepository emailRepository;
+    private final OperationLogService operationLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AccountImportService.class);
+
+    @Value("${account.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${account.import.max-rows:20000}")
+    private int maxRows;
+
+    // Reads the upload twice: chunks commit as they go, so the row limit is checked by a counting pass before any write
+    public Map<String, Object> importCsv(InputStreamSource source, User operator) throws IOException {
+        accountService.requireAccountManagePermission();
+
+        int rows = countRows(source);
+        if (rows > maxRows) {
+            throw new IllegalArgumentException("单次导入不能超过 " + maxRows + " 行，当前文件 " + rows + " 行");
+        }
+
+        ImportReport report = new ImportReport();
+        try (CsvReader csv = open(source)) {
+            List<String> header = csv.next();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV 文件为空");
+            }
+            List<String> columns = header.stream()
+                    .map(h -> h.trim().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toList());
+            if (!columns.contains("uid")) {
+                throw new IllegalArgumentException("CSV 缺少 uid 列");
+            }
+
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.stream().noneMatch(StringUtils::hasText)) {
+                    continue;
+                }
+                report.total++;
+                chunk.add(toRow(csv.getRecordLine(), columns, record, report));
+                if (chunk.size() >= batchSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, report);
+        }
+
+        if (operator != null && report.imported > 0) {
+            operationLogService.log(
+                    operator.getEmail(),
+                    operator.getName(),
+                    "IMPORT",
+                    "account",
+                    null,
+                    "批量导入账号: 成功 " + report.imported + " 条, 失败 " + report.errors.size() + " 条"
+            );
+        }
+        log.info("Account CSV import finished. total={}, imported={}, failed={}", report.total, report.imported, report.errors.size());
+        return report.toMap();
+    }
+
+    private static CsvReader open(InputStreamSource source) throws IOException {
+        return new CsvReader(new BufferedReader(new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    // Non-blank data records, counted the same way as the import loop (quoted newlines do not start a record)
+    private static int countRows(InputStreamSource source) throws IOException {
+        int rows = 0;
+        try (CsvReader csv = open(source)) {
+            if (csv.next() == null) {
+                return 0;
+            }
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.stream().anyMatch(StringUtils::hasText)) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private ImportRow toRow(int line, List<String> columns, List<String> record, ImportReport report) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < columns.size() && i < record.size(); i++) {
+            String value = record.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if ("labels".equals(columns.get(i))) {
+                values.put("labels", Arrays.stream(value.split("[;|]"))
+                        .map(String::trim)
+                        .filter(StringUtils::hasText)
+                        .collect(Collectors.toList()));
+            } else {
+                values.put(columns.get(i), value);
+            }
+        }
+        ImportRow row = new ImportRow(line, (String) values.get("uid"));
+        try {
+            // Same binding as the JSON body of addAccount, including aliases and "true"/"12.5" coercion
+            row.request = objectMapper.convertValue(values, AddAccountRequest.class);
+        } catch (IllegalArgumentException e) {
+            report.fail(row, 400, "字段格式错误: " + e.getMessage());
+        }
+        return row;
+    }
+
+    private void importChunk(List<ImportRow> rows, ImportReport report) {
+        List<ImportRow> pending = rows.stream().filter(r -> r.request != null).collect(Collectors.toList());
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Integer saved = transactionTemplate.execute(status -> writeChunk(pending));
+            report.imported += saved == null ? 0 : saved;
+            for (ImportRow row : pending) {
+                if (row.error != null) {
+                    report.fail(row, row.error.getCode(), row.error.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            if (pending.size() == 1) {
+                report.fail(pending.get(0), 500, "写入失败: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                return;
+            }
+            // A constraint hit somewhere in the batch: retry row by row so only the offending rows are reported
+            log.warn("Account import chunk of {} rows failed, retrying row by row", pending.size(), e);
+            for (ImportRow row : pending) {
+                row.error = null;
+                importChunk(List.of(row), report);
+            }
+        }
+    }
+
+    // Earlier chunks are already committed, so the IN lookups below also see rows imported a moment ago
+    private int writeChunk(List<ImportRow> rows) {
+        Set<String> uids = rows.stream().map(r -> r.uid).filter(StringUtils::hasText).map(String::trim).collect(Collectors.toSet());
+        Set<String> payerKeys = new HashSet<>();
+        Set<String> customerIds = new HashSet<>();
+        Set<String> emailIds = new HashSet<>();
+        Set<String> addresses = new HashSet<>();
+        for (ImportRow row : rows) {
+            AddAccountRequest request = row.request;
+            if (StringUtils.hasText(request.getPayerId())) payerKeys.add(request.getPayerId().trim());
+            if (StringUtils.hasText(request.getCustomerId())) customerIds.add(request.getCustomerId());
+            if (StringUtils.hasText(request.getEmailId())) {
+                emailIds.add(request.getEmailId());
+            } else {
+                String address = accountService.pickEmailAddress(request);
+                if (address != null) addresses.add(address.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        Set<String> existingUids = uids.isEmpty() ? Set.of() : new HashSet<>(accountRepository.findExistingUids(uids));
+        Map<String, Payer> payersByInternalId = new HashMap<>();
+        Map<String, Payer> payersByPayerId = new HashMap<>();
+        if (!payerKeys.isEmpty()) {
+            payerRepository.findByPayerInternalIdIn(payerKeys).forEach(p -> payersByInternalId.put(p.getPayerInternalId(), p));
+            payerRepository.findByPayerIdIn(payerKeys).forEach(p -> payersByPayerId.put(p.getPayerId(), p));
+        }
+        Map<String, Customer> customers = customerIds.isEmpty() ? Map.of() : customerRepository.findByCustomerInternalIdIn(customerIds)
+                .stream().collect(Collectors.toMap(Customer::getCustomerInternalId, c -> c));
+        Map<String, Email> emailsById = emailIds.isEmpty() ? Map.of() : emailRepository.findByEmailInternalIdIn(emailIds)
+                .stream().collect(Collectors.toMap(Email::getEmailInternalId, e -> e));
+        Map<String, Email> emailsByAddress = addresses.isEmpty() ? new HashMap<>() : emailRepository.findByLowerEmailAddressIn(addresses)
+                .stream().collect(Collectors.toMap(e -> e.getEmailAddress().toLowerCase(Locale.ROOT), e -> e, (a, b) -> a, HashMap::new));
+        Set<Long> boundEmailIds = new HashSet<>();
+        List<Long> knownEmailIds = new ArrayList<>();
+        emailsById.values().forEach(e -> knownEmailIds.add(e.getId()));
+        emailsByAddress.values().forEach(e -> knownEmailIds.add(e.getId()));
+        if (!knownEmailIds.isEmpty()) {
+            boundEmailIds.addAll(accountRepository.findLinkedEmailIds(knownEmailIds));
+        }
+
+        // Auto-created emails get an unknowable random password; one hash per chunk keeps BCrypt off the per-row path
+        String placeholderPassword = null;
+        Set<String> chunkUids = new HashSet<>();
+        Set<String> chunkEmails = new HashSet<>();
+        List<Email> newEmails = new ArrayList<>();
+        List<Account> accounts = new ArrayList<>();
+        for (ImportRow row : rows) {
+            String chunkEmailKey = null;
+            Email created = null;
+            try {
+                AddAccountRequest request = row.request;
+                String uid = accountService.requireUid(request);
+                if (existingUids.contains(uid) || !chunkUids.add(uid)) {
+                    throw new ApiException(1001, "UID 已存在");
+                }
+                Account account = accountService.buildAccount(request, uid);
+
+                String payerId = request.getPayerId().trim();
+                Payer payer = payersByInternalId.getOrDefault(payerId, payersByPayerId.get(payerId));
+                if (payer == null) {
+                    throw new ApiException(1002, "关联的 Payer 不存在");
+                }
+
+                Customer customer = null;
+                if (StringUtils.hasText(request.getCustomerId())) {
+                    customer = customers.get(request.getCustomerId());
+                    if (customer == null) {
+                        throw new ApiException(1003, "关联的 Customer 不存在");
+                    }
+                    accountService.validateCustomerUsable(customer);
+                }
+
+                Email email = null;
+                if (StringUtils.hasText(request.getEmailId())) {
+                    email = emailsById.get(request.getEmailId());
+                    if (email == null) {
+                        throw new ApiException(1004, "关联的 Email 不存在");
+                    }
+                } else {
+                    String address = accountService.pickEmailAddress(request);
+                    if (address != null) {
+                        email = emailsByAddress.get(address.toLowerCase(Locale.ROOT));
+                        if (email == null) {
+                            if (placeholderPassword == null) {
+                                placeholderPassword = accountService.encodeRandomPassword();
+                            }
+                            created = accountService.newApiEmail(address, payer, uid, placeholderPassword);
+                            email = created;
+                        }
+                    }
+                }
+                if (email != null) {
+                    if (created == null) {
+                        accountService.validateEmailUsable(email);
+                    }
+                    String emailKey = email.getEmailAddress().toLowerCase(Locale.ROOT);
+                    if ((email.getId() != null && boundEmailIds.contains(email.getId())) || !chunkEmails.add(emailKey)) {
+                        throw new ApiException(1004, "该邮箱已被其他账号绑定");
+                    }
+                    email.setLinkedAccountName(account.getAccountName());
+                    email.setLinkedAccountUid(uid);
+                    chunkEmailKey = emailKey;
+                }
+
+                account.setPayer(payer);
+                account.setCustomer(customer);
+                account.setLinkedEmail(email);
+                if (created != null) {
+                    newEmails.add(created);
+                    // A later row in this chunk naming the same address resolves to the new email and fails as bound
+                    emailsByAddress.put(chunkEmailKey, created);
+                }
+                accounts.add(account);
+            } catch (ApiException e) {
+                row.error = e;
+            }
+        }
+
+        emailRepository.saveAll(newEmails);
+        accountRepository.saveAll(accounts);
+        entityManager.flush();
+
+        List<Long> accountIds = accounts.stream().map(Account::getId).collect(Collectors.toList());
+        if (!accountIds.isEmpty()) {
+            eventPublisher.publishEvent(new AccountsChangedEvent(accountIds));
+        }
+        return accounts.size();
+    }
+
+    private static class ImportRow {
+        final int line;
+        final String uid;
+        AddAccountRequest request;
+        ApiException error;
+
+        ImportRow(int line, String uid) {
+            this.line = line;
+            this.uid = uid;
+        }
+    }
+
+    private static class ImportReport {
+        int total;
+        int imported;
+        final List<Map<String, Object>> errors = new ArrayList<>();
+
+        void fail(ImportRow row, int code, String message) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("line", row.line);
+            error.put("uid", row.uid);
+            error.put("code", code);
+            error.put("message", message);
+            errors.add(error);
+        }
+
+        Map<String, Object> toMap() {
+            errors.sort((a, b) -> Integer.compare((Integer) a.get("line"), (Integer) b.get("line")));
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("total", total);
+            data.put("imported", imported);
+            data.put("failed", errors.size());
+            data.put("errors", errors);
+            return data;
+        }
+    }
+}
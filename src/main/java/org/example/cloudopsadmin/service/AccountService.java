@@ -5,11 +5,13 @@ import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.Account;
 import org.example.cloudopsadmin.entity.Customer;
 import org.example.cloudopsadmin.entity.Email;
 import org.example.cloudopsadmin.entity.Payer;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.AccountChangedEvent;
 import org.example.cloudopsadmin.repository.AccountRepository;
 import org.example.cloudopsadmin.repository.CustomerRepository;
 import org.example.cloudopsadmin.repository.EmailRepository;
@@ -25,6 +27,7 @@ import jakarta.persistence.criteria.Predicate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -35,13 +38,12 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 @Service
@@ -56,6 +58,10 @@ public class AccountService {
     private final EmailRepository emailRepository;
     private final PasswordEncoder passwordEncoder;
     private final OperationLogService operationLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdAllocationService idAllocationService;
+    private final SearchIndexService searchIndexService;
+    private final KeysetPager keysetPager;
 
     @Value("${jwt.secret}")
     private String encryptionSecret;
@@ -64,9 +70,29 @@ public class AccountService {
         Sort sort = Sort.by(Sort.Direction.fromString(sortOrder), StringUtils.hasText(sortBy) ? sortBy : "createdAt");
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<Account> spec = (root, query, cb) -> {
+        return accountRepository.findAll(accountFilter(search, vendor, accountCategory, accountSource, label), pageable);
+    }
+
+    public CursorPage<Account> getAccountListByCursor(String cursor, int pageSize, String search, String vendor, String accountCategory,
+                                                      String accountSource, String label, String sortBy, String sortOrder,
+                                                      CursorPage.CountMode countMode) {
+        boolean filtered = StringUtils.hasText(search) || StringUtils.hasText(vendor) || StringUtils.hasText(accountCategory)
+                || StringUtils.hasText(accountSource) || StringUtils.hasText(label);
+        return keysetPager.fetch(accountRepository, accountFilter(search, vendor, accountCategory, accountSource, label),
+                StringUtils.hasText(sortBy) ? sortBy : "createdAt", Sort.Direction.fromString(sortOrder), cursor, pageSize,
+                countMode, "accounts", filtered);
+    }
+
+    // List filters, shared with the bulk update so "apply to the current filter" hits exactly the listed accounts
+    Specification<Account> accountFilter(String search, String vendor, String accountCategory, String accountSource, String label) {
+        Set<Long> searchIds = StringUtils.hasText(search) ? searchIndexService.candidates(SearchIndexService.Kind.ACCOUNT, search.trim()) : null;
+        return (root, query, cb) -> {
             List<Predicate> predicates = new java.util.ArrayList<>();
 
+            if (searchIds != null) {
+                predicates.add(searchIds.isEmpty() ? cb.disjunction() : root.get("id").in(searchIds));
+            }
+
             if (StringUtils.hasText(search)) {
                 String likePattern = "%" + search.trim() + "%";
                 Predicate nameLike = cb.like(root.get("accountName"), likePattern);
@@ -93,8 +119,6 @@ public class AccountService {
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
-
-        return accountRepository.findAll(spec, pageable);
     }
 
     public static final String SP_ACCOUNT_CATEGORY = "SP Account";
@@ -103,42 +127,12 @@ public class AccountService {
         Sort sort = Sort.by(Sort.Direction.fromString(sortOrder), StringUtils.hasText(sortBy) ? sortBy : "createdAt");
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<Account> spec = (root, query, cb) -> {
-            List<Predicate> predicates = new java.util.ArrayList<>();
-
-            // Filter for SP accounts: isMonitoredSp is true OR accountCategory is "SP Account"
-            Predicate isSpFlag = cb.equal(root.get("isMonitoredSp"), true);
-            Predicate isSpCategory = cb.equal(root.get("accountCategory"), SP_ACCOUNT_CATEGORY);
-            predicates.add(cb.or(isSpFlag, isSpCategory));
-
-            if (StringUtils.hasText(search)) {
-                String likePattern = "%" + search.trim() + "%";
-                Predicate nameLike = cb.like(root.get("accountName"), likePattern);
-                Predicate uidLike = cb.like(root.get("uid"), likePattern);
-                Predicate internalIdLike = cb.like(root.get("accountInternalId"), likePattern);
-                predicates.add(cb.or(nameLike, uidLike, internalIdLike));
-            }
-
-            if (StringUtils.hasText(vendor)) {
-                predicates.add(cb.equal(root.get("accountType"), vendor));
-            }
-
-            if (StringUtils.hasText(accountCategory)) {
-                predicates.add(cb.equal(root.get("accountCategory"), accountCategory));
-            }
-
-            if (StringUtils.hasText(accountSource)) {
-                predicates.add(cb.equal(root.get("accountSource"), accountSource));
-            }
+        // Filter for SP accounts: isMonitoredSp is true OR accountCategory is "SP Account"
+        Specification<Account> spOnly = (root, query, cb) -> cb.or(
+                cb.equal(root.get("isMonitoredSp"), true),
+                cb.equal(root.get("accountCategory"), SP_ACCOUNT_CATEGORY));
 
-            if (StringUtils.hasText(label)) {
-                predicates.add(cb.isMember(label, root.get("labels")));
-            }
-
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
-
-        return accountRepository.findAll(spec, pageable);
+        return accountRepository.findAll(spOnly.and(accountFilter(search, vendor, accountCategory, accountSource, label)), pageable);
     }
 
     @Transactional(readOnly = true)
@@ -345,7 +339,7 @@ public class AccountService {
                      email.setStatus("active");
                      if (account.getPayer() != null) email.setPayer(account.getPayer());
                      email.setLinkedAccountUid(uid);
-                     email.setEmailInternalId(generateEmailInternalId());
+                     email.setEmailInternalId(idAllocationService.nextEmailInternalId());
                      email = emailRepository.save(email);
                  }
              }
@@ -360,6 +354,7 @@ public class AccountService {
         }
 
         Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(new AccountChangedEvent(saved.getId()));
 
         if (operator != null) {
             operationLogService.log(
@@ -380,19 +375,12 @@ public class AccountService {
     public Map<String, Object> addAccount(AddAccountRequest request, User operator) {
         requireAccountManagePermission();
 
-        String uid = requireText(request.getUid(), "uid");
-        if (uid.length() > 64) {
-            throw new ApiException(400, "UID 长度不能超过 64");
-        }
-
+        String uid = requireUid(request);
         if (accountRepository.existsByUid(uid)) {
             throw new ApiException(1001, "UID 已存在");
         }
 
-        Double riskDiscount = requireNumber(request.getRiskDiscount(), "risk_discount");
-        Double costDiscount = requireNumber(request.getCostDiscount(), "cost_discount");
-        validatePercentage(riskDiscount, "risk_discount");
-        validatePercentage(costDiscount, "cost_discount");
+        Account account = buildAccount(request, uid);
 
         String payerId = requireText(request.getPayerId(), "payer_id");
         Payer payer = payerRepository.findByPayerInternalId(payerId)
@@ -403,73 +391,17 @@ public class AccountService {
         if (StringUtils.hasText(request.getCustomerId())) {
             customer = customerRepository.findByCustomerInternalId(request.getCustomerId())
                     .orElseThrow(() -> new ApiException(1003, "关联的 Customer 不存在"));
-            if (!isActive(customer.getStatus())) {
-                throw new ApiException(1003, "关联的 Customer 状态异常");
-            }
+            validateCustomerUsable(customer);
         }
 
         Email email = resolveEmailAssociation(request, payer, uid);
 
-        String monitorEmail = requireText(request.getMonitorEmail(), "monitor_email");
-        String boundEmail = requireText(request.getBoundEmail(), "bound_email");
-
-        String accountName = requireText(request.getAccountName(), "account_name");
-        
-        // Fix mapping: request.vendor -> accountType (DB), request.account_type -> accountCategory (DB)
-        String accountType = requireText(request.getVendor(), "vendor"); 
-        String accountCategory = requireText(request.getAccountType(), "account_type");
-        
-        String accountSource = requireText(request.getAccountSource(), "account_source");
-        String accountAttribution = requireText(request.getAccountAttribution(), "account_attribution");
-        Boolean isMonitoredSp = requireBoolean(request.getIsMonitoredSp(), "is_monitored_sp");
-        String monitorBillGroup = requireText(request.getMonitorBillGroup(), "monitor_bill_group");
-
-        String monitorUrl = sanitizeUrl(request.getMonitorUrl());
-        if (!StringUtils.hasText(monitorUrl)) {
-            if (AWS_ACCOUNT_ID_PATTERN.matcher(uid).matches()) {
-                monitorUrl = buildAwsSigninUrl(uid);
-            } else {
-                throw new ApiException(400, "monitor_url 必填（非 12 位 UID 无法自动生成）");
-            }
-        } else if (AWS_ACCOUNT_ID_PATTERN.matcher(uid).matches()) {
-            monitorUrl = buildAwsSigninUrl(uid);
-        }
-
-        Account account = new Account();
-        account.setAccountInternalId(generateAccountInternalId());
-        account.setUid(uid);
-        account.setMonitorEmail(monitorEmail);
-        account.setMonitorUrl(monitorUrl);
-        account.setAccountName(accountName);
-        account.setAccountType(accountType);
-        account.setAccountCategory(accountCategory);
-        if (SP_ACCOUNT_CATEGORY.equals(accountCategory)) {
-            isMonitoredSp = true;
-        }
-        account.setMfaStatus(request.getMfaStatus());
-        account.setAccountSource(accountSource);
-        account.setAccountAttribution(accountAttribution);
-        account.setIsMonitoredSp(isMonitoredSp);
-        account.setMonitorBillGroup(monitorBillGroup);
-        account.setSendPo(request.getSendPo());
-        account.setBoundEmail(boundEmail);
-        account.setRiskDiscount(riskDiscount);
-        account.setCostDiscount(costDiscount);
-        account.setRemarks(request.getRemarks());
-        account.setIsSubmitted(request.getIsSubmitted() != null ? request.getIsSubmitted() : false);
-        account.setIsNew(request.getIsNew());
-        account.setLabels(request.getLabels() != null ? request.getLabels() : List.of());
-
-        String boundCreditCard = requireText(request.getBoundCreditCard(), "bound_credit_card");
-        account.setBoundCreditCardEncrypted(encrypt(boundCreditCard));
-        String boundCreditCardMasked = maskCreditCard(boundCreditCard);
-        account.setBoundCreditCardMasked(boundCreditCardMasked);
-
         account.setPayer(payer);
         account.setCustomer(customer);
         account.setLinkedEmail(email);
 
         Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(new AccountChangedEvent(saved.getId()));
 
         if (email != null) {
             email.setLinkedAccountName(saved.getAccountName());
@@ -535,6 +467,113 @@ public class AccountService {
         return data;
     }
 
+    // Field rules shared by addAccount and the bulk import; associations are resolved by the caller
+    String requireUid(AddAccountRequest request) {
+        String uid = requireText(request.getUid(), "uid");
+        if (uid.length() > 64) {
+            throw new ApiException(400, "UID 长度不能超过 64");
+        }
+        return uid;
+    }
+
+    Account buildAccount(AddAccountRequest request, String uid) {
+        Double riskDiscount = requireNumber(request.getRiskDiscount(), "risk_discount");
+        Double costDiscount = requireNumber(request.getCostDiscount(), "cost_discount");
+        validatePercentage(riskDiscount, "risk_discount");
+        validatePercentage(costDiscount, "cost_discount");
+        requireText(request.getPayerId(), "payer_id");
+
+        String monitorEmail = requireText(request.getMonitorEmail(), "monitor_email");
+        String boundEmail = requireText(request.getBoundEmail(), "bound_email");
+
+        String accountName = requireText(request.getAccountName(), "account_name");
+        
+        // Fix mapping: request.vendor -> accountType (DB), request.account_type -> accountCategory (DB)
+        String accountType = requireText(request.getVendor(), "vendor"); 
+        String accountCategory = requireText(request.getAccountType(), "account_type");
+        
+        String accountSource = requireText(request.getAccountSource(), "account_source");
+        String accountAttribution = requireText(request.getAccountAttribution(), "account_attribution");
+        Boolean isMonitoredSp = requireBoolean(request.getIsMonitoredSp(), "is_monitored_sp");
+        String monitorBillGroup = requireText(request.getMonitorBillGroup(), "monitor_bill_group");
+
+        String monitorUrl = sanitizeUrl(request.getMonitorUrl());
+        if (!StringUtils.hasText(monitorUrl)) {
+            if (AWS_ACCOUNT_ID_PATTERN.matcher(uid).matches()) {
+                monitorUrl = buildAwsSigninUrl(uid);
+            } else {
+                throw new ApiException(400, "monitor_url 必填（非 12 位 UID 无法自动生成）");
+            }
+        } else if (AWS_ACCOUNT_ID_PATTERN.matcher(uid).matches()) {
+            monitorUrl = buildAwsSigninUrl(uid);
+        }
+
+        String boundCreditCard = requireText(request.getBoundCreditCard(), "bound_credit_card");
+
+        Account account = new Account();
+        account.setAccountInternalId(idAllocationService.nextAccountInternalId());
+        account.setUid(uid);
+        account.setMonitorEmail(monitorEmail);
+        account.setMonitorUrl(monitorUrl);
+        account.setAccountName(accountName);
+        account.setAccountType(accountType);
+        account.setAccountCategory(accountCategory);
+        if (SP_ACCOUNT_CATEGORY.equals(accountCategory)) {
+            isMonitoredSp = true;
+        }
+        account.setMfaStatus(request.getMfaStatus());
+        account.setAccountSource(accountSource);
+        account.setAccountAttribution(accountAttribution);
+        account.setIsMonitoredSp(isMonitoredSp);
+        account.setMonitorBillGroup(monitorBillGroup);
+        account.setSendPo(request.getSendPo());
+        account.setBoundEmail(boundEmail);
+        account.setRiskDiscount(riskDiscount);
+        account.setCostDiscount(costDiscount);
+        account.setRemarks(request.getRemarks());
+        account.setIsSubmitted(request.getIsSubmitted() != null ? request.getIsSubmitted() : false);
+        account.setIsNew(request.getIsNew());
+        account.setLabels(request.getLabels() != null ? request.getLabels() : List.of());
+        account.setBoundCreditCardEncrypted(encrypt(boundCreditCard));
+        account.setBoundCreditCardMasked(maskCreditCard(boundCreditCard));
+        return account;
+    }
+
+    void validateCustomerUsable(Customer customer) {
+        if (!isActive(customer.getStatus())) {
+            throw new ApiException(1003, "关联的 Customer 状态异常");
+        }
+    }
+
+    // email_address, then bound_email, then monitor_email
+    String pickEmailAddress(AddAccountRequest request) {
+        if (StringUtils.hasText(request.getEmailAddress())) {
+            return request.getEmailAddress().trim();
+        } else if (StringUtils.hasText(request.getBoundEmail())) {
+            return request.getBoundEmail().trim();
+        } else if (StringUtils.hasText(request.getMonitorEmail())) {
+            return request.getMonitorEmail().trim();
+        }
+        return null;
+    }
+
+    Email newApiEmail(String address, Payer payer, String uid, String encodedPassword) {
+        Email email = new Email();
+        email.setEmailAddress(address);
+        email.setPassword(encodedPassword);
+        email.setSource("API Creation");
+        email.setCategory("normal");
+        email.setStatus("active");
+        email.setPayer(payer);
+        email.setLinkedAccountUid(uid);
+        email.setEmailInternalId(idAllocationService.nextEmailInternalId());
+        return email;
+    }
+
+    String encodeRandomPassword() {
+        return passwordEncoder.encode(randomPassword());
+    }
+
     private Email resolveEmailAssociation(AddAccountRequest request, Payer payer, String uid) {
         if (StringUtils.hasText(request.getEmailId())) {
             Email email = emailRepository.findByEmailInternalId(request.getEmailId())
@@ -544,20 +583,11 @@ public class AccountService {
             return email;
         }
 
-        String address = null;
-        if (StringUtils.hasText(request.getEmailAddress())) {
-            address = request.getEmailAddress();
-        } else if (StringUtils.hasText(request.getBoundEmail())) {
-            address = request.getBoundEmail();
-        } else if (StringUtils.hasText(request.getMonitorEmail())) {
-            address = request.getMonitorEmail();
-        }
-
+        String address = pickEmailAddress(request);
         if (!StringUtils.hasText(address)) {
             return null;
         }
 
-        address = address.trim();
         Optional<Email> existing = emailRepository.findByEmailAddressIgnoreCase(address);
         if (existing.isPresent()) {
             validateEmailUsable(existing.get());
@@ -565,19 +595,10 @@ public class AccountService {
             return existing.get();
         }
 
-        Email email = new Email();
-        email.setEmailAddress(address);
-        email.setPassword(passwordEncoder.encode(randomPassword()));
-        email.setSource("API Creation");
-        email.setCategory("normal");
-        email.setStatus("active");
-        email.setPayer(payer);
-        email.setLinkedAccountUid(uid);
-        email.setEmailInternalId(generateEmailInternalId());
-        return emailRepository.save(email);
+        return emailRepository.save(newApiEmail(address, payer, uid, encodeRandomPassword()));
     }
 
-    private void validateEmailUsable(Email email) {
+    void validateEmailUsable(Email email) {
         if (!isActive(email.getStatus())) {
             throw new ApiException(1004, "关联的 Email 状态异常");
         }
@@ -601,7 +622,7 @@ public class AccountService {
         }
     }
 
-    private void requireAccountManagePermission() {
+    void requireAccountManagePermission() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getAuthorities() == null) {
             throw new ApiException(1005, "无账号管理权限");
@@ -616,7 +637,7 @@ public class AccountService {
         return "active".equalsIgnoreCase(status);
     }
 
-    private void validatePercentage(Double value, String field) {
+    void validatePercentage(Double value, String field) {
         if (value < 0.0 || value > 100.0) {
             throw new ApiException(400, field + " 必须在 0.0 ~ 100.0 范围内");
         }
@@ -656,32 +677,6 @@ public class AccountService {
         return "https://" + uid + ".signin.aws.amazon.com/console";
     }
 
-    private synchronized String generateAccountInternalId() {
-        String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "acc_" + today + "_";
-        String pattern = prefix + "%";
-        return accountRepository.findLastAccountInternalId(pattern)
-                .map(lastId -> {
-                    String suffix = lastId.substring(prefix.length());
-                    int nextNum = Integer.parseInt(suffix) + 1;
-                    return prefix + String.format("%03d", nextNum);
-                })
-                .orElse(prefix + "001");
-    }
-
-    private synchronized String generateEmailInternalId() {
-        String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "email_" + today + "_";
-        String pattern = prefix + "%";
-        return emailRepository.findLastEmailInternalId(pattern)
-                .map(lastId -> {
-                    String suffix = lastId.substring(prefix.length());
-                    int nextNum = Integer.parseInt(suffix) + 1;
-                    return prefix + String.format("%03d", nextNum);
-                })
-                .orElse(prefix + "001");
-    }
-
     private String randomPassword() {
         byte[] bytes = new byte[18];
         new SecureRandom().nextBytes(bytes);
@@ -0,0 +1,140 @@
+package org.example.cloudopsadmin.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.example.cloudopsadmin.event.BillsChangedEvent;
+import org.example.cloudopsadmin.event.CustomerChangedEvent;
+import org.example.cloudopsadmin.repository.BillSyncVersionRepository;
+import org.example.cloudopsadmin.repository.CustomerMonthlyBillRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Entries carry the shared version of the period they were computed from (bill_sync_versions "analysis:*" rows, bumped
+// in the committing transaction of every bill/customer change on any node). A hit is only served while that version is
+// unchanged, so a change committed elsewhere, or one that lands while a response is being computed, is never served.
+@Component
+public class AnalysisCache {
+
+    public static final String CUSTOMER_YEARLY = "customer-yearly";
+
+    private static final String VERSION_PREFIX = "analysis:";
+    private static final String CUSTOMERS_VERSION_KEY = VERSION_PREFIX + "customers";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final CustomerMonthlyBillRepository customerMonthlyBillRepository;
+    private final BillSyncVersionRepository billSyncVersionRepository;
+    // Joins the publishing transaction; opens one of its own when an event is published outside a transaction
+    private final TransactionTemplate versionTransaction;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analysis.cache.closed-ttl-ms:1800000}")
+    private long closedTtlMs;
+
+    @Value("${analysis.cache.open-ttl-ms:60000}")
+    private long openTtlMs;
+
+    @Value("${analysis.cache.max-entries:1000}")
+    private int maxEntries;
+
+    public AnalysisCache(CustomerMonthlyBillRepository customerMonthlyBillRepository,
+                         BillSyncVersionRepository billSyncVersionRepository,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.customerMonthlyBillRepository = customerMonthlyBillRepository;
+        this.billSyncVersionRepository = billSyncVersionRepository;
+        this.versionTransaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("analysis.cache.size", Tags.empty(), entries);
+    }
+
+    // fromMonth/toMonth (yyyy-MM, inclusive) is the period the response is computed from
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, String fromMonth, String toMonth, String variant, Supplier<T> loader) {
+        String key = endpoint + "|" + fromMonth + "|" + toMonth + "|" + (variant == null ? "" : variant);
+        long now = System.currentTimeMillis();
+        // Read before loading: a change committed while the loader runs leaves the stored entry already outdated
+        long version = currentVersion(endpoint, fromMonth, toMonth);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now && entry.version == version) {
+            meterRegistry.counter("analysis.cache.requests", "endpoint", endpoint, "result", "hit").increment();
+            return (T) entry.value;
+        }
+        meterRegistry.counter("analysis.cache.requests", "endpoint", endpoint, "result", "miss").increment();
+
+        T value = loader.get();
+        long ttl = isClosed(fromMonth, toMonth) ? closedTtlMs : openTtlMs;
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.expiresAt <= System.currentTimeMillis());
+        }
+        if (entries.size() < maxEntries || entries.containsKey(key)) {
+            entries.put(key, new Entry(value, fromMonth, toMonth, endpoint, version, now + ttl));
+        }
+        return value;
+    }
+
+    // Runs inside the changing transaction, so the bump commits (or rolls back) with the change itself.
+    // Months are bumped in order so concurrent writers take the row locks in the same order.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void bumpBillVersions(BillsChangedEvent event) {
+        if (event.months() == null || event.months().isEmpty()) {
+            return;
+        }
+        versionTransaction.executeWithoutResult(status -> {
+            for (String month : new TreeSet<>(event.months())) {
+                billSyncVersionRepository.increment(VERSION_PREFIX + month);
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void bumpCustomerVersion(CustomerChangedEvent event) {
+        versionTransaction.executeWithoutResult(status -> billSyncVersionRepository.increment(CUSTOMERS_VERSION_KEY));
+    }
+
+    // Local entries are dropped eagerly; other nodes notice through the version check
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBillsChanged(BillsChangedEvent event) {
+        if (event.months() == null || event.months().isEmpty()) {
+            return;
+        }
+        entries.values().removeIf(e -> event.months().stream().anyMatch(m -> m.compareTo(e.fromMonth) >= 0 && m.compareTo(e.toMonth) <= 0));
+    }
+
+    // customer-yearly matches bills against the customer table, so a new or renamed customer changes it
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        entries.values().removeIf(e -> CUSTOMER_YEARLY.equals(e.endpoint));
+    }
+
+    private long currentVersion(String endpoint, String fromMonth, String toMonth) {
+        long version = billSyncVersionRepository.sumVersions(VERSION_PREFIX + fromMonth, VERSION_PREFIX + toMonth);
+        if (CUSTOMER_YEARLY.equals(endpoint)) {
+            version += billSyncVersionRepository.findVersion(CUSTOMERS_VERSION_KEY).orElse(0L);
+        }
+        return version;
+    }
+
+    // A period is closed once it is in the past, has bills, and every one of them is invoiced
+    private boolean isClosed(String fromMonth, String toMonth) {
+        String currentMonth = DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
+        if (toMonth.compareTo(currentMonth) >= 0) {
+            return false;
+        }
+        return customerMonthlyBillRepository.countByMonthBetween(fromMonth, toMonth) > 0
+                && customerMonthlyBillRepository.countOpenBills(fromMonth, toMonth) == 0;
+    }
+
+    private record Entry(Object value, String fromMonth, String toMonth, String endpoint, long version, long expiresAt) {
+    }
+}
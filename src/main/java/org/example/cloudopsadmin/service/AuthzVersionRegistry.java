@@ -0,0 +1,45 @@
+package org.example.cloudopsadmin.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Last time each user's authorities changed. A token carrying embedded authorities is only trusted if it was
+// issued after that; otherwise the filter falls back to loading the user. Starts at boot time, so tokens
+// issued before a restart (when this map was lost) always take the fallback path.
+@Component
+public class AuthzVersionRegistry {
+
+    private final ConcurrentHashMap<String, Long> changedAt = new ConcurrentHashMap<>();
+    private volatile long globalChangedAt = System.currentTimeMillis();
+
+    @Value("${jwt.access-token-expiration:900000}")
+    private long accessTokenExpiration;
+
+    public long currentVersion() {
+        return System.currentTimeMillis();
+    }
+
+    public boolean isCurrent(String email, long tokenVersion) {
+        if (tokenVersion <= globalChangedAt) {
+            return false;
+        }
+        Long userChangedAt = changedAt.get(email);
+        return userChangedAt == null || tokenVersion > userChangedAt;
+    }
+
+    public void markChanged(String email) {
+        long now = System.currentTimeMillis();
+        changedAt.put(email, now);
+        // Entries older than the token lifetime can no longer reject anything
+        if (changedAt.size() > 10000) {
+            changedAt.values().removeIf(t -> t < now - accessTokenExpiration);
+        }
+    }
+
+    public void markAllChanged() {
+        globalChangedAt = System.currentTimeMillis();
+        changedAt.clear();
+    }
+}
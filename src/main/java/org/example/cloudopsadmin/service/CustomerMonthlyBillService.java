@@ -1,10 +1,9 @@
 package org.example.cloudopsadmin.service;
 
 import lombok.RequiredArgsConstructor;
-import org.example.cloudopsadmin.entity.Account;
-import org.example.cloudopsadmin.entity.Customer;
+import org.example.cloudopsadmin.common.BillFinancials;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
-import org.example.cloudopsadmin.repository.AccountRepository;
 import org.example.cloudopsadmin.repository.CustomerMonthlyBillRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,6 +11,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import jakarta.persistence.criteria.Predicate;
@@ -19,15 +19,20 @@ import jakarta.persistence.criteria.Predicate;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerMonthlyBillService {
 
     private final CustomerMonthlyBillRepository customerMonthlyBillRepository;
-    private final AccountRepository accountRepository;
+    private final FinancialRollupService financialRollupService;
+    private final MonthlyBillMaterializer monthlyBillMaterializer;
+    private final KeysetPager keysetPager;
 
     public Page<CustomerMonthlyBill> getMonthlyBillList(
             int page,
@@ -38,12 +43,32 @@ public class CustomerMonthlyBillService {
             String sortOrder
     ) {
         String targetMonth = StringUtils.hasText(month) ? month.trim() : DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
-        ensureMonthRecords(targetMonth);
+        monthlyBillMaterializer.ensureMaterialized(targetMonth);
 
         Sort sort = Sort.by(Sort.Direction.fromString(sortOrder), "totalBill");
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<CustomerMonthlyBill> spec = (root, query, cb) -> {
+        return customerMonthlyBillRepository.findAll(billFilter(customerName, linkedAccountUid, targetMonth), pageable);
+    }
+
+    public CursorPage<CustomerMonthlyBill> getMonthlyBillListByCursor(
+            String cursor,
+            int pageSize,
+            String customerName,
+            String linkedAccountUid,
+            String month,
+            String sortOrder,
+            CursorPage.CountMode countMode
+    ) {
+        String targetMonth = StringUtils.hasText(month) ? month.trim() : DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
+        monthlyBillMaterializer.ensureMaterialized(targetMonth);
+        return keysetPager.fetch(customerMonthlyBillRepository, billFilter(customerName, linkedAccountUid, targetMonth),
+                "totalBill", Sort.Direction.fromString(sortOrder), cursor, pageSize, countMode,
+                "customer_monthly_bills", true);
+    }
+
+    private Specification<CustomerMonthlyBill> billFilter(String customerName, String linkedAccountUid, String targetMonth) {
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             // Join with account to ensure we only display bills for existing accounts
@@ -63,109 +88,25 @@ public class CustomerMonthlyBillService {
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
-
-        return customerMonthlyBillRepository.findAll(spec, pageable);
     }
 
-    private void ensureMonthRecords(String month) {
-        List<Account> accounts = accountRepository.findAll();
-        for (Account account : accounts) {
-            String uid = account.getUid();
-            Optional<CustomerMonthlyBill> existing = customerMonthlyBillRepository.findOne((root, query, cb) -> cb.and(
-                    cb.equal(root.get("month"), month),
-                    cb.equal(root.get("linkedAccountUid"), uid)
-            ));
-            
-            if (existing.isPresent()) {
-                CustomerMonthlyBill bill = existing.get();
-                // Only sync if not invoiced/finalized, OR if the vendor is invalid (fix dirty data)
-                boolean isInvalidVendor = "Customer Account".equals(bill.getCloudVendor());
-                if (!Boolean.TRUE.equals(bill.getIsInvoiced()) || isInvalidVendor) {
-                    boolean changed = false;
-                    
-                    // Sync Cloud Vendor using accountCategory (which stores Vendor) instead of accountType (which stores Category)
-                    // Also handle the case where we need to fix "Customer Account" -> "AWS" (or actual vendor)
-                    String normalizedVendor = normalizeCloudVendor(account.getAccountCategory());
-                    
-                    // Fallback to accountType if accountCategory is empty, just in case
-                    if ("AWS".equals(normalizedVendor) && !StringUtils.hasText(account.getAccountCategory())) {
-                        normalizedVendor = normalizeCloudVendor(account.getAccountType());
-                    }
-
-                    if (!normalizedVendor.equals(bill.getCloudVendor())) {
-                        bill.setCloudVendor(normalizedVendor);
-                        changed = true;
-                    }
-
-                    // Sync Customer Name
-                    Customer customer = account.getCustomer();
-                    String currentCustomerName = (customer != null && StringUtils.hasText(customer.getCustomerName()))
-                            ? customer.getCustomerName()
-                            : account.getAccountName();
-                    
-                    if (!currentCustomerName.equals(bill.getCustomerName())) {
-                        bill.setCustomerName(currentCustomerName);
-                        changed = true;
-                    }
-                    
-                    // Sync Account Reference if missing
-                    if (bill.getAccount() == null) {
-                        bill.setAccount(account);
-                        changed = true;
-                    }
-                    
-                    // Sync Customer Reference
-                    if (bill.getCustomer() != customer) { // Reference check is okay for managed entities, but maybe ID check is safer
-                         // Ideally check IDs or nulls
-                         Long oldCustId = bill.getCustomer() == null ? null : bill.getCustomer().getId();
-                         Long newCustId = customer == null ? null : customer.getId();
-                         if (oldCustId != null && !oldCustId.equals(newCustId) || (oldCustId == null && newCustId != null)) {
-                             bill.setCustomer(customer);
-                             changed = true;
-                         }
-                    }
-
-                    if (changed) {
-                        customerMonthlyBillRepository.save(bill);
-                    }
-                }
-                continue;
+    // Previous-month bills for a page of bills, keyed by linked_account_uid (one query per distinct month, normally one)
+    public Map<String, CustomerMonthlyBill> findPreviousMonthBills(List<CustomerMonthlyBill> bills) {
+        Map<String, Set<String>> uidsByMonth = new HashMap<>();
+        for (CustomerMonthlyBill bill : bills) {
+            if (StringUtils.hasText(bill.getMonth()) && StringUtils.hasText(bill.getLinkedAccountUid())) {
+                uidsByMonth.computeIfAbsent(bill.getMonth(), k -> new HashSet<>()).add(bill.getLinkedAccountUid());
             }
-            
-            CustomerMonthlyBill bill = new CustomerMonthlyBill();
-            bill.setMonth(month);
-            
-            // Use accountCategory for Vendor
-            String normalizedVendor = normalizeCloudVendor(account.getAccountCategory());
-            if ("AWS".equals(normalizedVendor) && !StringUtils.hasText(account.getAccountCategory())) {
-                normalizedVendor = normalizeCloudVendor(account.getAccountType());
-            }
-            bill.setCloudVendor(normalizedVendor);
-            
-            Customer customer = account.getCustomer();
-            String customerName = (customer != null && org.springframework.util.StringUtils.hasText(customer.getCustomerName()))
-                    ? customer.getCustomerName()
-                    : account.getAccountName();
-            bill.setCustomerName(customerName);
-            bill.setLinkedAccountUid(uid);
-            bill.setOriginalBillingPercentage(customer != null ? customer.getOriginalBillingPercentage() : null);
-            bill.setCostDiscountPercentage(account.getCostDiscount());
-            bill.setAccount(account);
-            bill.setCustomer(customer);
-            bill.setIsInvoiced(false);
-            bill.setInvoiceStatus(org.example.cloudopsadmin.common.InvoiceStatus.DRAFT);
-            customerMonthlyBillRepository.save(bill);
         }
-    }
 
-    public Optional<CustomerMonthlyBill> findPreviousMonthBill(String currentMonth, String uid) {
-        LocalDate parsed = LocalDate.parse(currentMonth + "-01");
-        LocalDate prev = parsed.minusMonths(1);
-        String prevMonth = DateTimeFormatter.ofPattern("yyyy-MM").format(prev);
-        return customerMonthlyBillRepository.findOne((root, query, cb) -> cb.and(
-                cb.equal(root.get("month"), prevMonth),
-                cb.equal(root.get("linkedAccountUid"), uid)
-        ));
+        Map<String, CustomerMonthlyBill> result = new HashMap<>();
+        uidsByMonth.forEach((month, uids) -> {
+            String prevMonth = DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.parse(month + "-01").minusMonths(1));
+            for (CustomerMonthlyBill prev : customerMonthlyBillRepository.findByMonthAndLinkedAccountUidIn(prevMonth, uids)) {
+                result.putIfAbsent(prev.getLinkedAccountUid(), prev);
+            }
+        });
+        return result;
     }
 
     public List<CustomerMonthlyBill> listBillsByFilters(
@@ -175,7 +116,7 @@ public class CustomerMonthlyBillService {
             String cloudVendor
     ) {
         String targetMonth = StringUtils.hasText(month) ? month.trim() : DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
-        ensureMonthRecords(targetMonth);
+        monthlyBillMaterializer.ensureMaterialized(targetMonth);
         Specification<CustomerMonthlyBill> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
             // Ensure we join account here too? Maybe not necessary for all lists, but for consistency let's do it if it's for display.
@@ -206,9 +147,12 @@ public class CustomerMonthlyBillService {
         return customerMonthlyBillRepository.findAll(spec);
     }
 
+    @Transactional
     public CustomerMonthlyBill updateBill(Long id, Double totalBill, Double undiscountedBill, Double customerPayableBill, Double supplierPayableBill, Double profit) {
-        CustomerMonthlyBill bill = customerMonthlyBillRepository.findById(id)
+        // Row lock keeps the before/after rollup delta consistent under concurrent edits of the same bill
+        CustomerMonthlyBill bill = customerMonthlyBillRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Bill not found with id: " + id));
+        BillFinancials before = BillFinancials.of(bill);
 
         if (totalBill != null) bill.setTotalBill(totalBill);
         if (undiscountedBill != null) bill.setUndiscountedBill(undiscountedBill);
@@ -216,23 +160,8 @@ public class CustomerMonthlyBillService {
         if (supplierPayableBill != null) bill.setSupplierPayableBill(supplierPayableBill);
         if (profit != null) bill.setProfit(profit);
 
-        return customerMonthlyBillRepository.save(bill);
-    }
-
-    private String normalizeCloudVendor(String accountType) {
-        if (!StringUtils.hasText(accountType)) {
-            return "AWS"; // Default to AWS if empty
-        }
-        String lower = accountType.toLowerCase();
-        if (lower.contains("ali")) {
-            return "Ali";
-        }
-        if (lower.contains("azure")) {
-            return "Azure";
-        }
-        if (lower.contains("aws")) {
-            return "AWS";
-        }
-        return "AWS"; // Default fallback
+        CustomerMonthlyBill saved = customerMonthlyBillRepository.save(bill);
+        financialRollupService.applyAmountChange(saved, before);
+        return saved;
     }
 }
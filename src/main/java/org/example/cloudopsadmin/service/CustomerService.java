@@ -7,9 +7,11 @@ import org.example.cloudopsadmin.entity.Customer;
 import org.example.cloudopsadmin.entity.CustomerUid;
 import org.example.cloudopsadmin.entity.Payer;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.CustomerChangedEvent;
 import org.example.cloudopsadmin.service.OperationLogService;
 import org.example.cloudopsadmin.repository.CustomerRepository;
 import org.example.cloudopsadmin.repository.PayerRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -21,11 +23,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,6 +36,9 @@ public class CustomerService {
     private final CustomerRepository customerRepository;
     private final PayerRepository payerRepository;
     private final OperationLogService operationLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdAllocationService idAllocationService;
+    private final SearchIndexService searchIndexService;
 
     @Transactional(readOnly = true)
     public Page<Customer> getCustomerList(int page, int pageSize, String search, String status, String label, String sortBy, String sortOrder) {
@@ -42,9 +46,14 @@ public class CustomerService {
                             sortBy == null || sortBy.isEmpty() ? "id" : sortBy);
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
+        Set<Long> searchIds = StringUtils.hasText(search) ? searchIndexService.candidates(SearchIndexService.Kind.CUSTOMER, search) : null;
         Specification<Customer> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
+            if (searchIds != null) {
+                predicates.add(searchIds.isEmpty() ? cb.disjunction() : root.get("id").in(searchIds));
+            }
+
             if (StringUtils.hasText(search)) {
                 String searchLike = "%" + search + "%";
                 Predicate customerName = cb.like(root.get("customerName"), searchLike);
@@ -116,7 +125,7 @@ public class CustomerService {
         customer.setRemarks(request.getRemarks());
 
         // Generate Internal ID
-        customer.setCustomerInternalId(generateCustomerInternalId());
+        customer.setCustomerInternalId(idAllocationService.nextCustomerInternalId());
 
         // 2. Handle UIDs (optional)
         if (request.getUids() != null && !request.getUids().isEmpty()) {
@@ -149,6 +158,7 @@ public class CustomerService {
         }
 
         Customer saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(saved.getId()));
         if (operator != null) {
             operationLogService.log(
                     operator.getEmail(),
@@ -162,20 +172,6 @@ public class CustomerService {
         return saved;
     }
 
-    private synchronized String generateCustomerInternalId() {
-        String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "cus_" + today + "_";
-        
-        String pattern = prefix + "%";
-        return customerRepository.findLastCustomerInternalId(pattern)
-                .map(lastId -> {
-                    String suffix = lastId.substring(prefix.length());
-                    int nextNum = Integer.parseInt(suffix) + 1;
-                    return prefix + String.format("%03d", nextNum);
-                })
-                .orElse(prefix + "001");
-    }
-
     @Data
     @Schema(description = "Create Customer Request")
     public static class CreateCustomerRequest {
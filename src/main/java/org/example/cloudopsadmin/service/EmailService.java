@@ -2,17 +2,18 @@ package org.example.cloudopsadmin.service;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.Email;
 import org.example.cloudopsadmin.entity.Payer;
+import org.example.cloudopsadmin.event.EmailChangedEvent;
 import org.example.cloudopsadmin.repository.EmailRepository;
 import org.example.cloudopsadmin.repository.PayerRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,6 +23,7 @@ import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +31,10 @@ public class EmailService {
 
     private final EmailRepository emailRepository;
     private final PayerRepository payerRepository;
+    private final IdAllocationService idAllocationService;
+    private final SearchIndexService searchIndexService;
+    private final KeysetPager keysetPager;
+    private final ApplicationEventPublisher eventPublisher;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     @Transactional(readOnly = true)
@@ -37,9 +43,29 @@ public class EmailService {
                             sortBy == null || sortBy.isEmpty() ? "id" : sortBy);
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<Email> spec = (root, query, cb) -> {
+        return emailRepository.findAll(emailFilter(search, category, status, label), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Email> getEmailListByCursor(String cursor, int pageSize, String search, String category, String status, String label,
+                                                  String sortBy, String sortOrder, CursorPage.CountMode countMode) {
+        boolean filtered = StringUtils.hasText(search) || StringUtils.hasText(category)
+                || StringUtils.hasText(status) || StringUtils.hasText(label);
+        return keysetPager.fetch(emailRepository, emailFilter(search, category, status, label),
+                sortBy == null || sortBy.isEmpty() ? "id" : sortBy,
+                Sort.Direction.fromString(sortOrder == null ? "ASC" : sortOrder), cursor, pageSize, countMode,
+                "emails", filtered);
+    }
+
+    private Specification<Email> emailFilter(String search, String category, String status, String label) {
+        Set<Long> searchIds = StringUtils.hasText(search) ? searchIndexService.candidates(SearchIndexService.Kind.EMAIL, search) : null;
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
+            if (searchIds != null) {
+                predicates.add(searchIds.isEmpty() ? cb.disjunction() : root.get("id").in(searchIds));
+            }
+
             if (StringUtils.hasText(search)) {
                 String searchLike = "%" + search + "%";
                 Predicate emailAddress = cb.like(root.get("emailAddress"), searchLike);
@@ -64,8 +90,6 @@ public class EmailService {
             query.distinct(true);
             return cb.and(predicates.toArray(new Predicate[0]));
         };
-
-        return emailRepository.findAll(spec, pageable);
     }
 
     @Transactional
@@ -124,24 +148,11 @@ public class EmailService {
         }
 
         // 4. Generate Internal ID
-        email.setEmailInternalId(generateEmailInternalId());
-
-        return emailRepository.save(email);
-    }
+        email.setEmailInternalId(idAllocationService.nextEmailInternalId());
 
-    private synchronized String generateEmailInternalId() {
-        String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "email_" + today + "_";
-        
-        // Find last ID for today to increment
-        String pattern = prefix + "%";
-        return emailRepository.findLastEmailInternalId(pattern)
-                .map(lastId -> {
-                    String suffix = lastId.substring(prefix.length());
-                    int nextNum = Integer.parseInt(suffix) + 1;
-                    return prefix + String.format("%03d", nextNum);
-                })
-                .orElse(prefix + "001");
+        Email saved = emailRepository.save(email);
+        eventPublisher.publishEvent(new EmailChangedEvent(saved.getId()));
+        return saved;
     }
 
     @lombok.Data
@@ -0,0 +1,237 @@
+package org.example.cloudopsadmin.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.example.cloudopsadmin.common.InvoiceStatus;
+import org.example.cloudopsadmin.common.TabularWriter;
+import org.example.cloudopsadmin.entity.Account;
+import org.example.cloudopsadmin.entity.Invoice;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Collections;
+import java.util.StringJoiner;
+import java.util.concurrent.Semaphore;
+
+// Full-table exports for finance. Each export is one forward-only query streamed row by row (Connector/J
+// fetch-size MIN_VALUE) into a TabularWriter on the response, so a 500k-row export holds one row at a time
+// instead of a page list or an entity graph. Sorting happens in MySQL.
+// A streaming query keeps its pooled connection until the last row is written, so at most export.max-concurrent exports
+// run at once and the rest are turned away. A client that stops reading is cut off by Connector/J's
+// netTimeoutForStreamingResults (net_write_timeout, 600s by default).
+@Service
+public class ExportService {
+
+    // Payables and profit use the rollup's derivation so the export matches the analysis numbers
+    private static final String BILL_COLUMNS =
+            "b.month, b.cloud_vendor, b.customer_name, b.linked_account_uid, b.total_bill, b.undiscounted_bill, " +
+            "b.original_billing_percentage, b.cost_discount_percentage, " +
+            FinancialRollupService.CUSTOMER_PAYABLE_SQL + ", " + FinancialRollupService.SUPPLIER_PAYABLE_SQL + ", " +
+            "COALESCE(b.profit, " + FinancialRollupService.CUSTOMER_PAYABLE_SQL + " - " + FinancialRollupService.SUPPLIER_PAYABLE_SQL + "), " +
+            "b.is_invoiced, b.invoice_status, b.invoice_id, b.remarks";
+    private static final List<String> BILL_HEADER = List.of(
+            "month", "cloud_vendor", "customer_name", "linked_account_uid", "total_bill", "undiscounted_bill",
+            "original_billing_percentage", "cost_discount_percentage", "customer_payable_bill", "supplier_payable_bill",
+            "profit", "is_invoiced", "invoice_status", "invoice_id", "remarks");
+
+    // One row per line item, invoice columns repeated; invoices without items get one row with empty item columns
+    private static final String INVOICE_COLUMNS =
+            "i.id, i.payment_reference, i.customer_name, i.invoice_date, i.due_date, i.currency, i.status, " +
+            "i.subtotal_ex_tax, i.tax_total, i.grand_total, " +
+            "li.product_id, li.label, li.quantity, li.price, li.discount_pct, li.tax_pct, li.amount_ex_tax, li.amount_inc_tax";
+    private static final List<String> INVOICE_HEADER = List.of(
+            "invoice_id", "payment_reference", "customer_name", "invoice_date", "due_date", "currency", "status",
+            "subtotal_ex_tax", "tax_total", "grand_total",
+            "product_id", "label", "quantity", "price", "discount_pct", "tax_pct", "amount_ex_tax", "amount_inc_tax");
+
+    // The encrypted card number never leaves the database; labels use the same ';' separator as the CSV import
+    private static final String ACCOUNT_COLUMNS =
+            "a.account_internal_id, a.uid, a.account_name, a.account_type, a.account_category, a.account_source, " +
+            "a.account_attribution, a.bd_name, a.monitor_email, a.monitor_url, a.bound_email, a.bound_credit_card_masked, " +
+            "a.mfa_status, a.is_monitored_sp, a.monitor_bill_group, a.send_po, a.risk_discount, a.cost_discount, " +
+            "c.customer_name, p.payer_name, " +
+            "(SELECT GROUP_CONCAT(l.label ORDER BY l.label SEPARATOR ';') FROM account_labels l WHERE l.account_id = a.id), " +
+            "a.remarks, a.created_at";
+    private static final List<String> ACCOUNT_HEADER = List.of(
+            "account_internal_id", "uid", "account_name", "vendor", "account_type", "account_source",
+            "account_attribution", "bd_name", "monitor_email", "monitor_url", "bound_email", "bound_credit_card",
+            "mfa_status", "is_monitored_sp", "monitor_bill_group", "send_po", "risk_discount", "cost_discount",
+            "customer_name", "payer_name", "labels", "remarks", "created_at");
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate streaming;
+    private final AccountService accountService;
+    private final EntityManager entityManager;
+    private final Semaphore permits;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ExportService.class);
+
+    public ExportService(DataSource dataSource, AccountService accountService, EntityManager entityManager,
+                         @Value("${export.max-concurrent:2}") int maxConcurrent) {
+        this.streaming = new JdbcTemplate(dataSource);
+        this.streaming.setFetchSize(Integer.MIN_VALUE);
+        this.accountService = accountService;
+        this.entityManager = entityManager;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    // Same filters as the monthly bill list: customer name contains, uid and vendor exact; no month means all months
+    public long exportBills(String month, String customerName, String linkedAccountUid, String cloudVendor,
+                            TabularWriter out) throws IOException {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        List<Object> args = new ArrayList<>();
+        if (StringUtils.hasText(month)) {
+            where.add("b.month = ?");
+            args.add(month.trim());
+        }
+        if (StringUtils.hasText(customerName)) {
+            where.add("b.customer_name LIKE ?");
+            args.add("%" + customerName.trim() + "%");
+        }
+        if (StringUtils.hasText(linkedAccountUid)) {
+            where.add("b.linked_account_uid = ?");
+            args.add(linkedAccountUid.trim());
+        }
+        if (StringUtils.hasText(cloudVendor)) {
+            where.add("b.cloud_vendor = ?");
+            args.add(cloudVendor.trim());
+        }
+        return stream("bills", "SELECT " + BILL_COLUMNS + " FROM customer_monthly_bills b" + where +
+                " ORDER BY b.month, b.customer_name, b.id", args, BILL_HEADER, out);
+    }
+
+    // Same visibility as the invoice list: only invoices linked to an existing customer
+    public long exportInvoices(String month, String status, String search, TabularWriter out) throws IOException {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "");
+        List<Object> args = new ArrayList<>();
+        where.add("i.customer_id_fk IS NOT NULL");
+        if (StringUtils.hasText(month)) {
+            YearMonth yearMonth;
+            try {
+                yearMonth = YearMonth.parse(month.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("month 格式应为 yyyy-MM");
+            }
+            where.add("i.invoice_date >= ? AND i.invoice_date < ?");
+            args.add(yearMonth.atDay(1));
+            args.add(yearMonth.plusMonths(1).atDay(1));
+        }
+        if (StringUtils.hasText(status)) {
+            try {
+                args.add(InvoiceStatus.valueOf(status.trim()).name());
+                where.add("i.status = ?");
+            } catch (IllegalArgumentException e) {
+                // Ignore invalid status, as the list does
+            }
+        }
+        if (StringUtils.hasText(search)) {
+            where.add("i.customer_name_norm LIKE ?");
+            args.add(Invoice.normalizeName(search).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        return stream("invoices", "SELECT " + INVOICE_COLUMNS + " FROM invoices i LEFT JOIN invoice_line_items li ON li.invoice_id_fk = i.id" +
+                where + " ORDER BY i.id, li.id", args, INVOICE_HEADER, out);
+    }
+
+    // Same filters as the account list (AccountService.accountFilter): vendor maps to accounts.account_type and
+    // accountCategory to accounts.account_category. A filtered export resolves the filter to ids first and streams
+    // the rows in id chunks, in the same id order as an unfiltered one.
+    public long exportAccounts(String search, String vendor, String accountCategory, String accountSource, String label,
+                               TabularWriter out) throws IOException {
+        String select = "SELECT " + ACCOUNT_COLUMNS + " FROM accounts a " +
+                "LEFT JOIN customers c ON c.id = a.customer_id_fk LEFT JOIN payers p ON p.id = a.payer_id";
+        boolean filtered = StringUtils.hasText(search) || StringUtils.hasText(vendor) || StringUtils.hasText(accountCategory)
+                || StringUtils.hasText(accountSource) || StringUtils.hasText(label);
+        if (!filtered) {
+            return stream("accounts", select + " ORDER BY a.id", List.of(), ACCOUNT_HEADER, out);
+        }
+        return withPermit(() -> {
+            List<Long> ids = accountIds(accountService.accountFilter(search, vendor, accountCategory, accountSource, label));
+            long started = System.currentTimeMillis();
+            out.writeRow(ACCOUNT_HEADER);
+            long rows = 0;
+            for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + ID_CHUNK_SIZE));
+                String in = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                rows += writeRows(select + " WHERE a.id IN (" + in + ") ORDER BY a.id", new ArrayList<>(chunk),
+                        ACCOUNT_HEADER.size(), out);
+            }
+            log.info("Export finished. name={}, rows={}, costMs={}", "accounts", rows, System.currentTimeMillis() - started);
+            return rows;
+        });
+    }
+
+    private List<Long> accountIds(Specification<Account> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Account> root = query.from(Account.class);
+        query.select(root.get("id")).where(spec.toPredicate(root, query, cb)).orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private long stream(String name, String sql, List<Object> args, List<String> header, TabularWriter out) throws IOException {
+        return withPermit(() -> {
+            long started = System.currentTimeMillis();
+            out.writeRow(header);
+            long rows = writeRows(sql, args, header.size(), out);
+            log.info("Export finished. name={}, rows={}, costMs={}", name, rows, System.currentTimeMillis() - started);
+            return rows;
+        });
+    }
+
+    private long writeRows(String sql, List<Object> args, int columns, TabularWriter out) throws IOException {
+        long[] rows = {0};
+        try {
+            streaming.query(sql, rs -> {
+                Object[] values = new Object[columns];
+                for (int i = 0; i < columns; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                try {
+                    out.writeRow(Arrays.asList(values));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, args.toArray());
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private interface Export {
+        long run() throws IOException;
+    }
+
+    // Turned away rather than queued: a waiting request would still hold a servlet thread
+    private long withPermit(Export export) throws IOException {
+        if (!permits.tryAcquire()) {
+            throw new ExportBusyException("导出任务过多，请稍后重试");
+        }
+        try {
+            return export.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public static class ExportBusyException extends RuntimeException {
+        public ExportBusyException(String message) {
+            super(message);
+        }
+    }
+}
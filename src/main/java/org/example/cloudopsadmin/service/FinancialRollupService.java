@@ -0,0 +1,117 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.BillFinancials;
+import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+import org.example.cloudopsadmin.event.BillsChangedEvent;
+import org.example.cloudopsadmin.repository.CustomerMonthlyBillRepository;
+import org.example.cloudopsadmin.repository.MonthlyFinancialRollupRepository;
+import org.example.cloudopsadmin.repository.MonthlyFinancialRollupRepository.CustomerTotals;
+import org.example.cloudopsadmin.repository.MonthlyFinancialRollupRepository.VendorMonthTotals;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class FinancialRollupService {
+
+    // Same derivation as BillFinancials: stored amounts win, otherwise derive from undiscounted bill and percentages
+    static final String CUSTOMER_PAYABLE_SQL =
+            "COALESCE(b.customer_payable_bill, b.undiscounted_bill * b.original_billing_percentage / 100.0, 0)";
+    static final String SUPPLIER_PAYABLE_SQL =
+            "COALESCE(b.supplier_payable_bill, b.undiscounted_bill * (1.0 - b.cost_discount_percentage / 100.0), 0)";
+    // INSERT ... SELECT is a locking read of the bills: it sees the latest committed amounts, and a concurrent updateBill
+    // (which locks its bill first) either commits before it or waits behind it, so no delta is lost between computing
+    // the sums and replacing the rows. Groups with no bills left are deleted afterwards.
+    private static final String UPSERT_ROLLUPS =
+            "INSERT INTO monthly_financial_rollups (month, cloud_vendor, customer_name, revenue, customer_payable, cost, profit, bill_count, updated_at) " +
+            "SELECT b.month, b.cloud_vendor, b.customer_name, SUM(COALESCE(b.undiscounted_bill, 0)), " +
+            "SUM(" + CUSTOMER_PAYABLE_SQL + "), SUM(" + SUPPLIER_PAYABLE_SQL + "), " +
+            "SUM(COALESCE(b.profit, " + CUSTOMER_PAYABLE_SQL + " - " + SUPPLIER_PAYABLE_SQL + ")), COUNT(*), NOW() " +
+            "FROM customer_monthly_bills b WHERE b.month IN (%s) GROUP BY b.month, b.cloud_vendor, b.customer_name " +
+            "ON DUPLICATE KEY UPDATE revenue = VALUES(revenue), customer_payable = VALUES(customer_payable), cost = VALUES(cost), " +
+            "profit = VALUES(profit), bill_count = VALUES(bill_count), updated_at = NOW()";
+    private static final String DELETE_VANISHED =
+            "DELETE r FROM monthly_financial_rollups r WHERE r.month IN (%s) AND NOT EXISTS (" +
+            "SELECT 1 FROM customer_monthly_bills b WHERE b.month = r.month AND b.cloud_vendor = r.cloud_vendor " +
+            "AND b.customer_name = r.customer_name)";
+
+    private final MonthlyFinancialRollupRepository rollupRepository;
+    private final CustomerMonthlyBillRepository customerMonthlyBillRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinancialRollupService.class);
+
+    @Transactional(readOnly = true)
+    public List<VendorMonthTotals> sumByMonthAndVendor(String fromMonth, String toMonth) {
+        return rollupRepository.sumByMonthAndVendor(fromMonth, toMonth);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CustomerTotals> sumByCustomer(String fromMonth, String toMonth) {
+        return rollupRepository.sumByCustomer(fromMonth, toMonth);
+    }
+
+    // Amount-only edit of a single bill: shift its rollup row by (after - before)
+    @Transactional
+    public void applyAmountChange(CustomerMonthlyBill bill, BillFinancials before) {
+        BillFinancials after = BillFinancials.of(bill);
+        rollupRepository.applyDelta(
+                bill.getMonth(),
+                bill.getCloudVendor(),
+                bill.getCustomerName(),
+                after.revenue - before.revenue,
+                after.customerPayable - before.customerPayable,
+                after.cost - before.cost,
+                after.profit - before.profit,
+                0L
+        );
+        eventPublisher.publishEvent(new BillsChangedEvent(Set.of(bill.getMonth())));
+    }
+
+    // Used after sync, which can move rows between vendors/customers and add new ones
+    @Transactional
+    public void rebuildMonths(Collection<String> months) {
+        if (months == null || months.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        String placeholders = String.join(", ", Collections.nCopies(months.size(), "?"));
+        Object[] args = months.toArray();
+        int upserted = jdbcTemplate.update(String.format(UPSERT_ROLLUPS, placeholders), args);
+        int deleted = jdbcTemplate.update(String.format(DELETE_VANISHED, placeholders), args);
+        eventPublisher.publishEvent(new BillsChangedEvent(Set.copyOf(months)));
+
+        log.debug("Rebuilt financial rollups. months={}, upserted={}, deleted={}, costMs={}", months, upserted, deleted, System.currentTimeMillis() - start);
+    }
+
+    // First start after the rollup table is introduced: backfill from the bill table
+    @Async("billSyncExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        List<String> months = customerMonthlyBillRepository.findDistinctMonths();
+        for (String month : months) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuildMonths(List.of(month)));
+            } catch (Exception e) {
+                log.error("Financial rollup backfill failed. month={}", month, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.cloudopsadmin.service;
+
+import org.example.cloudopsadmin.common.LeasedSequence;
+import org.example.cloudopsadmin.repository.IdSequenceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Internal IDs are "<prefix>_<yyyyMMdd>_<seq>", seq zero-padded to 3 digits and widening past 999.
+// Each node leases blocks of seq values from id_sequences, so creates never wait on each other or on a MAX() scan.
+@Service
+public class IdAllocationService {
+
+    public enum IdKind {
+        ACCOUNT("acc", "accounts", "account_internal_id"),
+        EMAIL("email", "emails", "email_internal_id"),
+        CUSTOMER("cus", "customers", "customer_internal_id"),
+        PAYER("payer", "payers", "payer_internal_id");
+
+        private final String prefix;
+        private final String table;
+        private final String column;
+
+        IdKind(String prefix, String table, String column) {
+            this.prefix = prefix;
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final IdSequenceRepository idSequenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leaseTransaction;
+    private final Map<String, LeasedSequence> sequences = new ConcurrentHashMap<>();
+
+    @Value("${id-allocation.block-size:20}")
+    private int blockSize;
+
+    public IdAllocationService(IdSequenceRepository idSequenceRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.idSequenceRepository = idSequenceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Leases commit on their own so a rolled-back create never hands the same block out twice
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String nextAccountInternalId() {
+        return next(IdKind.ACCOUNT);
+    }
+
+    public String nextEmailInternalId() {
+        return next(IdKind.EMAIL);
+    }
+
+    public String nextCustomerInternalId() {
+        return next(IdKind.CUSTOMER);
+    }
+
+    public String nextPayerInternalId() {
+        return next(IdKind.PAYER);
+    }
+
+    public String next(IdKind kind) {
+        String idPrefix = kind.prefix + "_" + LocalDate.now().format(DAY) + "_";
+        LeasedSequence sequence = sequences.get(idPrefix);
+        if (sequence == null) {
+            // First use of the day: forget yesterday's block for this kind
+            sequences.keySet().removeIf(key -> key.startsWith(kind.prefix + "_") && !key.equals(idPrefix));
+            sequence = sequences.computeIfAbsent(idPrefix,
+                    key -> new LeasedSequence(size -> lease(kind, key, size), Math.max(1, blockSize)));
+        }
+        return idPrefix + String.format("%03d", sequence.next());
+    }
+
+    private long lease(IdKind kind, String idPrefix, int size) {
+        String seqKey = idPrefix.substring(0, idPrefix.length() - 1);
+        Long start = leaseTransaction.execute(status -> {
+            if (!idSequenceRepository.existsById(seqKey)) {
+                idSequenceRepository.insertIfAbsent(seqKey, maxExistingSuffix(kind, idPrefix) + 1);
+            }
+            idSequenceRepository.advance(seqKey, size);
+            return idSequenceRepository.lastInsertId() - size;
+        });
+        return start == null ? 1 : start;
+    }
+
+    // Seeds a new day row from IDs written before the table existed; compares numerically so "1000" sorts after "999"
+    private long maxExistingSuffix(IdKind kind, String idPrefix) {
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(SUBSTRING(" + kind.column + ", ?) AS UNSIGNED)) FROM " + kind.table +
+                        " WHERE " + kind.column + " LIKE ?",
+                Long.class, idPrefix.length() + 1, idPrefix + "%");
+        return max == null ? 0 : max;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.cloudopsadmin.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    // Ordered by expiry so the sweeper only looks at the head
+    private final PriorityBlockingQueue<Expiry> expiryQueue = new PriorityBlockingQueue<>(64, Comparator.comparingLong(Expiry::expiresAt));
+    private final int maxEntries;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InMemoryTokenRevocationStore.class);
+
+    public InMemoryTokenRevocationStore(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void revoke(String tokenHash, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (revoked.size() >= maxEntries && !revoked.containsKey(tokenHash)) {
+            sweep();
+            // Every entry left is a live revocation; evicting one would make that token usable again, so refuse
+            if (revoked.size() >= maxEntries) {
+                log.warn("Token revocation store full, refusing revocation. entries={}", revoked.size());
+                throw new IllegalStateException("Token revocation store is full");
+            }
+        }
+        revoked.put(tokenHash, expiresAt);
+        expiryQueue.add(new Expiry(tokenHash, expiresAt));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenHash) {
+        Long expiresAt = revoked.get(tokenHash);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Override
+    public int size() {
+        return revoked.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sweep-interval-ms:30000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        Expiry head;
+        while ((head = expiryQueue.peek()) != null && head.expiresAt() <= now) {
+            Expiry polled = expiryQueue.poll();
+            if (polled == null) {
+                break;
+            }
+            if (polled.expiresAt() > now) {
+                // An earlier-expiring entry raced in ahead of the one we peeked; put it back and stop
+                expiryQueue.add(polled);
+                break;
+            }
+            revoked.remove(polled.tokenHash(), polled.expiresAt());
+        }
+    }
+
+    private record Expiry(String tokenHash, long expiresAt) {
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.cloudopsadmin.service;
+
+import org.example.cloudopsadmin.entity.Customer;
+import org.example.cloudopsadmin.entity.Invoice;
+import org.example.cloudopsadmin.event.CustomerChangedEvent;
+import org.example.cloudopsadmin.repository.CustomerRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Invoices only list when their customer_name matches an existing customer. That used to be an IN-subquery on
+// customers in every page query; now invoices.customer_id_fk holds the match. New invoices resolve it on write,
+// customer changes relink by customer_name_norm, and a startup pass repairs anything changed outside the app.
+@Component
+public class InvoiceCustomerLinker {
+
+    private final CustomerRepository customerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate relinkTransaction;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InvoiceCustomerLinker.class);
+
+    public InvoiceCustomerLinker(CustomerRepository customerRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Runs after the customer write committed, so it needs a transaction of its own
+        this.relinkTransaction = new TransactionTemplate(transactionManager);
+        this.relinkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Long customerIdFor(String customerName) {
+        if (!StringUtils.hasText(customerName)) {
+            return null;
+        }
+        return customerRepository.findFirstByCustomerNameIgnoreCase(customerName.trim()).map(Customer::getId).orElse(null);
+    }
+
+    // Keyed by Invoice.normalizeName
+    public Map<String, Long> customerIdsFor(Collection<String> customerNames) {
+        Map<String, Long> ids = new HashMap<>();
+        if (customerNames.isEmpty()) {
+            return ids;
+        }
+        for (Object[] row : customerRepository.findIdsByCustomerNameIn(customerNames)) {
+            ids.putIfAbsent(Invoice.normalizeName((String) row[1]), (Long) row[0]);
+        }
+        return ids;
+    }
+
+    // Covers create, rename and delete: drop links that no longer match, then claim invoices with the current name
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        try {
+            relinkTransaction.executeWithoutResult(status -> relink(event.customerId()));
+        } catch (Exception e) {
+            // The next startup reconcile catches up
+            log.warn("Relinking invoices failed for customer {}", event.customerId(), e);
+        }
+    }
+
+    private void relink(Long customerId) {
+        Optional<Customer> customer = customerRepository.findById(customerId);
+        if (customer.isEmpty()) {
+            jdbcTemplate.update("UPDATE invoices SET customer_id_fk = NULL WHERE customer_id_fk = ?", customerId);
+            return;
+        }
+        String norm = Invoice.normalizeName(customer.get().getCustomerName());
+        jdbcTemplate.update("UPDATE invoices SET customer_id_fk = NULL WHERE customer_id_fk = ? AND customer_name_norm <> ?",
+                customerId, norm);
+        jdbcTemplate.update("UPDATE invoices SET customer_id_fk = ? WHERE customer_name_norm = ? " +
+                "AND (customer_id_fk IS NULL OR customer_id_fk <> ?)", customerId, norm, customerId);
+    }
+
+    // Backfills the new columns on first start and repairs links broken by direct database edits
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        try {
+            long started = System.currentTimeMillis();
+            int[] counts = relinkTransaction.execute(status -> new int[]{
+                    jdbcTemplate.update("UPDATE invoices SET customer_name_norm = LOWER(TRIM(customer_name)) " +
+                            "WHERE customer_name_norm IS NULL OR customer_name_norm <> LOWER(TRIM(customer_name))"),
+                    jdbcTemplate.update("UPDATE invoices i LEFT JOIN customers c ON c.id = i.customer_id_fk " +
+                            "SET i.customer_id_fk = NULL " +
+                            "WHERE i.customer_id_fk IS NOT NULL AND (c.id IS NULL OR LOWER(TRIM(c.customer_name)) <> i.customer_name_norm)"),
+                    jdbcTemplate.update("UPDATE invoices i JOIN customers c ON LOWER(TRIM(c.customer_name)) = i.customer_name_norm " +
+                            "SET i.customer_id_fk = c.id WHERE i.customer_id_fk IS NULL")
+            });
+            if (counts != null && (counts[0] > 0 || counts[1] > 0 || counts[2] > 0)) {
+                log.info("Reconciled invoice customer links. normalized={}, unlinked={}, linked={}, costMs={}",
+                        counts[0], counts[1], counts[2], System.currentTimeMillis() - started);
+            }
+        } catch (Exception e) {
+            log.error("Invoice customer link reconcile failed", e);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package org.example.cloudopsadmin.service;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.example.cloudopsadmin.common.BillFinancials;
+import org.example.cloudopsadmin.common.InvoiceStatus;
+import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+import org.example.cloudopsadmin.entity.Invoice;
+import org.example.cloudopsadmin.entity.InvoiceGenerationJob;
+import org.example.cloudopsadmin.entity.InvoiceGenerationStatus;
+import org.example.cloudopsadmin.entity.InvoiceLineItem;
+import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.BillsChangedEvent;
+import org.example.cloudopsadmin.repository.BillSyncVersionRepository;
+import org.example.cloudopsadmin.repository.CustomerMonthlyBillRepository;
+import org.example.cloudopsadmin.repository.InvoiceGenerationJobRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Month-end counterpart of InvoiceService.createInvoice. Customers with un-invoiced bills are split into chunks that
+// run on a bounded pool; each chunk loads its bills with one query, builds the invoices and line items in memory,
+// writes them with JDBC batch inserts and links the bills with one guarded UPDATE per invoice, all in one transaction.
+// Work is idempotent by construction: a resumed job simply re-reads which customers are still un-invoiced.
+// A RUNNING job is leased to the node whose coordinator runs it; the coordinator renews the lease while it works, and
+// any node may take over a job whose lease has run out (its node died or was stopped). Lease times come from each
+// node's clock, so the lease must stay well above both the heartbeat interval and the expected clock skew.
+@Service
+public class InvoiceGenerationService {
+
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (customer_name, customer_name_norm, customer_id_fk, invoice_date, due_date, currency, status, " +
+            "subtotal_ex_tax, tax_total, grand_total, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LINE_ITEM =
+            "INSERT INTO invoice_line_items (invoice_id_fk, product_id, label, quantity, price, discount_pct, tax_pct, amount_ex_tax, amount_inc_tax, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String START_LOCK_PREFIX = "invoice_generation:";
+
+    private final CustomerMonthlyBillRepository customerMonthlyBillRepository;
+    private final InvoiceGenerationJobRepository jobRepository;
+    private final BillSyncVersionRepository billSyncVersionRepository;
+    private final OperationLogService operationLogService;
+    private final InvoiceCustomerLinker invoiceCustomerLinker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    // Jobs with a live coordinator in this process
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+    // Owner written to the jobs this process runs; unique per process so a restarted node never inherits a lease
+    private final String nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InvoiceGenerationService.class);
+
+    @Value("${invoice.generation.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${invoice.generation.lease-ms:60000}")
+    private long leaseMs;
+
+    public InvoiceGenerationService(CustomerMonthlyBillRepository customerMonthlyBillRepository,
+                                    InvoiceGenerationJobRepository jobRepository,
+                                    BillSyncVersionRepository billSyncVersionRepository,
+                                    OperationLogService operationLogService,
+                                    InvoiceCustomerLinker invoiceCustomerLinker,
+                                    ApplicationEventPublisher eventPublisher,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Qualifier("invoiceGenerationExecutor") ThreadPoolTaskExecutor executor) {
+        this.customerMonthlyBillRepository = customerMonthlyBillRepository;
+        this.jobRepository = jobRepository;
+        this.billSyncVersionRepository = billSyncVersionRepository;
+        this.operationLogService = operationLogService;
+        this.invoiceCustomerLinker = invoiceCustomerLinker;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    public InvoiceGenerationJob start(GenerateInvoicesRequest request, User operator) {
+        YearMonth month;
+        try {
+            month = YearMonth.parse(request.getMonth() == null ? "" : request.getMonth().trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month 格式应为 yyyy-MM");
+        }
+        if (request.getTaxPct() != null && request.getTaxPct() < 0) {
+            throw new IllegalArgumentException("tax_pct 不能为负数");
+        }
+        InvoiceGenerationJob saved = transactionTemplate.execute(status -> createJob(month, request, operator));
+        launch(saved.getId());
+        return saved;
+    }
+
+    // The per-month row lock makes the RUNNING check and the insert atomic across nodes
+    private InvoiceGenerationJob createJob(YearMonth month, GenerateInvoicesRequest request, User operator) {
+        String lockKey = START_LOCK_PREFIX + month;
+        billSyncVersionRepository.insertIfAbsent(lockKey, 0L);
+        billSyncVersionRepository.lockVersion(lockKey);
+        if (jobRepository.existsByMonthAndStatus(month.toString(), InvoiceGenerationStatus.RUNNING)) {
+            throw new IllegalStateException("该月份已有进行中的批量开票任务");
+        }
+        List<String> customers = customerMonthlyBillRepository.findUninvoicedCustomers(month.toString());
+        if (customers.isEmpty()) {
+            throw new IllegalArgumentException(month + " 没有待开票的客户账单");
+        }
+
+        InvoiceGenerationJob job = new InvoiceGenerationJob();
+        job.setMonth(month.toString());
+        LocalDate invoiceDate = request.getInvoiceDate() != null ? request.getInvoiceDate() : LocalDate.now();
+        job.setInvoiceDate(invoiceDate);
+        job.setDueDate(request.getDueDate() != null ? request.getDueDate() : invoiceDate.plusDays(30));
+        job.setCurrency(StringUtils.hasText(request.getCurrency()) ? request.getCurrency().trim() : "CNY");
+        job.setTaxPct(request.getTaxPct() == null ? 0.0 : request.getTaxPct());
+        job.setTotalCustomers(customers.size());
+        job.setUpdatedAt(LocalDateTime.now());
+        job.setOwnerNode(nodeId);
+        job.setLeaseUntil(leaseUntil(LocalDateTime.now()));
+        if (operator != null) {
+            job.setOperatorEmail(operator.getEmail());
+            job.setOperatorName(operator.getName());
+        }
+        return jobRepository.save(job);
+    }
+
+    public InvoiceGenerationJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Invoice generation job not found: " + id));
+    }
+
+    // Picks up a failed job, or one whose coordinator died and let its lease run out
+    public InvoiceGenerationJob resume(Long id) {
+        InvoiceGenerationJob job = getJob(id);
+        if (job.getStatus() == InvoiceGenerationStatus.COMPLETED || activeJobs.contains(id)) {
+            throw new IllegalStateException("任务 " + id + " 当前状态为 " + job.getStatus() + "，无需恢复");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Integer restarted = transactionTemplate.execute(status -> jobRepository.restart(id, nodeId, leaseUntil(now), now));
+        if (restarted == null || restarted == 0) {
+            throw new IllegalStateException("任务 " + id + " 正在其他节点运行，无需恢复");
+        }
+        launch(id);
+        return getJob(id);
+    }
+
+    // Jobs still RUNNING with an expired lease were cut off by a crash or shutdown; checked at startup and then
+    // periodically, so a job left behind by a node that never comes back is taken over by one that is still up
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${invoice.generation.lease-ms:60000}", fixedDelayString = "${invoice.generation.lease-ms:60000}")
+    public void resumeInterruptedJobs() {
+        for (Long id : jobRepository.findExpiredRunning(LocalDateTime.now())) {
+            LocalDateTime now = LocalDateTime.now();
+            Integer claimed = transactionTemplate.execute(status -> jobRepository.claimExpired(id, nodeId, leaseUntil(now), now));
+            if (claimed == null || claimed == 0) {
+                continue;
+            }
+            InvoiceGenerationJob job = getJob(id);
+            log.info("Resuming interrupted invoice generation job. id={}, month={}, processed={}/{}",
+                    job.getId(), job.getMonth(), job.getProcessedCustomers(), job.getTotalCustomers());
+            launch(id);
+        }
+    }
+
+    // A lease that can no longer be renewed was taken over after this node stalled past it; the new owner finishes the job
+    @Scheduled(fixedDelayString = "${invoice.generation.heartbeat-interval-ms:15000}")
+    public void renewLeases() {
+        for (Long id : activeJobs) {
+            Integer renewed = transactionTemplate.execute(status ->
+                    jobRepository.renewLease(id, nodeId, leaseUntil(LocalDateTime.now())));
+            if (renewed == null || renewed == 0) {
+                log.warn("Invoice generation job lease lost. id={}, node={}", id, nodeId);
+            }
+        }
+    }
+
+    public Map<String, Object> toProgress(InvoiceGenerationJob job) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", job.getId());
+        data.put("month", job.getMonth());
+        data.put("status", job.getStatus());
+        data.put("invoice_date", job.getInvoiceDate());
+        data.put("due_date", job.getDueDate());
+        data.put("currency", job.getCurrency());
+        data.put("tax_pct", job.getTaxPct());
+        data.put("total_customers", job.getTotalCustomers());
+        data.put("processed_customers", job.getProcessedCustomers());
+        data.put("failed_customers", job.getFailedCustomers());
+        data.put("invoices_created", job.getInvoicesCreated());
+        data.put("bills_linked", job.getBillsLinked());
+        int done = job.getProcessedCustomers() + job.getFailedCustomers();
+        data.put("progress", job.getTotalCustomers() == 0 ? 100 : Math.min(100, done * 100 / job.getTotalCustomers()));
+        data.put("last_error", job.getLastError());
+        data.put("created_at", job.getCreatedAt());
+        data.put("updated_at", job.getUpdatedAt());
+        data.put("finished_at", job.getFinishedAt());
+        return data;
+    }
+
+    private void launch(Long jobId) {
+        if (!activeJobs.add(jobId)) {
+            return;
+        }
+        Thread coordinator = new Thread(() -> {
+            try {
+                run(jobId);
+            } finally {
+                activeJobs.remove(jobId);
+            }
+        }, "invoice-gen-job-" + jobId);
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    private void run(Long jobId) {
+        long started = System.currentTimeMillis();
+        InvoiceGenerationJob job = getJob(jobId);
+        try {
+            List<String> customers = customerMonthlyBillRepository.findUninvoicedCustomers(job.getMonth());
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < customers.size(); from += chunkSize) {
+                List<String> chunk = customers.subList(from, Math.min(customers.size(), from + chunkSize));
+                chunks.add(executor.submit(() -> processChunk(job, chunk)));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            // Left RUNNING on purpose: once the lease runs out a node takes it over and resumes it
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Invoice generation job failed. id={}", jobId, e);
+            transactionTemplate.executeWithoutResult(status ->
+                    jobRepository.addFailures(jobId, 0, truncate(e.getMessage()), LocalDateTime.now()));
+        }
+
+        InvoiceGenerationJob result = getJob(jobId);
+        InvoiceGenerationStatus outcome = result.getFailedCustomers() > 0 || result.getLastError() != null
+                ? InvoiceGenerationStatus.FAILED : InvoiceGenerationStatus.COMPLETED;
+        Integer finished = transactionTemplate.execute(status -> jobRepository.finish(jobId, nodeId, outcome, LocalDateTime.now()));
+        if (finished == null || finished == 0) {
+            log.warn("Invoice generation job was taken over by another node before it finished here. id={}", jobId);
+            return;
+        }
+        log.info("Invoice generation job finished. id={}, month={}, status={}, invoices={}, bills={}, failedCustomers={}, costMs={}",
+                jobId, result.getMonth(), outcome, result.getInvoicesCreated(), result.getBillsLinked(),
+                result.getFailedCustomers(), System.currentTimeMillis() - started);
+        if (result.getOperatorEmail() != null) {
+            operationLogService.log(
+                    result.getOperatorEmail(),
+                    result.getOperatorName(),
+                    "GENERATE",
+                    "invoice_generation_job",
+                    String.valueOf(jobId),
+                    "批量开票 " + result.getMonth() + ": 生成发票 " + result.getInvoicesCreated() + " 张, 失败客户 " + result.getFailedCustomers() + " 个"
+            );
+        }
+    }
+
+    // A failed chunk rolls back as a whole; its customers stay un-invoiced and are retried on resume
+    private void processChunk(InvoiceGenerationJob job, List<String> customers) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> generateChunk(job, customers));
+        } catch (Exception e) {
+            log.error("Invoice generation chunk failed. job={}, customers={}..{}", job.getId(),
+                    customers.get(0), customers.get(customers.size() - 1), e);
+            transactionTemplate.executeWithoutResult(status ->
+                    jobRepository.addFailures(job.getId(), customers.size(), truncate(e.getMessage()), LocalDateTime.now()));
+        }
+    }
+
+    private void generateChunk(InvoiceGenerationJob job, List<String> customers) {
+        List<CustomerMonthlyBill> bills = customerMonthlyBillRepository
+                .findByMonthAndCustomerNameInAndInvoiceIdIsNullOrderByCustomerNameAscIdAsc(job.getMonth(), customers);
+        Map<String, List<CustomerMonthlyBill>> byCustomer = new LinkedHashMap<>();
+        for (CustomerMonthlyBill bill : bills) {
+            byCustomer.computeIfAbsent(bill.getCustomerName(), k -> new ArrayList<>()).add(bill);
+        }
+
+        Map<String, Long> customerIds = invoiceCustomerLinker.customerIdsFor(byCustomer.keySet());
+        List<Invoice> invoices = new ArrayList<>(byCustomer.size());
+        for (Map.Entry<String, List<CustomerMonthlyBill>> entry : byCustomer.entrySet()) {
+            Invoice invoice = buildInvoice(job, entry.getKey(), entry.getValue());
+            invoice.setCustomerNameNorm(Invoice.normalizeName(invoice.getCustomerName()));
+            invoice.setCustomerId(customerIds.get(invoice.getCustomerNameNorm()));
+            invoices.add(invoice);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        insertInvoices(invoices, now);
+        insertLineItems(invoices, now);
+
+        int linked = 0;
+        for (Invoice invoice : invoices) {
+            List<Long> billIds = byCustomer.get(invoice.getCustomerName()).stream().map(CustomerMonthlyBill::getId).toList();
+            int updated = customerMonthlyBillRepository.linkToInvoice(billIds, invoice.getId(), InvoiceStatus.DRAFT);
+            if (updated != billIds.size()) {
+                throw new IllegalStateException("客户 " + invoice.getCustomerName() + " 的账单已被其他操作开票");
+            }
+            linked += updated;
+        }
+        jobRepository.addProgress(job.getId(), customers.size(), invoices.size(), linked, now);
+        if (!invoices.isEmpty()) {
+            eventPublisher.publishEvent(new BillsChangedEvent(Set.of(job.getMonth())));
+        }
+    }
+
+    // One line per linked account, priced at what the customer pays for it that month
+    private Invoice buildInvoice(InvoiceGenerationJob job, String customerName, List<CustomerMonthlyBill> bills) {
+        Invoice invoice = new Invoice();
+        invoice.setCustomerName(customerName);
+        invoice.setInvoiceDate(job.getInvoiceDate());
+        invoice.setDueDate(job.getDueDate());
+        invoice.setCurrency(job.getCurrency());
+        invoice.setStatus(InvoiceStatus.DRAFT);
+
+        double taxPct = job.getTaxPct() == null ? 0.0 : job.getTaxPct();
+        double subtotalExTax = 0.0;
+        double taxTotal = 0.0;
+        for (CustomerMonthlyBill bill : bills) {
+            double exTax = round2(BillFinancials.of(bill).customerPayable);
+            double tax = exTax * (taxPct / 100.0);
+
+            InvoiceLineItem item = new InvoiceLineItem();
+            item.setInvoice(invoice);
+            item.setProductId(bill.getCloudVendor());
+            item.setLabel(bill.getCloudVendor() + " " + bill.getLinkedAccountUid() + " (" + bill.getMonth() + ")");
+            item.setQuantity(1);
+            item.setPrice(exTax);
+            item.setDiscountPct(0.0);
+            item.setTaxPct(taxPct);
+            item.setAmountExTax(exTax);
+            item.setAmountIncTax(round2(exTax + tax));
+            invoice.getItems().add(item);
+
+            subtotalExTax += exTax;
+            taxTotal += tax;
+        }
+        invoice.setSubtotalExTax(round2(subtotalExTax));
+        invoice.setTaxTotal(round2(taxTotal));
+        invoice.setGrandTotal(round2(subtotalExTax + taxTotal));
+        return invoice;
+    }
+
+    // invoices.id is IDENTITY, which Hibernate can't batch; a JDBC batch with generated keys can
+    private void insertInvoices(List<Invoice> invoices, LocalDateTime now) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_INVOICE, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Invoice invoice = invoices.get(i);
+                        ps.setString(1, invoice.getCustomerName());
+                        ps.setString(2, invoice.getCustomerNameNorm());
+                        ps.setObject(3, invoice.getCustomerId());
+                        ps.setDate(4, Date.valueOf(invoice.getInvoiceDate()));
+                        ps.setDate(5, Date.valueOf(invoice.getDueDate()));
+                        ps.setString(6, invoice.getCurrency());
+                        ps.setString(7, invoice.getStatus().name());
+                        ps.setDouble(8, invoice.getSubtotalExTax());
+                        ps.setDouble(9, invoice.getTaxTotal());
+                        ps.setDouble(10, invoice.getGrandTotal());
+                        ps.setTimestamp(11, Timestamp.valueOf(now));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return invoices.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != invoices.size()) {
+            throw new IllegalStateException("Expected " + invoices.size() + " invoice ids, got " + generated.size());
+        }
+        for (int i = 0; i < invoices.size(); i++) {
+            invoices.get(i).setId(((Number) generated.get(i).values().iterator().next()).longValue());
+            invoices.get(i).setCreatedAt(now);
+        }
+    }
+
+    private void insertLineItems(List<Invoice> invoices, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            for (InvoiceLineItem item : invoice.getItems()) {
+                rows.add(new Object[]{
+                        invoice.getId(), item.getProductId(), item.getLabel(), item.getQuantity(), item.getPrice(),
+                        item.getDiscountPct(), item.getTaxPct(), item.getAmountExTax(), item.getAmountIncTax(), createdAt
+                });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LINE_ITEM, rows);
+        }
+    }
+
+    private static double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return "unknown error";
+        }
+        return message.length() > 1024 ? message.substring(0, 1024) : message;
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(leaseMs));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    @Data
+    public static class GenerateInvoicesRequest {
+        @Schema(description = "账单月份，格式：YYYY-MM")
+        @JsonProperty("month")
+        private String month;
+
+        @Schema(description = "发票日期，格式：YYYY-MM-DD，默认今天")
+        @JsonProperty("invoice_date")
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate invoiceDate;
+
+        @Schema(description = "到期日期，格式：YYYY-MM-DD，默认发票日期后30天")
+        @JsonProperty("due_date")
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate dueDate;
+
+        @Schema(description = "币种，默认 CNY")
+        @JsonProperty("currency")
+        private String currency;
+
+        @Schema(description = "税项%，默认 0")
+        @JsonProperty("tax_pct")
+        private Double taxPct;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.entity.Invoice;
+import org.example.cloudopsadmin.repository.IdSequenceRepository;
+import org.example.cloudopsadmin.repository.InvoiceRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Payment references are "INV/<yyyy>/<seq>", seq zero-padded to 3 digits and widening past 999. The counter is one
+// id_sequences row per year ("inv_<yyyy>"), advanced by a single UPDATE inside the posting transaction: a rolled-back
+// post rolls its numbers back too, so the legal sequence has no gaps. The row lock is held until that commit, which
+// orders posting per year across every node without a JVM-wide lock; bulk posting takes its whole range in one UPDATE.
+@Service
+@RequiredArgsConstructor
+public class InvoiceNumberService {
+
+    private final IdSequenceRepository idSequenceRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String next(LocalDate invoiceDate) {
+        return reserve(invoiceDate, 1).get(0);
+    }
+
+    // Ascending references for count invoices dated in the same year. A number already carried by another invoice
+    // (typed in by hand on a draft) is skipped and the counter advanced past it, so it never blocks later posts.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> reserve(LocalDate invoiceDate, int count) {
+        if (count < 1) {
+            return List.of();
+        }
+        int year = (invoiceDate != null ? invoiceDate : LocalDate.now()).getYear();
+        String seqKey = "inv_" + year;
+        if (!idSequenceRepository.existsById(seqKey)) {
+            idSequenceRepository.insertIfAbsent(seqKey, maxExistingNumber(year) + 1);
+        }
+
+        List<String> references = new ArrayList<>(count);
+        while (references.size() < count) {
+            int needed = count - references.size();
+            idSequenceRepository.advance(seqKey, needed);
+            long first = idSequenceRepository.lastInsertId() - needed;
+            List<String> candidates = new ArrayList<>(needed);
+            for (int i = 0; i < needed; i++) {
+                candidates.add(format(year, first + i));
+            }
+            Set<String> taken = new HashSet<>(invoiceRepository.findPaymentReferencesIn(candidates));
+            for (String candidate : candidates) {
+                if (!taken.contains(candidate)) {
+                    references.add(candidate);
+                }
+            }
+        }
+        return references;
+    }
+
+    static String format(int year, long seq) {
+        return "INV/" + year + "/" + String.format("%03d", seq);
+    }
+
+    // References can also be typed in on a draft, so every post checks that no other invoice already carries them
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkUnique(Collection<Invoice> invoices) {
+        Map<String, Long> owners = new HashMap<>();
+        TreeSet<String> duplicates = new TreeSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            ids.add(invoice.getId());
+            String reference = invoice.getPaymentReference();
+            if (StringUtils.hasText(reference) && owners.put(reference, invoice.getId()) != null) {
+                duplicates.add(reference);
+            }
+        }
+        if (!owners.isEmpty()) {
+            duplicates.addAll(invoiceRepository.findPaymentReferencesInUse(owners.keySet(), ids));
+        }
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("付款参考号已被其他发票使用: " + String.join(", ", duplicates));
+        }
+    }
+
+    // Seeds a new year row from references issued before the counter existed; compares numerically, not as strings
+    private long maxExistingNumber(int year) {
+        String prefix = "INV/" + year + "/";
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(SUBSTRING(payment_reference, ?) AS UNSIGNED)) FROM invoices " +
+                        "WHERE payment_reference LIKE ? AND payment_reference REGEXP ?",
+                Long.class, prefix.length() + 1, prefix + "%", "^INV/" + year + "/[0-9]+$");
+        return max == null ? 0 : max;
+    }
+}
@@ -4,19 +4,19 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
-import jakarta.persistence.criteria.Subquery;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.common.InvoiceStatus;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.Invoice;
-import org.example.cloudopsadmin.entity.Customer;
 import org.example.cloudopsadmin.entity.InvoiceLineItem;
 import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.BillsChangedEvent;
 import org.example.cloudopsadmin.repository.CustomerMonthlyBillRepository;
 import org.example.cloudopsadmin.repository.InvoiceRepository;
 import org.example.cloudopsadmin.service.OperationLogService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -27,10 +27,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Optional;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -40,6 +45,10 @@ public class InvoiceService {
     private final CustomerMonthlyBillRepository customerMonthlyBillRepository;
     private final OperationLogService operationLogService;
     private final MonthlyPaymentService monthlyPaymentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KeysetPager keysetPager;
+    private final InvoiceNumberService invoiceNumberService;
+    private final InvoiceCustomerLinker invoiceCustomerLinker;
 
     @Transactional(readOnly = true)
     public Page<Invoice> getInvoiceList(int page, int pageSize, String search, String status, String sortBy, String sortOrder) {
@@ -47,18 +56,30 @@ public class InvoiceService {
                 sortBy == null || sortBy.isEmpty() ? "id" : sortBy);
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<Invoice> spec = (root, query, cb) -> {
+        return invoiceRepository.findAll(invoiceFilter(search, status), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Invoice> getInvoiceListByCursor(String cursor, int pageSize, String search, String status, String sortBy,
+                                                      String sortOrder, CursorPage.CountMode countMode) {
+        // Always filtered: only invoices of existing customers are listed
+        return keysetPager.fetch(invoiceRepository, invoiceFilter(search, status),
+                sortBy == null || sortBy.isEmpty() ? "id" : sortBy,
+                Sort.Direction.fromString(sortOrder == null ? "DESC" : sortOrder), cursor, pageSize, countMode,
+                "invoices", true);
+    }
+
+    private Specification<Invoice> invoiceFilter(String search, String status) {
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
-            // Filter: Only show invoices where customerName exists in Customer table
-            Subquery<String> customerSubquery = query.subquery(String.class);
-            Root<Customer> customerRoot = customerSubquery.from(Customer.class);
-            customerSubquery.select(customerRoot.get("customerName"));
-            predicates.add(root.get("customerName").in(customerSubquery));
+            // Only invoices whose customer exists; the link is maintained by InvoiceCustomerLinker
+            predicates.add(cb.isNotNull(root.get("customerId")));
 
+            // Prefix match on the normalized name so idx_inv_customer_name_norm applies
             if (StringUtils.hasText(search)) {
-                String likePattern = "%" + search.toLowerCase() + "%";
-                predicates.add(cb.like(cb.lower(root.get("customerName")), likePattern));
+                String prefix = escapeLike(Invoice.normalizeName(search)) + "%";
+                predicates.add(cb.like(root.get("customerNameNorm"), prefix, '\\'));
             }
 
             if (StringUtils.hasText(status)) {
@@ -71,8 +92,10 @@ public class InvoiceService {
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
+    }
 
-        return invoiceRepository.findAll(spec, pageable);
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Transactional(readOnly = true)
@@ -81,25 +104,24 @@ public class InvoiceService {
                 .orElseThrow(() -> new IllegalArgumentException("Invoice not found: " + id));
     }
 
+    // Status transitions read the invoice under a row lock, so the status they check can't change before they commit
+    private Invoice getInvoiceForUpdate(Long id) {
+        return invoiceRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new IllegalArgumentException("Invoice not found: " + id));
+    }
+
     @Transactional
     public void deleteInvoices(Set<Long> ids, User operator) {
         if (ids == null || ids.isEmpty()) {
             return;
         }
-        List<CustomerMonthlyBill> relatedBills = customerMonthlyBillRepository.findAll((root, query, cb) ->
-                root.get("invoiceId").in(ids)
-        );
-        for (CustomerMonthlyBill bill : relatedBills) {
-            bill.setInvoiceId(null);
-            bill.setIsInvoiced(false);
-            bill.setInvoiceStatus(InvoiceStatus.DRAFT);
-            customerMonthlyBillRepository.save(bill);
-        }
-        customerMonthlyBillRepository.flush();
+        Set<String> months = customerMonthlyBillRepository.findMonthsByInvoiceIdIn(ids);
+        customerMonthlyBillRepository.detachFromInvoices(ids, InvoiceStatus.DRAFT);
+        publishBillsChanged(months);
         if (ids != null && !ids.isEmpty()) {
             if (operator != null) {
                 for (Long id : ids) {
-                    operationLogService.log(
+                    operationLogService.logAtomic(
                             operator.getEmail(),
                             operator.getName(),
                             "DELETE",
@@ -150,6 +172,7 @@ public class InvoiceService {
             isNew = true;
             invoice = new Invoice();
             invoice.setCustomerName(customerName);
+            invoice.setCustomerId(invoiceCustomerLinker.customerIdFor(customerName));
             LocalDate invDate = request.getInvoiceDate() != null ? request.getInvoiceDate() : LocalDate.now();
             invoice.setInvoiceDate(invDate);
             LocalDate due = request.getDueDate() != null ? request.getDueDate() : invDate.plusDays(30);
@@ -190,6 +213,7 @@ public class InvoiceService {
         }
         
         customerMonthlyBillRepository.flush();
+        eventPublisher.publishEvent(new BillsChangedEvent(Set.of(month)));
 
         // 5. Add line items
         if (request.getItems() != null && !request.getItems().isEmpty()) {
@@ -263,6 +287,7 @@ public class InvoiceService {
         Invoice invoice = new Invoice();
         String name = request.getCustomerName() != null ? request.getCustomerName().trim() : "";
         invoice.setCustomerName(name);
+        invoice.setCustomerId(invoiceCustomerLinker.customerIdFor(name));
         LocalDate invDate = request.getInvoiceDate() != null ? request.getInvoiceDate() : LocalDate.now();
         invoice.setInvoiceDate(invDate);
         LocalDate due = request.getDueDate() != null ? request.getDueDate() : invDate.plusDays(30);
@@ -329,56 +354,20 @@ public class InvoiceService {
         return Math.round(v * 100.0) / 100.0;
     }
 
-    private synchronized String generateInvoiceNumber(LocalDate invoiceDate) {
-        LocalDate date = invoiceDate != null ? invoiceDate : LocalDate.now();
-        String year = String.valueOf(date.getYear());
-        String prefix = "INV/" + year + "/";
-        String pattern = prefix + "%";
-        Optional<String> last = invoiceRepository.findLastPaymentReference(pattern);
-        int next = 1;
-        if (last.isPresent()) {
-            String ref = last.get();
-            String suffix = ref.substring(prefix.length());
-            try {
-                next = Integer.parseInt(suffix) + 1;
-            } catch (NumberFormatException ignored) {
-                next = 1;
-            }
-        }
-        String seq = String.format("%03d", next);
-        return prefix + seq;
-    }
-
     @Transactional
     public Invoice postInvoice(Long id, User operator) {
-        Invoice invoice = getInvoice(id);
-        if (invoice.getStatus() == InvoiceStatus.POSTED
-                || invoice.getStatus() == InvoiceStatus.SENT
-                || invoice.getStatus() == InvoiceStatus.PAID
-                || invoice.getStatus() == InvoiceStatus.OVERDUE) {
+        Invoice invoice = getInvoiceForUpdate(id);
+        // Already issued (POSTED or later): posting again is a no-op
+        if (!invoice.getStatus().canTransitionTo(InvoiceStatus.POSTED)) {
             return invoice;
         }
 
-        if (!StringUtils.hasText(invoice.getPaymentReference())) {
-            String number = generateInvoiceNumber(invoice.getInvoiceDate());
-            invoice.setPaymentReference(number);
-        }
-
-        invoice.setStatus(InvoiceStatus.POSTED);
-
-        List<CustomerMonthlyBill> relatedBills = customerMonthlyBillRepository.findAll((root, query, cb) ->
-                cb.equal(root.get("invoiceId"), id)
-        );
-        for (CustomerMonthlyBill bill : relatedBills) {
-            bill.setIsInvoiced(true);
-            bill.setInvoiceStatus(InvoiceStatus.POSTED);
-            customerMonthlyBillRepository.save(bill);
-        }
-        customerMonthlyBillRepository.flush();
+        markPosted(List.of(invoice));
+        transitionBills(List.of(id), InvoiceStatus.POSTED, true);
 
         Invoice saved = invoiceRepository.save(invoice);
         if (operator != null) {
-            operationLogService.log(
+            operationLogService.logAtomic(
                     operator.getEmail(),
                     operator.getName(),
                     "POSTED",
@@ -392,12 +381,12 @@ public class InvoiceService {
 
     @Transactional
     public Invoice registerPayment(Long id, RegisterPaymentRequest request, User operator) {
-        Invoice invoice = getInvoice(id);
+        Invoice invoice = getInvoiceForUpdate(id);
         
         // Allow payment if status is POSTED, SENT, or PARTIALLY_PAID (if exists). 
         // Also allow updating payment details even if already PAID.
-        if (invoice.getStatus() == InvoiceStatus.DRAFT) {
-             throw new IllegalStateException("Cannot register payment for DRAFT invoice. Please post it first.");
+        if (!invoice.getStatus().canTransitionTo(InvoiceStatus.PAID)) {
+             throw new IllegalStateException("Cannot register payment for " + invoice.getStatus() + " invoice. Please post it first.");
         }
 
         // Update Invoice Status
@@ -407,14 +396,7 @@ public class InvoiceService {
         invoice.setStatus(InvoiceStatus.PAID);
         
         // Update related bills
-        List<CustomerMonthlyBill> relatedBills = customerMonthlyBillRepository.findAll((root, query, cb) ->
-                cb.equal(root.get("invoiceId"), id)
-        );
-        for (CustomerMonthlyBill bill : relatedBills) {
-            bill.setInvoiceStatus(InvoiceStatus.PAID);
-            customerMonthlyBillRepository.save(bill);
-        }
-        customerMonthlyBillRepository.flush();
+        transitionBills(List.of(id), InvoiceStatus.PAID, false);
 
         // Update Monthly Payment Record
         String month = invoice.getInvoiceDate().toString().substring(0, 7); // YYYY-MM
@@ -429,7 +411,7 @@ public class InvoiceService {
 
         Invoice saved = invoiceRepository.save(invoice);
         if (operator != null) {
-            operationLogService.log(
+            operationLogService.logAtomic(
                     operator.getEmail(),
                     operator.getName(),
                     "PAYMENT",
@@ -443,22 +425,16 @@ public class InvoiceService {
 
     @Transactional
     public Invoice resetToDraft(Long id, User operator) {
-        Invoice invoice = getInvoice(id);
+        Invoice invoice = getInvoiceForUpdate(id);
         
         if (invoice.getStatus() == InvoiceStatus.DRAFT) {
             return invoice;
         }
 
+        invoice.getStatus().checkTransitionTo(InvoiceStatus.DRAFT);
         invoice.setStatus(InvoiceStatus.DRAFT);
         
-        List<CustomerMonthlyBill> relatedBills = customerMonthlyBillRepository.findAll((root, query, cb) ->
-                cb.equal(root.get("invoiceId"), id)
-        );
-        for (CustomerMonthlyBill bill : relatedBills) {
-            bill.setInvoiceStatus(InvoiceStatus.DRAFT);
-            customerMonthlyBillRepository.save(bill);
-        }
-        customerMonthlyBillRepository.flush();
+        transitionBills(List.of(id), InvoiceStatus.DRAFT, false);
 
         Invoice saved = invoiceRepository.save(invoice);
         if (operator != null) {
@@ -479,6 +455,7 @@ public class InvoiceService {
         Invoice invoice = getInvoice(id);
         if (request.getCustomerName() != null) {
             invoice.setCustomerName(request.getCustomerName().trim());
+            invoice.setCustomerId(invoiceCustomerLinker.customerIdFor(invoice.getCustomerName()));
         }
         if (request.getInvoiceDate() != null) {
             invoice.setInvoiceDate(request.getInvoiceDate());
@@ -548,7 +525,81 @@ public class InvoiceService {
         return saved;
     }
 
+    // Posts every DRAFT invoice dated in the month (yyyy-MM) in one transaction: the payment references come from one
+    // range reservation, then all their bills move to POSTED with a single UPDATE.
+    @Transactional
+    public Map<String, Object> postDraftInvoicesForMonth(String month, User operator) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month == null ? "" : month.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month 格式应为 yyyy-MM");
+        }
+        List<Invoice> drafts = invoiceRepository.findForUpdateByStatusAndInvoiceDate(InvoiceStatus.DRAFT,
+                yearMonth.atDay(1), yearMonth.plusMonths(1).atDay(1));
+        markPosted(drafts);
+        List<Long> ids = drafts.stream().map(Invoice::getId).toList();
+        invoiceRepository.saveAll(drafts);
+        int bills = transitionBills(ids, InvoiceStatus.POSTED, true);
+
+        if (operator != null && !ids.isEmpty()) {
+            operationLogService.logAtomic(
+                    operator.getEmail(),
+                    operator.getName(),
+                    "POSTED",
+                    "invoice",
+                    null,
+                    "批量过账 " + yearMonth + " 草稿发票 " + ids.size() + " 张"
+            );
+        }
 
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("month", yearMonth.toString());
+        data.put("posted", ids.size());
+        data.put("bills_updated", bills);
+        data.put("invoice_ids", ids);
+        return data;
+    }
+
+    // Unnumbered invoices get consecutive references from one reservation per invoice year
+    private void markPosted(List<Invoice> invoices) {
+        Map<Integer, List<Invoice>> unnumberedByYear = new TreeMap<>();
+        for (Invoice invoice : invoices) {
+            invoice.getStatus().checkTransitionTo(InvoiceStatus.POSTED);
+            if (!StringUtils.hasText(invoice.getPaymentReference())) {
+                unnumberedByYear.computeIfAbsent(invoice.getInvoiceDate().getYear(), y -> new ArrayList<>()).add(invoice);
+            }
+        }
+        for (List<Invoice> unnumbered : unnumberedByYear.values()) {
+            List<String> references = invoiceNumberService.reserve(unnumbered.get(0).getInvoiceDate(), unnumbered.size());
+            for (int i = 0; i < unnumbered.size(); i++) {
+                unnumbered.get(i).setPaymentReference(references.get(i));
+            }
+        }
+        if (!invoices.isEmpty()) {
+            invoiceNumberService.checkUnique(invoices);
+        }
+        invoices.forEach(invoice -> invoice.setStatus(InvoiceStatus.POSTED));
+    }
+
+    // Moves the bills of these invoices to the invoice's new status with one bulk UPDATE
+    private int transitionBills(Collection<Long> invoiceIds, InvoiceStatus status, boolean markInvoiced) {
+        if (invoiceIds.isEmpty()) {
+            return 0;
+        }
+        Set<String> months = customerMonthlyBillRepository.findMonthsByInvoiceIdIn(invoiceIds);
+        int updated = markInvoiced
+                ? customerMonthlyBillRepository.markInvoiced(invoiceIds, status)
+                : customerMonthlyBillRepository.updateInvoiceStatus(invoiceIds, status);
+        publishBillsChanged(months);
+        return updated;
+    }
+
+    private void publishBillsChanged(Set<String> months) {
+        if (!months.isEmpty()) {
+            eventPublisher.publishEvent(new BillsChangedEvent(months));
+        }
+    }
 
     @Data
     public static class CreateInvoiceRequest {
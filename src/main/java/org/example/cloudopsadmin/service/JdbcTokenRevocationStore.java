@@ -0,0 +1,116 @@
+package org.example.cloudopsadmin.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Revocations persisted in revoked_tokens so they survive restarts and are shared by all nodes.
+// Lookups hit a local in-memory mirror that is refreshed from the table on a short interval. When the mirror is
+// full the table stays authoritative: lookups that miss the mirror query it until a full reload fits again.
+public class JdbcTokenRevocationStore implements TokenRevocationStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InMemoryTokenRevocationStore mirror;
+    // Set while some unexpired rows are not in the mirror
+    private volatile boolean overflowed;
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile Timestamp lastSyncedAt = Timestamp.valueOf(LocalDateTime.of(1970, 1, 2, 0, 0));
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JdbcTokenRevocationStore.class);
+
+    public JdbcTokenRevocationStore(JdbcTemplate jdbcTemplate, int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mirror = new InMemoryTokenRevocationStore(maxEntries);
+    }
+
+    @Override
+    public void revoke(String tokenHash, long expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO revoked_tokens (token_hash, expires_at, created_at) VALUES (?, ?, NOW()) " +
+                "ON DUPLICATE KEY UPDATE expires_at = VALUES(expires_at)",
+                tokenHash, expiresAt);
+        mirrorOrOverflow(tokenHash, expiresAt);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenHash) {
+        if (mirror.isRevoked(tokenHash)) {
+            return true;
+        }
+        if (!overflowed) {
+            return false;
+        }
+        Integer hits = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM revoked_tokens WHERE token_hash = ? AND expires_at > ?",
+                Integer.class, tokenHash, System.currentTimeMillis());
+        return hits != null && hits > 0;
+    }
+
+    private void mirrorOrOverflow(String tokenHash, long expiresAt) {
+        try {
+            mirror.revoke(tokenHash, expiresAt);
+        } catch (IllegalStateException e) {
+            if (!overflowed) {
+                log.warn("Token revocation mirror full, falling back to revoked_tokens lookups");
+            }
+            overflowed = true;
+            overflows.incrementAndGet();
+        }
+    }
+
+    @Override
+    public int size() {
+        return mirror.size();
+    }
+
+    // Pull revocations made on other nodes; the first run loads everything still unexpired
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        try {
+            // After an overflow, reload everything; lookups keep hitting the table until it all fits again
+            boolean reload = overflowed;
+            long overflowsBefore = overflows.get();
+            if (reload) {
+                mirror.sweep();
+            }
+            Timestamp since = reload ? Timestamp.valueOf(LocalDateTime.of(1970, 1, 2, 0, 0)) : lastSyncedAt;
+            // Overlap a little so rows committed slightly out of order are not missed
+            Timestamp from = new Timestamp(since.getTime() - 5000);
+            Timestamp[] newest = {since};
+            jdbcTemplate.query(
+                    "SELECT token_hash, expires_at, created_at FROM revoked_tokens WHERE created_at >= ? AND expires_at > ?",
+                    rs -> {
+                        String tokenHash = rs.getString("token_hash");
+                        if (!mirror.isRevoked(tokenHash)) {
+                            mirrorOrOverflow(tokenHash, rs.getLong("expires_at"));
+                        }
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        if (createdAt != null && createdAt.after(newest[0])) {
+                            newest[0] = createdAt;
+                        }
+                    },
+                    from, System.currentTimeMillis());
+            if (newest[0].after(lastSyncedAt)) {
+                lastSyncedAt = newest[0];
+            }
+            if (reload && overflows.get() == overflowsBefore) {
+                overflowed = false;
+                log.info("Token revocation mirror caught up, entries={}", mirror.size());
+            }
+        } catch (Exception e) {
+            log.warn("Token revocation sync failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sweep-interval-ms:30000}")
+    public void sweep() {
+        mirror.sweep();
+        try {
+            jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at <= ?", System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Token revocation cleanup failed", e);
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package org.example.cloudopsadmin.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.example.cloudopsadmin.entity.User;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -25,11 +33,32 @@ public class JwtService {
     @Value("${jwt.access-token-expiration:900000}")
     private long accessTokenExpiration;
 
-    private final ConcurrentHashMap<String, Long> blacklistedTokens = new ConcurrentHashMap<>();
+    @Value("${jwt.claims-cache.max-entries:10000}")
+    private int claimsCacheMaxEntries;
+
+    // Opt-in: put the authority set in access tokens so requests can be authenticated from claims alone
+    @Value("${jwt.embed-authorities:false}")
+    private boolean embedAuthorities;
+
+    private final AuthzVersionRegistry authzVersionRegistry;
+    private final TokenRevocationStore tokenRevocationStore;
+
+    // Verified claims keyed by token digest, each entry lives until the token's own exp
+    private final ConcurrentHashMap<String, CachedClaims> claimsCache = new ConcurrentHashMap<>();
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JwtService.class);
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    public JwtService(AuthzVersionRegistry authzVersionRegistry, TokenRevocationStore tokenRevocationStore) {
+        this.authzVersionRegistry = authzVersionRegistry;
+        this.tokenRevocationStore = tokenRevocationStore;
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String extractUsername(String token) {
@@ -42,29 +71,91 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        CachedClaims cached = claimsCache.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            claimsCache.remove(digest, cached);
+        }
+
+        // Throws ExpiredJwtException / SignatureException etc. exactly as before; failures are never cached
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            cacheClaims(digest, new CachedClaims(claims, expiration.getTime()), now);
+        }
+        return claims;
+    }
+
+    private void cacheClaims(String digest, CachedClaims entry, long now) {
+        if (claimsCache.size() >= claimsCacheMaxEntries) {
+            claimsCache.values().removeIf(e -> e.expiresAt <= now);
+            if (claimsCache.size() >= claimsCacheMaxEntries) {
+                return;
+            }
+        }
+        claimsCache.put(digest, entry);
+    }
+
+    // Fixed-size key for a token, so caches never hold the raw bearer string
+    public static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public String generateAccessToken(User user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", user.getId());
         claims.put("role", user.getRoles().isEmpty() ? "USER" : user.getRoles().get(0).getName());
+        if (embedAuthorities) {
+            claims.put("name", user.getName());
+            claims.put("auth", user.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList());
+            claims.put("azv", authzVersionRegistry.currentVersion());
+        }
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(user.getEmail())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + accessTokenExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Principal rebuilt from an embedded-authority token, or null when the caller must load the user instead
+    // (mode off, token without the claims, authorities changed since issue, or token revoked)
+    public EmbeddedPrincipal extractEmbeddedPrincipal(String token) {
+        if (!embedAuthorities) {
+            return null;
+        }
+        Claims claims = extractAllClaims(token);
+        Number version = claims.get("azv", Number.class);
+        List<?> authorities = claims.get("auth", List.class);
+        Number userId = claims.get("userId", Number.class);
+        if (version == null || authorities == null || userId == null || claims.getSubject() == null) {
+            return null;
+        }
+        if (!authzVersionRegistry.isCurrent(claims.getSubject(), version.longValue()) || isTokenBlacklisted(token)) {
+            return null;
+        }
+        return new EmbeddedPrincipal(
+                userId.longValue(),
+                claims.getSubject(),
+                claims.get("name", String.class),
+                authorities.stream().map(String::valueOf).toList()
+        );
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        boolean expired = isTokenExpired(token);
+        final Claims claims = extractAllClaims(token);
+        final String username = claims.getSubject();
+        boolean expired = claims.getExpiration().before(new Date());
         boolean blacklisted = isTokenBlacklisted(token);
         boolean usernameMatch = username != null && userDetails != null && username.equals(userDetails.getUsername());
         boolean valid = usernameMatch && !expired && !blacklisted;
@@ -80,10 +171,6 @@ public class JwtService {
         return valid;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     private Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
@@ -94,21 +181,19 @@ public class JwtService {
         }
         Date expiration = extractExpiration(token);
         long expiresAt = expiration != null ? expiration.getTime() : (System.currentTimeMillis() + accessTokenExpiration);
-        blacklistedTokens.put(token, expiresAt);
+        tokenRevocationStore.revoke(digest(token), expiresAt);
     }
 
     public boolean isTokenBlacklisted(String token) {
         if (token == null || token.isBlank()) {
             return false;
         }
-        Long expiresAt = blacklistedTokens.get(token);
-        if (expiresAt == null) {
-            return false;
-        }
-        if (expiresAt <= System.currentTimeMillis()) {
-            blacklistedTokens.remove(token, expiresAt);
-            return false;
-        }
-        return true;
+        return tokenRevocationStore.isRevoked(digest(token));
+    }
+
+    public record EmbeddedPrincipal(Long userId, String email, String name, List<String> authorities) {
+    }
+
+    private record CachedClaims(Claims claims, long expiresAt) {
     }
 }
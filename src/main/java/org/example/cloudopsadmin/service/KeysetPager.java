@@ -0,0 +1,94 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.CursorPage;
+import org.example.cloudopsadmin.common.KeysetCursor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+// Cursor pagination for the list endpoints: WHERE (sort, id) beyond the cursor ORDER BY sort, id LIMIT n+1,
+// so page 1000 costs the same as page 1. No OFFSET, and the COUNT(*) only runs when the caller wants it.
+@Component
+@RequiredArgsConstructor
+public class KeysetPager {
+
+    private static final String TABLE_ROWS =
+            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // filtered: whether the spec narrows the table; an unfiltered approx count can use the table statistics
+    public <T> CursorPage<T> fetch(JpaSpecificationExecutor<T> repository,
+                                   Specification<T> filter,
+                                   String sortField,
+                                   Sort.Direction direction,
+                                   String cursor,
+                                   int pageSize,
+                                   CursorPage.CountMode countMode,
+                                   String table,
+                                   boolean filtered) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page_size 必须大于 0");
+        }
+        boolean firstPage = !StringUtils.hasText(cursor);
+        Specification<T> spec = filter;
+        if (!firstPage) {
+            KeysetCursor position = KeysetCursor.decode(cursor.trim());
+            if (!position.sortField().equals(sortField) || position.direction() != direction) {
+                throw new IllegalArgumentException("cursor 与当前排序不一致，请从第一页重新加载");
+            }
+            spec = spec.and((root, query, cb) -> position.after(root, cb));
+        }
+
+        Sort sort = "id".equals(sortField)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortField).and(Sort.by(direction, "id"));
+        List<T> rows = repository.findBy(spec, q -> q.sortBy(sort).limit(pageSize + 1).all());
+
+        boolean hasMore = rows.size() > pageSize;
+        List<T> content = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            BeanWrapperImpl last = new BeanWrapperImpl(content.get(content.size() - 1));
+            nextCursor = KeysetCursor.of(sortField, direction, last.getPropertyValue(sortField),
+                    ((Number) last.getPropertyValue("id")).longValue()).encode();
+        }
+
+        Long total = null;
+        boolean approximate = false;
+        switch (countMode) {
+            case EXACT -> total = repository.count(filter);
+            case APPROX -> {
+                if (!filtered) {
+                    total = estimateRows(table);
+                    approximate = total != null;
+                }
+                // A filtered estimate would be a guess; count exactly once, on the first page
+                if (total == null && firstPage) {
+                    total = repository.count(filter);
+                    approximate = false;
+                }
+            }
+            case NONE -> { }
+        }
+        return new CursorPage<>(content, nextCursor, hasMore, total, approximate);
+    }
+
+    // InnoDB's row estimate from the table statistics; null if unavailable
+    private Long estimateRows(String table) {
+        try {
+            List<Long> rows = jdbcTemplate.queryForList(TABLE_ROWS, Long.class, table);
+            return rows.isEmpty() ? null : rows.get(0);
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+}
@@ -5,23 +5,30 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.entity.KnowledgeArticle;
+import org.example.cloudopsadmin.common.InvertedIndex;
 import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.event.KnowledgeArticleChangedEvent;
 import org.example.cloudopsadmin.service.OperationLogService;
 import org.example.cloudopsadmin.repository.KnowledgeArticleRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 import jakarta.persistence.criteria.Predicate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +37,8 @@ public class KnowledgeArticleService {
 
     private final KnowledgeArticleRepository knowledgeArticleRepository;
     private final OperationLogService operationLogService;
+    private final KnowledgeSearchService knowledgeSearchService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public KnowledgeArticle createArticle(CreateArticleRequest request, User operator) {
@@ -40,7 +49,10 @@ public class KnowledgeArticleService {
         article.setCategories(splitCsv(request.getCategories()));
         article.setTags(splitCsv(request.getTags()));
         article.setKeywords(splitCsv(request.getKeywords()));
+        // Label-only edits leave the row itself clean; moving updated_at lets the search reconcile see them
+        article.setUpdatedAt(LocalDateTime.now());
         KnowledgeArticle saved = knowledgeArticleRepository.save(article);
+        eventPublisher.publishEvent(new KnowledgeArticleChangedEvent(saved.getId()));
         if (operator != null) {
             operationLogService.log(
                     operator.getEmail(),
@@ -70,7 +82,10 @@ public class KnowledgeArticleService {
         article.setCategories(splitCsv(request.getCategories()));
         article.setTags(splitCsv(request.getTags()));
         article.setKeywords(splitCsv(request.getKeywords()));
+        // Label-only edits leave the row itself clean; moving updated_at lets the search reconcile see them
+        article.setUpdatedAt(LocalDateTime.now());
         KnowledgeArticle saved = knowledgeArticleRepository.save(article);
+        eventPublisher.publishEvent(new KnowledgeArticleChangedEvent(saved.getId()));
         if (operator != null) {
             operationLogService.log(
                     operator.getEmail(),
@@ -86,9 +101,17 @@ public class KnowledgeArticleService {
 
     @Transactional(readOnly = true)
     public Page<KnowledgeArticle> listArticles(int page, int pageSize, String search, String sortOrder) {
+        if (StringUtils.hasText(search)) {
+            List<InvertedIndex.Hit> hits = knowledgeSearchService.search(search.trim());
+            if (hits != null) {
+                return rankedPage(hits, page, pageSize);
+            }
+        }
+
         Sort sort = Sort.by(Sort.Direction.fromString(sortOrder == null ? "DESC" : sortOrder), "id");
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
+        // Fallback while the search index is loading or behind, or for queries it has no terms for
         Specification<KnowledgeArticle> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
             if (StringUtils.hasText(search)) {
@@ -105,6 +128,26 @@ public class KnowledgeArticleService {
         return knowledgeArticleRepository.findAll(spec, pageable);
     }
 
+    // Search results come back by relevance; only the requested page of articles is loaded
+    private Page<KnowledgeArticle> rankedPage(List<InvertedIndex.Hit> hits, int page, int pageSize) {
+        Pageable pageable = PageRequest.of(page - 1, pageSize);
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        List<Long> ids = hits.subList(from, Math.min(from + pageSize, hits.size())).stream()
+                .map(InvertedIndex.Hit::id)
+                .collect(Collectors.toList());
+        Map<Long, KnowledgeArticle> byId = knowledgeArticleRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(KnowledgeArticle::getId, Function.identity()));
+        List<KnowledgeArticle> content = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    public String snippet(KnowledgeArticle article, String search) {
+        return knowledgeSearchService.snippet(article.getContent(), search);
+    }
+
     private List<String> splitCsv(String s) {
         if (s == null || s.trim().isEmpty()) {
             return List.of();
@@ -0,0 +1,309 @@
+package org.example.cloudopsadmin.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.cloudopsadmin.common.InvertedIndex;
+import org.example.cloudopsadmin.event.KnowledgeArticleChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Ranked full-text search over knowledge base articles. The index lives in memory, follows create/update after
+// commit, and is saved as a segment file so a restart only re-tokenizes articles whose updated_at moved.
+// Every article write bumps a shared version row (id_sequences "search_knowledge") in its own transaction; while
+// this node's index is behind it (an edit on another node, a failed update) searches fall back to LIKE until the
+// catch-up reconcile.
+@Service
+public class KnowledgeSearchService {
+
+    private static final String ARTICLE_VERSIONS = "SELECT id, updated_at FROM knowledge_articles";
+    private static final String ARTICLES = "SELECT id, title, author, content, updated_at FROM knowledge_articles WHERE id IN (:ids)";
+    private static final String CATEGORIES = "SELECT article_id, category FROM knowledge_article_categories WHERE article_id IN (:ids)";
+    private static final String TAGS = "SELECT article_id, tag FROM knowledge_article_tags WHERE article_id IN (:ids)";
+    private static final String KEYWORDS = "SELECT article_id, keyword FROM knowledge_article_keywords WHERE article_id IN (:ids)";
+    private static final int LOAD_CHUNK = 500;
+
+    private static final String VERSION_KEY = "search_knowledge";
+    private static final String READ_VERSION = "SELECT next_value FROM id_sequences WHERE seq_key = ?";
+    private static final String BUMP_VERSION =
+            "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + 1), updated_at = NOW() WHERE seq_key = ?";
+    private static final String INSERT_VERSION =
+            "INSERT IGNORE INTO id_sequences (seq_key, next_value, updated_at) VALUES (?, 0, NOW())";
+
+    // Field weights: a hit in the title or in the curated labels says more than one in the body
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float LABEL_WEIGHT = 2f;
+    private static final float BODY_WEIGHT = 1f;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    // Joins the writing transaction; opens one of its own when an event is published outside a transaction
+    private final TransactionTemplate versionTransaction;
+    private final InvertedIndex index = new InvertedIndex();
+    // Shared version the index reflects, -1 until the first reconcile
+    private final AtomicLong applied = new AtomicLong(-1);
+    private volatile boolean ready;
+    private volatile boolean dirty;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(KnowledgeSearchService.class);
+
+    @Value("${knowledge.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${knowledge.search.segment-path:data/knowledge-index.seg}")
+    private String segmentPath;
+
+    @Value("${knowledge.search.snippet-length:160}")
+    private int snippetLength;
+
+    public KnowledgeSearchService(NamedParameterJdbcTemplate namedParameterJdbcTemplate, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.versionTransaction = new TransactionTemplate(transactionManager);
+        Gauge.builder("knowledge.search.documents", index, InvertedIndex::size).register(meterRegistry);
+    }
+
+    // Ranked hits, or null when the caller should fall back to LIKE: the index is unavailable or behind the shared
+    // version, or the query has no index terms (only stop characters/punctuation) to match on
+    public List<InvertedIndex.Hit> search(String query) {
+        if (!enabled || !ready || InvertedIndex.queryTerms(query).isEmpty()) {
+            return null;
+        }
+        if (applied.get() != readVersion()) {
+            return null;
+        }
+        return index.search(query);
+    }
+
+    public String snippet(String content, String query) {
+        return InvertedIndex.snippet(content, query, snippetLength);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int loaded = loadSegment();
+        reconcile();
+        ready = true;
+        log.info("Knowledge search index ready in {} ms. documents={}, from segment={}",
+                System.currentTimeMillis() - started, index.size(), loaded);
+        flushIfDirty();
+    }
+
+    // A node that fell behind the shared version reconciles well before the hourly run
+    @Scheduled(initialDelayString = "${knowledge.search.catch-up-interval-ms:30000}",
+            fixedDelayString = "${knowledge.search.catch-up-interval-ms:30000}")
+    public void catchUp() {
+        if (!enabled || !ready) {
+            return;
+        }
+        try {
+            if (applied.get() != readVersion()) {
+                reconcile();
+            }
+        } catch (Exception e) {
+            log.warn("Knowledge search version check failed", e);
+        }
+    }
+
+    // Brings the index in line with the table: (re)indexes rows whose updated_at differs from the indexed
+    // version and drops rows that no longer exist. Also catches edits made outside the service.
+    @Scheduled(initialDelayString = "${knowledge.search.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${knowledge.search.reconcile-interval-ms:3600000}")
+    public synchronized void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Read first: the scan below sees at least every write up to this version
+            long sharedVersion = readVersion();
+            Map<Long, Long> indexed = index.versions();
+            List<Long> stale = new ArrayList<>();
+            long[] maxId = {0};
+            namedParameterJdbcTemplate.getJdbcTemplate().query(ARTICLE_VERSIONS, rs -> {
+                long id = rs.getLong("id");
+                Long version = indexed.remove(id);
+                if (version == null || version != versionOf(rs.getTimestamp("updated_at"))) {
+                    stale.add(id);
+                }
+                maxId[0] = Math.max(maxId[0], id);
+            });
+            // Whatever is left was deleted; ids above the scan were created after it and are not gone
+            int removed = 0;
+            for (Long id : indexed.keySet()) {
+                if (id <= maxId[0]) {
+                    index.remove(id);
+                    removed++;
+                }
+            }
+            index(stale);
+            applied.accumulateAndGet(sharedVersion, Math::max);
+            if (!stale.isEmpty() || removed > 0) {
+                dirty = true;
+                log.info("Knowledge search index reconciled. reindexed={}, removed={}", stale.size(), removed);
+            }
+        } catch (Exception e) {
+            log.error("Knowledge search index reconcile failed", e);
+        }
+    }
+
+    // The version bump runs inside the writing transaction, the index update after it commits
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onArticleChanged(KnowledgeArticleChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long version = versionTransaction.execute(status -> bumpVersion());
+        Runnable apply = () -> {
+            try {
+                index(List.of(event.articleId()));
+                dirty = true;
+                // Only an index that reflected every earlier write moves to this one
+                applied.compareAndSet(version - 1, version);
+            } catch (Exception e) {
+                // The index stays behind the shared version: searches use LIKE until the catch-up reconcile
+                log.warn("Knowledge search index update failed. articleId={}", event.articleId(), e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // The row lock is held until commit, so versions commit in order
+    private long bumpVersion() {
+        JdbcTemplate jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+        if (jdbcTemplate.update(BUMP_VERSION, VERSION_KEY) == 0) {
+            jdbcTemplate.update(INSERT_VERSION, VERSION_KEY);
+            jdbcTemplate.update(BUMP_VERSION, VERSION_KEY);
+        }
+        return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+    }
+
+    private long readVersion() {
+        List<Long> versions = namedParameterJdbcTemplate.getJdbcTemplate().queryForList(READ_VERSION, Long.class, VERSION_KEY);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    @Scheduled(initialDelayString = "${knowledge.search.flush-interval-ms:60000}",
+            fixedDelayString = "${knowledge.search.flush-interval-ms:60000}")
+    public void flushIfDirty() {
+        if (dirty) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushIfDirty();
+    }
+
+    // Written to a temp file and moved into place so a crash never leaves a half-written segment
+    private synchronized void flush() {
+        if (!enabled || !ready) {
+            return;
+        }
+        Path target = Paths.get(segmentPath);
+        try {
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "knowledge-index", ".tmp");
+            dirty = false;
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                index.writeTo(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            dirty = true;
+            log.warn("Knowledge search segment write failed. path={}", target, e);
+        }
+    }
+
+    private int loadSegment() {
+        Path path = Paths.get(segmentPath);
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            InvertedIndex segment = InvertedIndex.readFrom(in);
+            index.replaceWith(segment);
+            return segment.size();
+        } catch (Exception e) {
+            // Unreadable or outdated segment: reconcile rebuilds everything from the table
+            log.warn("Knowledge search segment ignored, rebuilding. path={}, reason={}", path, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void index(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += LOAD_CHUNK) {
+            List<Long> chunk = list.subList(from, Math.min(from + LOAD_CHUNK, list.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk);
+            Map<Long, List<String>> labels = new HashMap<>();
+            namedParameterJdbcTemplate.query(CATEGORIES, params,
+                    rs -> { labels.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2)); });
+            namedParameterJdbcTemplate.query(TAGS, params,
+                    rs -> { labels.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2)); });
+            namedParameterJdbcTemplate.query(KEYWORDS, params,
+                    rs -> { labels.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2)); });
+
+            List<Long> found = new ArrayList<>();
+            namedParameterJdbcTemplate.query(ARTICLES, params, rs -> {
+                long id = rs.getLong("id");
+                InvertedIndex.Terms terms = new InvertedIndex.Terms()
+                        .add(rs.getString("title"), TITLE_WEIGHT)
+                        .add(rs.getString("author"), BODY_WEIGHT)
+                        .add(rs.getString("content"), BODY_WEIGHT);
+                for (String label : labels.getOrDefault(id, List.of())) {
+                    terms.add(label, LABEL_WEIGHT);
+                }
+                index.put(id, versionOf(rs.getTimestamp("updated_at")), terms);
+                found.add(id);
+            });
+            chunk.stream().filter(id -> !found.contains(id)).forEach(index::remove);
+        }
+    }
+
+    private static long versionOf(Timestamp updatedAt) {
+        return updatedAt == null ? -1L : updatedAt.getTime();
+    }
+}
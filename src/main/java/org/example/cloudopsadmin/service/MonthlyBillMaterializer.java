@@ -0,0 +1,330 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.InvoiceStatus;
+import org.example.cloudopsadmin.repository.BillSyncVersionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class MonthlyBillMaterializer {
+
+    static final String SOURCE_VERSION_KEY = "source";
+    private static final String MONTH_VERSION_PREFIX = "month:";
+
+    private static final String BILL_COLUMNS =
+            "SELECT id, month, linked_account_uid, cloud_vendor, customer_name, account_id_fk, customer_id_fk, is_invoiced " +
+            "FROM customer_monthly_bills ";
+
+    private static final String SELECT_MONTH_BILLS = BILL_COLUMNS + "WHERE month = ?";
+
+    // Open rows of the given accounts in any month, plus whatever exists for the current month
+    private static final String SELECT_OPEN_BILLS_BY_UIDS = BILL_COLUMNS +
+            "WHERE linked_account_uid IN (:uids) AND (month = :currentMonth OR is_invoiced IS NULL OR is_invoiced = false " +
+            "OR cloud_vendor = 'Customer Account')";
+
+    private static final String SELECT_ACCOUNTS =
+            "SELECT a.id, a.uid, a.account_name, a.account_type, a.account_category, a.cost_discount, " +
+            "c.id AS customer_id, c.customer_name, c.original_billing_percentage " +
+            "FROM accounts a LEFT JOIN customers c ON c.id = a.customer_id_fk";
+
+    private static final String SELECT_ACCOUNTS_BY_IDS = SELECT_ACCOUNTS + " WHERE a.id IN (:ids)";
+
+    private static final String INSERT_BILL =
+            "INSERT INTO customer_monthly_bills (month, cloud_vendor, customer_name, linked_account_uid, " +
+            "original_billing_percentage, cost_discount_percentage, account_id_fk, customer_id_fk, " +
+            "is_invoiced, invoice_status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BILL =
+            "UPDATE customer_monthly_bills SET cloud_vendor = ?, customer_name = ?, account_id_fk = ?, customer_id_fk = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final BillSyncVersionRepository billSyncVersionRepository;
+    private final FinancialRollupService financialRollupService;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MonthlyBillMaterializer.class);
+
+    @Value("${billing.materialization.batch-size:500}")
+    private int batchSize;
+
+    @Transactional
+    public void markSourceChanged() {
+        billSyncVersionRepository.increment(SOURCE_VERSION_KEY);
+    }
+
+    @Transactional
+    public void ensureMonth(String month) {
+        long sourceVersion = billSyncVersionRepository.findVersion(SOURCE_VERSION_KEY).orElse(0L);
+        String monthKey = MONTH_VERSION_PREFIX + month;
+        Long materialized = billSyncVersionRepository.findVersion(monthKey).orElse(null);
+        if (materialized != null && materialized == sourceVersion) {
+            return;
+        }
+
+        materialized = lockMonth(month);
+        if (materialized == sourceVersion) {
+            return;
+        }
+
+        materializeMonth(month);
+        billSyncVersionRepository.updateVersion(monthKey, sourceVersion);
+    }
+
+    // Read-side guard for a month that was never materialized (any past or future month, or the current one right
+    // after rollover, before the reconcile runs): build it once. A marker left at -1 by lockMonth only means a sync
+    // touched the month, not that it was built. Once built, reads no longer write and the month is kept current by
+    // the change events and the reconcile.
+    @Transactional
+    public void ensureMaterialized(String month) {
+        if (!isMonth(month) || billSyncVersionRepository.findVersion(MONTH_VERSION_PREFIX + month).orElse(-1L) >= 0) {
+            return;
+        }
+        ensureMonth(month);
+    }
+
+    private static boolean isMonth(String month) {
+        try {
+            YearMonth.parse(month);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Applies account/customer changes to the affected rows only: open rows in any month are updated,
+    // and a row is created in the current month if the account doesn't have one yet
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void syncAccounts(Collection<Long> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String currentMonth = DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
+        lockMonth(currentMonth);
+
+        List<AccountSnapshot> accounts = namedParameterJdbcTemplate.query(SELECT_ACCOUNTS_BY_IDS,
+                new MapSqlParameterSource("ids", accountIds), (rs, rowNum) -> toSnapshot(rs));
+        if (accounts.isEmpty()) {
+            return;
+        }
+
+        Map<String, AccountSnapshot> byUid = new HashMap<>();
+        for (AccountSnapshot account : accounts) {
+            byUid.put(account.uid(), account);
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uids", byUid.keySet())
+                .addValue("currentMonth", currentMonth);
+        List<ExistingBill> bills = namedParameterJdbcTemplate.query(SELECT_OPEN_BILLS_BY_UIDS, params, (rs, rowNum) -> toExistingBill(rs));
+
+        Set<String> presentInCurrentMonth = new HashSet<>();
+        Set<String> touchedMonths = new HashSet<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (ExistingBill bill : bills) {
+            if (currentMonth.equals(bill.month())) {
+                presentInCurrentMonth.add(bill.uid());
+            }
+            Object[] update = diff(byUid.get(bill.uid()), bill);
+            if (update != null) {
+                updates.add(update);
+                touchedMonths.add(bill.month());
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        for (AccountSnapshot account : accounts) {
+            if (!presentInCurrentMonth.contains(account.uid())) {
+                inserts.add(insertRow(currentMonth, account, now));
+            }
+        }
+
+        executeInBatches(INSERT_BILL, inserts);
+        executeInBatches(UPDATE_BILL, updates);
+        if (!inserts.isEmpty()) {
+            touchedMonths.add(currentMonth);
+        }
+        financialRollupService.rebuildMonths(touchedMonths);
+
+        log.debug("Synced monthly bills for accounts. accounts={}, openRows={}, inserted={}, updated={}, costMs={}",
+                accounts.size(), bills.size(), inserts.size(), updates.size(), System.currentTimeMillis() - start);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findAccountIdsByCustomer(Long customerId) {
+        return jdbcTemplate.queryForList("SELECT id FROM accounts WHERE customer_id_fk = ?", Long.class, customerId);
+    }
+
+    // Lock the month marker so concurrent writers on other threads/nodes don't insert the same rows twice.
+    // A marker created here stays at -1 until ensureMonth builds the month.
+    private long lockMonth(String month) {
+        String monthKey = MONTH_VERSION_PREFIX + month;
+        billSyncVersionRepository.insertIfAbsent(monthKey, -1L);
+        return billSyncVersionRepository.lockVersion(monthKey).orElse(-1L);
+    }
+
+    private void materializeMonth(String month) {
+        long start = System.currentTimeMillis();
+
+        Map<String, ExistingBill> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_MONTH_BILLS, rs -> {
+            ExistingBill bill = toExistingBill(rs);
+            existing.putIfAbsent(bill.uid(), bill);
+        }, month);
+
+        List<AccountSnapshot> accounts = jdbcTemplate.query(SELECT_ACCOUNTS, (rs, rowNum) -> toSnapshot(rs));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+
+        for (AccountSnapshot account : accounts) {
+            ExistingBill bill = existing.get(account.uid());
+            if (bill == null) {
+                inserts.add(insertRow(month, account, now));
+                continue;
+            }
+            Object[] update = diff(account, bill);
+            if (update != null) {
+                updates.add(update);
+            }
+        }
+
+        executeInBatches(INSERT_BILL, inserts);
+        executeInBatches(UPDATE_BILL, updates);
+        if (!inserts.isEmpty() || !updates.isEmpty()) {
+            financialRollupService.rebuildMonths(List.of(month));
+        }
+
+        log.debug("Materialized monthly bills. month={}, accounts={}, existing={}, inserted={}, updated={}, costMs={}",
+                month, accounts.size(), existing.size(), inserts.size(), updates.size(), System.currentTimeMillis() - start);
+    }
+
+    private Object[] insertRow(String month, AccountSnapshot account, Timestamp now) {
+        return new Object[]{
+                month,
+                account.vendor(),
+                account.customerName(),
+                account.uid(),
+                account.originalBillingPercentage(),
+                account.costDiscount(),
+                account.accountId(),
+                account.customerId(),
+                false,
+                InvoiceStatus.DRAFT.name(),
+                now
+        };
+    }
+
+    private Object[] diff(AccountSnapshot account, ExistingBill bill) {
+        if (account == null) {
+            return null;
+        }
+        // Only sync if not invoiced/finalized, OR if the vendor is invalid (fix dirty data)
+        boolean isInvalidVendor = "Customer Account".equals(bill.cloudVendor());
+        if (bill.invoiced() && !isInvalidVendor) {
+            return null;
+        }
+
+        Long accountId = bill.accountId() != null ? bill.accountId() : account.accountId();
+        Long customerId = account.customerId();
+        boolean changed = !account.vendor().equals(bill.cloudVendor())
+                || !account.customerName().equals(bill.customerName())
+                || !Objects.equals(accountId, bill.accountId())
+                || !Objects.equals(customerId, bill.customerId());
+        return changed ? new Object[]{account.vendor(), account.customerName(), accountId, customerId, bill.id()} : null;
+    }
+
+    private void executeInBatches(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + batchSize)));
+        }
+    }
+
+    private ExistingBill toExistingBill(ResultSet rs) throws SQLException {
+        return new ExistingBill(
+                rs.getLong("id"),
+                rs.getString("month"),
+                rs.getString("linked_account_uid"),
+                rs.getString("cloud_vendor"),
+                rs.getString("customer_name"),
+                rs.getObject("account_id_fk", Long.class),
+                rs.getObject("customer_id_fk", Long.class),
+                Boolean.TRUE.equals(rs.getObject("is_invoiced", Boolean.class))
+        );
+    }
+
+    private AccountSnapshot toSnapshot(ResultSet rs) throws SQLException {
+        // Use accountCategory for Vendor, fall back to accountType if accountCategory is empty
+        String accountCategory = rs.getString("account_category");
+        String vendor = normalizeCloudVendor(accountCategory);
+        if ("AWS".equals(vendor) && !StringUtils.hasText(accountCategory)) {
+            vendor = normalizeCloudVendor(rs.getString("account_type"));
+        }
+
+        Long customerId = rs.getObject("customer_id", Long.class);
+        String customerName = rs.getString("customer_name");
+        String displayName = (customerId != null && StringUtils.hasText(customerName))
+                ? customerName
+                : rs.getString("account_name");
+
+        return new AccountSnapshot(
+                rs.getLong("id"),
+                rs.getString("uid"),
+                vendor,
+                displayName,
+                customerId,
+                customerId != null ? rs.getObject("original_billing_percentage", Double.class) : null,
+                rs.getObject("cost_discount", Double.class)
+        );
+    }
+
+    private String normalizeCloudVendor(String accountType) {
+        if (!StringUtils.hasText(accountType)) {
+            return "AWS"; // Default to AWS if empty
+        }
+        String lower = accountType.toLowerCase();
+        if (lower.contains("ali")) {
+            return "Ali";
+        }
+        if (lower.contains("azure")) {
+            return "Azure";
+        }
+        if (lower.contains("aws")) {
+            return "AWS";
+        }
+        return "AWS"; // Default fallback
+    }
+
+    private record ExistingBill(long id, String month, String uid, String cloudVendor, String customerName, Long accountId, Long customerId, boolean invoiced) {
+    }
+
+    private record AccountSnapshot(long accountId, String uid, String vendor, String customerName, Long customerId,
+                                   Double originalBillingPercentage, Double costDiscount) {
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.event.AccountChangedEvent;
+import org.example.cloudopsadmin.event.AccountsChangedEvent;
+import org.example.cloudopsadmin.event.CustomerChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class MonthlyBillSyncWorker {
+
+    private final MonthlyBillMaterializer monthlyBillMaterializer;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MonthlyBillSyncWorker.class);
+
+    @Async("billSyncExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        syncAccounts(List.of(event.accountId()));
+    }
+
+    @Async("billSyncExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccountsChanged(AccountsChangedEvent event) {
+        syncAccounts(event.accountIds());
+    }
+
+    @Async("billSyncExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        try {
+            syncAccounts(monthlyBillMaterializer.findAccountIdsByCustomer(event.customerId()));
+        } catch (Exception e) {
+            log.warn("Failed to resolve accounts for customer {}, scheduling full reconcile", event.customerId(), e);
+            monthlyBillMaterializer.markSourceChanged();
+        }
+    }
+
+    // Full pass at startup picks up any change whose event was lost (e.g. shutdown before the worker ran)
+    @Async("billSyncExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        monthlyBillMaterializer.markSourceChanged();
+        reconcileCurrentMonth();
+    }
+
+    // Cheap when nothing is dirty; also creates the rows for a new month once it starts
+    @Scheduled(initialDelayString = "${billing.sync.reconcile-interval-ms:300000}",
+            fixedDelayString = "${billing.sync.reconcile-interval-ms:300000}")
+    public void reconcileCurrentMonth() {
+        String month = DateTimeFormatter.ofPattern("yyyy-MM").format(LocalDate.now());
+        try {
+            monthlyBillMaterializer.ensureMonth(month);
+        } catch (Exception e) {
+            log.error("Monthly bill reconcile failed. month={}", month, e);
+        }
+    }
+
+    private void syncAccounts(List<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        try {
+            monthlyBillMaterializer.syncAccounts(accountIds);
+        } catch (Exception e) {
+            // Fall back to the next full reconcile rather than leaving the rows stale
+            log.warn("Incremental bill sync failed for accounts {}, scheduling full reconcile", accountIds, e);
+            monthlyBillMaterializer.markSourceChanged();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.example.cloudopsadmin.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.zip.GZIPOutputStream;
+
+// operation_logs is RANGE-partitioned by month on created_at (pYYYYMM plus a pmax catch-all), so time-bounded
+// queries only touch the months they ask for and expiring history is a DROP PARTITION instead of a huge DELETE.
+// A daily job keeps partitions ahead of the clock and archives partitions past retention to gzip CSV first.
+// Converting the existing plain table is a one-off table copy that blocks writes, so it only runs when explicitly
+// enabled; every run holds a MySQL named lock so nodes never alter the table concurrently.
+@Service
+public class OperationLogPartitionService {
+
+    private static final String TABLE = "operation_logs";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String PARTITIONS =
+            "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String MAINTENANCE_LOCK = "operation_logs_partition_maintenance";
+    private static final String ARCHIVE_COLUMNS = "id, operator_email, operator_name, action, target_type, target_id, description, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OperationLogPartitionService.class);
+
+    @Value("${operation-log.partitioning.enabled:true}")
+    private boolean enabled;
+
+    // Off by default: ALTER TABLE ... PARTITION BY rewrites the whole table and blocks writes while it runs
+    @Value("${operation-log.partitioning.convert-table:false}")
+    private boolean convertTable;
+
+    @Value("${operation-log.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps everything
+    @Value("${operation-log.partitioning.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${operation-log.partitioning.archive-dir:data/archive/operation-logs}")
+    private String archiveDir;
+
+    public OperationLogPartitionService(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void partitionOnStartup() {
+        if (enabled) {
+            maintain();
+        }
+    }
+
+    @Scheduled(cron = "${operation-log.partitioning.maintenance-cron:0 30 3 * * *}")
+    public synchronized void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // The lock lives on this connection's session, held for the whole run; the DDL runs on other connections
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                if (!namedLock(con, "SELECT GET_LOCK(?, 0)")) {
+                    log.info("Operation log partition maintenance is running on another node; skipped");
+                    return null;
+                }
+                try {
+                    maintainLocked();
+                } finally {
+                    namedLock(con, "SELECT RELEASE_LOCK(?)");
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Operation log partition maintenance failed", e);
+        }
+    }
+
+    private void maintainLocked() {
+        if (partitionNames().isEmpty()) {
+            if (!convertTable) {
+                log.warn("{} is not partitioned; set operation-log.partitioning.convert-table=true on one node during a " +
+                        "maintenance window to convert it (copies the table, blocks writes). Partition maintenance skipped.", TABLE);
+                return;
+            }
+            partitionTable();
+        }
+        addFuturePartitions();
+        if (retentionMonths > 0) {
+            archiveExpiredPartitions();
+        }
+    }
+
+    private static boolean namedLock(Connection con, String sql) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, MAINTENANCE_LOCK);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    // One-off conversion of the plain table Hibernate created, only with convert-table enabled. The partition column
+    // must be part of every unique key, so the primary key becomes (id, created_at); id stays AUTO_INCREMENT and unique
+    // in practice.
+    private void partitionTable() {
+        long started = System.currentTimeMillis();
+        jdbcTemplate.update("UPDATE " + TABLE + " SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " MODIFY created_at DATETIME(6) NOT NULL, " +
+                "DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM " + TABLE, Timestamp.class);
+        YearMonth first = oldest == null ? YearMonth.now() : YearMonth.from(oldest.toLocalDateTime());
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        StringJoiner partitions = new StringJoiner(", ");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.add(partitionDefinition(month));
+        }
+        partitions.add("PARTITION pmax VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(created_at) (" + partitions + ")");
+        log.info("Partitioned {} by month from {} to {} in {} ms", TABLE, first, last, System.currentTimeMillis() - started);
+    }
+
+    // Splits the (normally empty) pmax so there is always a real partition for the coming months
+    private void addFuturePartitions() {
+        List<String> names = partitionNames();
+        if (names.isEmpty()) {
+            return;
+        }
+        YearMonth newest = names.stream()
+                .filter(n -> n.matches("p\\d{6}"))
+                .map(n -> YearMonth.parse(n.substring(1), DateTimeFormatter.ofPattern("yyyyMM")))
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.now().minusMonths(1));
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        if (!newest.isBefore(target)) {
+            return;
+        }
+        StringJoiner partitions = new StringJoiner(", ");
+        for (YearMonth month = newest.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            partitions.add(partitionDefinition(month));
+        }
+        partitions.add("PARTITION pmax VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION pmax INTO (" + partitions + ")");
+        log.info("Added {} partitions up to {}", TABLE, target);
+    }
+
+    private void archiveExpiredPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (String name : partitionNames()) {
+            if (!name.matches("p\\d{6}")) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(name.substring(1), DateTimeFormatter.ofPattern("yyyyMM"));
+            if (!month.isBefore(cutoff)) {
+                break;
+            }
+            try {
+                long archived = archive(name);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + name);
+                log.info("Archived and dropped {} partition {}. rows={}", TABLE, name, archived);
+            } catch (Exception e) {
+                // Leave the partition in place; the next run retries
+                log.error("Archiving {} partition {} failed", TABLE, name, e);
+                return;
+            }
+        }
+    }
+
+    // Streams one partition to <archive-dir>/operation_logs-YYYYMM.csv.gz and checks the row count before the drop
+    private long archive(String partition) throws Exception {
+        Path dir = Paths.get(archiveDir);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(TABLE + "-" + partition.substring(1) + ".csv.gz");
+        Path tmp = Files.createTempFile(dir, TABLE + "-" + partition.substring(1), ".tmp");
+
+        // Row-by-row streaming (MySQL Connector/J) so a month of logs is never held in memory
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        long[] rows = {0};
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            out.write(ARCHIVE_COLUMNS.replace(" ", "") + "\n");
+            streaming.query("SELECT " + ARCHIVE_COLUMNS + " FROM " + TABLE + " PARTITION (" + partition + ") ORDER BY id", rs -> {
+                try {
+                    StringJoiner line = new StringJoiner(",");
+                    for (int i = 1; i <= 8; i++) {
+                        line.add(csv(rs.getString(i)));
+                    }
+                    out.write(line + "\n");
+                    rows[0]++;
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+        }
+
+        Long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + TABLE + " PARTITION (" + partition + ")", Long.class);
+        if (expected == null || expected != rows[0]) {
+            Files.deleteIfExists(tmp);
+            throw new IllegalStateException("Archive row count mismatch: wrote " + rows[0] + ", partition has " + expected);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows[0];
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList(PARTITIONS, String.class, TABLE);
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        LocalDate upper = month.plusMonths(1).atDay(1);
+        return "PARTITION " + PARTITION_NAME.format(month.atDay(1)) + " VALUES LESS THAN ('" + upper + " 00:00:00')";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.cloudopsadmin.service;
 
 import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.common.CursorPage;
 import org.example.cloudopsadmin.entity.OperationLog;
 import org.example.cloudopsadmin.repository.OperationLogRepository;
 import org.springframework.data.domain.Page;
@@ -13,28 +14,57 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import jakarta.persistence.criteria.Predicate;
+import java.time.LocalDateTime;
 
 @Service
 @RequiredArgsConstructor
 public class OperationLogService {
 
     private final OperationLogRepository operationLogRepository;
+    private final KeysetPager keysetPager;
+    private final OperationLogWriter operationLogWriter;
 
-    @Transactional
+    // Queued and written after the caller's transaction commits; see OperationLogWriter
     public void log(String operatorEmail,
                     String operatorName,
                     String action,
                     String targetType,
                     String targetId,
                     String description) {
+        operationLogWriter.submit(entry(operatorEmail, operatorName, action, targetType, targetId, description));
+    }
+
+    // For entries that must commit or roll back together with the business change, with nothing held in memory
+    // between commit and flush: inserted in the caller's transaction. Invoice delete, post and payment use this.
+    @Transactional
+    public void logAtomic(String operatorEmail,
+                          String operatorName,
+                          String action,
+                          String targetType,
+                          String targetId,
+                          String description) {
+        operationLogRepository.save(entry(operatorEmail, operatorName, action, targetType, targetId, description));
+    }
+
+    private OperationLog entry(String operatorEmail,
+                               String operatorName,
+                               String action,
+                               String targetType,
+                               String targetId,
+                               String description) {
         OperationLog log = new OperationLog();
-        log.setOperatorEmail(operatorEmail);
-        log.setOperatorName(operatorName);
+        // Columns are NOT NULL; summary entries (bulk/import) have no single target id
+        log.setOperatorEmail(operatorEmail == null ? "" : operatorEmail);
+        log.setOperatorName(operatorName == null ? "" : operatorName);
         log.setAction(action);
         log.setTargetType(targetType);
-        log.setTargetId(targetId);
+        log.setTargetId(targetId == null ? "" : targetId);
+        if (description != null && description.length() > 1024) {
+            description = description.substring(0, 1021) + "...";
+        }
         log.setDescription(description);
-        operationLogRepository.save(log);
+        log.setCreatedAt(LocalDateTime.now());
+        return log;
     }
 
     @Transactional(readOnly = true)
@@ -44,19 +74,60 @@ public class OperationLogService {
                                    String targetType,
                                    String action,
                                    String search,
+                                   LocalDateTime startTime,
+                                   LocalDateTime endTime,
                                    String sortOrder) {
         Sort sort = Sort.by(Sort.Direction.fromString(sortOrder == null ? "DESC" : sortOrder), "id");
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
-        Specification<OperationLog> spec = (root, query, cb) -> {
+        return operationLogRepository.findAll(logFilter(operator, targetType, action, search, startTime, endTime), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<OperationLog> listByCursor(String cursor,
+                                                 int pageSize,
+                                                 String operator,
+                                                 String targetType,
+                                                 String action,
+                                                 String search,
+                                                 LocalDateTime startTime,
+                                                 LocalDateTime endTime,
+                                                 String sortOrder,
+                                                 CursorPage.CountMode countMode) {
+        boolean filtered = StringUtils.hasText(operator) || StringUtils.hasText(targetType)
+                || StringUtils.hasText(action) || StringUtils.hasText(search) || startTime != null || endTime != null;
+        return keysetPager.fetch(operationLogRepository, logFilter(operator, targetType, action, search, startTime, endTime), "id",
+                Sort.Direction.fromString(sortOrder == null ? "DESC" : sortOrder), cursor, pageSize, countMode,
+                "operation_logs", filtered);
+    }
+
+    // Text columns use the table's case-insensitive collation, so no lower(): the operator filter can use
+    // idx_oplog_operator (exact email, or a prefix of the email/name), and a created_at range lets MySQL prune
+    // the monthly partitions.
+    private Specification<OperationLog> logFilter(String operator, String targetType, String action, String search,
+                                                  LocalDateTime startTime, LocalDateTime endTime) {
+        return (root, query, cb) -> {
             java.util.List<Predicate> predicates = new java.util.ArrayList<>();
 
             if (StringUtils.hasText(operator)) {
-                String like = "%" + operator.trim().toLowerCase() + "%";
-                predicates.add(cb.or(
-                        cb.like(cb.lower(root.get("operatorEmail")), like),
-                        cb.like(cb.lower(root.get("operatorName")), like)
-                ));
+                String value = operator.trim();
+                if (value.contains("@")) {
+                    predicates.add(cb.equal(root.get("operatorEmail"), value));
+                } else {
+                    String prefix = escapeLike(value) + "%";
+                    predicates.add(cb.or(
+                            cb.like(root.get("operatorEmail"), prefix, '\\'),
+                            cb.like(root.get("operatorName"), prefix, '\\')
+                    ));
+                }
+            }
+
+            if (startTime != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), startTime));
+            }
+
+            if (endTime != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), endTime));
             }
 
             if (StringUtils.hasText(targetType)) {
@@ -68,14 +139,33 @@ public class OperationLogService {
             }
 
             if (StringUtils.hasText(search)) {
-                String like = "%" + search.trim().toLowerCase() + "%";
-                predicates.add(cb.like(cb.lower(root.get("description")), like));
+                String like = "%" + search.trim() + "%";
+                predicates.add(cb.like(root.get("description"), like));
             }
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
+    }
 
-        return operationLogRepository.findAll(spec, pageable);
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
-}
 
+    // Accepts yyyy-MM-dd or an ISO / "yyyy-MM-dd HH:mm:ss" timestamp. A bare date as the (exclusive) end of a
+    // range means "through that day".
+    public static LocalDateTime parseTime(String value, String name, boolean rangeEnd) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String v = value.trim();
+        try {
+            if (v.length() == 10) {
+                java.time.LocalDate date = java.time.LocalDate.parse(v);
+                return (rangeEnd ? date.plusDays(1) : date).atStartOfDay();
+            }
+            return LocalDateTime.parse(v.replace(' ', 'T'));
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " 格式应为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss");
+        }
+    }
+}
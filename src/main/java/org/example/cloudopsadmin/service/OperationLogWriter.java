@@ -0,0 +1,190 @@
+package org.example.cloudopsadmin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.cloudopsadmin.entity.OperationLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Audit entries leave the business transaction: they are queued after commit (so a rolled-back change is never
+// logged) and a single writer thread inserts them in JDBC batches when the batch fills or the flush interval
+// passes. A full queue or a stopped writer degrades to a synchronous insert instead of dropping the entry. Entries
+// live in memory until flushed, so a crash can lose the last interval's worth; changes whose audit row must survive
+// that use OperationLogService.logAtomic instead.
+@Component
+public class OperationLogWriter {
+
+    private static final String INSERT =
+            "INSERT INTO operation_logs (operator_email, operator_name, action, target_type, target_id, description, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Timer flushTimer;
+    private final Counter written;
+    private final Counter syncWrites;
+    private final Counter failed;
+    private BlockingQueue<OperationLog> queue;
+    private Thread worker;
+    private volatile boolean running;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OperationLogWriter.class);
+
+    @Value("${operation-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${operation-log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${operation-log.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    public OperationLogWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The synchronous fallback runs in afterCommit, where the finished transaction's connection is still bound:
+        // without a transaction of its own the insert would join it and be rolled back when the connection is released
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.flushTimer = Timer.builder("operation_log.flush").register(meterRegistry);
+        this.written = Counter.builder("operation_log.written").register(meterRegistry);
+        this.syncWrites = Counter.builder("operation_log.sync_writes").register(meterRegistry);
+        this.failed = Counter.builder("operation_log.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("operation_log.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        running = true;
+        worker = new Thread(this::run, "oplog-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void submit(OperationLog entry) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entry);
+                }
+            });
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    private void enqueue(OperationLog entry) {
+        if (running && queue.offer(entry)) {
+            return;
+        }
+        syncWrites.increment();
+        flush(List.of(entry));
+    }
+
+    private void run() {
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OperationLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    OperationLog next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: stop waiting and drain whatever is queued
+                running = false;
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void flush(List<OperationLog> batch) {
+        long started = System.nanoTime();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                writeTransaction.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (ps, entry) -> {
+                            ps.setString(1, entry.getOperatorEmail());
+                            ps.setString(2, entry.getOperatorName());
+                            ps.setString(3, entry.getAction());
+                            ps.setString(4, entry.getTargetType());
+                            ps.setString(5, entry.getTargetId());
+                            ps.setString(6, entry.getDescription());
+                            ps.setTimestamp(7, Timestamp.valueOf(entry.getCreatedAt()));
+                        }));
+                written.increment(batch.size());
+                flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return;
+            } catch (Exception e) {
+                log.warn("Operation log batch insert failed. size={}, attempt={}", batch.size(), attempt, e);
+                if (attempt < MAX_ATTEMPTS) {
+                    try {
+                        Thread.sleep(500L * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+        // Keep the entries recoverable from the application log
+        failed.increment(batch.size());
+        for (OperationLog entry : batch) {
+            log.error("Operation log entry not persisted. operator={}, action={}, targetType={}, targetId={}, at={}, description={}",
+                    entry.getOperatorEmail(), entry.getAction(), entry.getTargetType(), entry.getTargetId(),
+                    entry.getCreatedAt(), entry.getDescription());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<OperationLog> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+}
@@ -6,7 +6,9 @@ import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.example.cloudopsadmin.entity.Account;
 import org.example.cloudopsadmin.entity.Payer;
+import org.example.cloudopsadmin.event.PayerChangedEvent;
 import org.example.cloudopsadmin.repository.PayerRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,11 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 @Service
@@ -30,9 +30,9 @@ public class PayerService {
 
     private final PayerRepository payerRepository;
     private final PasswordEncoder passwordEncoder;
-    
-    // Simple counter for demo purposes. In production, consider using a database sequence or Redis.
-    private static final AtomicInteger sequence = new AtomicInteger(1); 
+    private final IdAllocationService idAllocationService;
+    private final SearchIndexService searchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Pattern SIGNIN_URL_PATTERN = Pattern.compile("^https://\\d{12}\\.signin\\.aws\\.amazon\\.com/.*$");
 
     @Transactional(readOnly = true)
@@ -41,9 +41,14 @@ public class PayerService {
                             sortBy == null || sortBy.isEmpty() ? "id" : sortBy);
         Pageable pageable = PageRequest.of(page - 1, pageSize, sort);
 
+        Set<Long> searchIds = StringUtils.hasText(search) ? searchIndexService.candidates(SearchIndexService.Kind.PAYER, search) : null;
         Specification<Payer> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
+            if (searchIds != null) {
+                predicates.add(searchIds.isEmpty() ? cb.disjunction() : root.get("id").in(searchIds));
+            }
+
             if (StringUtils.hasText(search)) {
                 String likePattern = "%" + search.toLowerCase() + "%";
                 
@@ -87,13 +92,13 @@ public class PayerService {
         }
 
         // Generate Internal ID
-        String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String internalId = String.format("payer_%s_%03d", datePart, sequence.getAndIncrement());
-        payer.setPayerInternalId(internalId);
+        payer.setPayerInternalId(idAllocationService.nextPayerInternalId());
 
         // Encrypt Password
         payer.setPassword(passwordEncoder.encode(payer.getPassword()));
 
-        return payerRepository.save(payer);
+        Payer saved = payerRepository.save(payer);
+        eventPublisher.publishEvent(new PayerChangedEvent(saved.getId()));
+        return saved;
     }
 }
@@ -0,0 +1,79 @@
+package org.example.cloudopsadmin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudopsadmin.entity.User;
+import org.example.cloudopsadmin.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Authenticated principals by email, so JWT-authenticated requests normally skip the user/role/permission queries
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final AuthzVersionRegistry authzVersionRegistry;
+    private final ConcurrentHashMap<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+
+    @Value("${security.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${security.principal-cache.max-entries:5000}")
+    private int maxEntries;
+
+    public CachedPrincipal load(String email) {
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = principals.get(email);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached;
+        }
+
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        CachedPrincipal loaded = new CachedPrincipal(snapshot(user), List.copyOf(user.getAuthorities()), now + ttlMs);
+        if (principals.size() >= maxEntries) {
+            principals.values().removeIf(p -> p.expiresAt() <= now);
+        }
+        if (principals.size() < maxEntries) {
+            principals.put(email, loaded);
+        }
+        return loaded;
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            principals.remove(email);
+            authzVersionRegistry.markChanged(email);
+        }
+    }
+
+    // Role or permission definitions changed: any cached authority set may be stale
+    public void evictAll() {
+        principals.clear();
+        authzVersionRegistry.markAllChanged();
+    }
+
+    // Detached copy: no Hibernate session or lazy state, collections frozen
+    private static User snapshot(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setAvatar(user.getAvatar());
+        copy.setStatus(user.getStatus());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setRoles(user.getRoles() == null ? List.of() : List.copyOf(user.getRoles()));
+        copy.setPermissions(user.getPermissions() == null ? List.of() : List.copyOf(user.getPermissions()));
+        return copy;
+    }
+
+    public record CachedPrincipal(User user, Collection<? extends GrantedAuthority> authorities, long expiresAt) {
+    }
+}
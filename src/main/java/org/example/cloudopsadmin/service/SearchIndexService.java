@@ -0,0 +1,414 @@
+package org.example.cloudopsadmin.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.cloudopsadmin.common.NgramIndex;
+import org.example.cloudopsadmin.event.AccountChangedEvent;
+import org.example.cloudopsadmin.event.AccountsChangedEvent;
+import org.example.cloudopsadmin.event.CustomerChangedEvent;
+import org.example.cloudopsadmin.event.EmailChangedEvent;
+import org.example.cloudopsadmin.event.PayerChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// In-process substring index for the list search boxes. Its candidate ids are ANDed with the LIKE predicates, so an
+// entry missing from the index would hide a real match: it is only used while it provably reflects every write.
+// Each write bumps a per-kind version row in id_sequences ("search_<kind>") inside its own transaction; the index
+// records the version it reflects and is bypassed (plain LIKE) whenever the shared version is ahead, i.e. after a write
+// on another node or a failed local update, until the catch-up rebuild. Searches containing LIKE wildcards also bypass
+// it. Rows written by SQL outside the services bump nothing and are only seen by the periodic rebuild; such scripts
+// should bump the search_* rows to make every node fall back to LIKE and rebuild.
+@Service
+public class SearchIndexService {
+
+    public enum Kind { ACCOUNT, EMAIL, CUSTOMER, PAYER }
+
+    private static final String ACCOUNT_DOCS = "SELECT id, account_name, uid, account_internal_id, payer_id, email_id_fk FROM accounts";
+    private static final String EMAIL_DOCS = "SELECT id, email_address, email_internal_id, source, remarks FROM emails";
+    private static final String CUSTOMER_DOCS = "SELECT id, customer_name, email, customer_internal_id, company FROM customers";
+    private static final String PAYER_DOCS = "SELECT id, payer_name, payer_id, contact_email FROM payers";
+    // Payer search also matches its accounts' name and emails
+    private static final String PAYER_ACCOUNT_DOCS = "SELECT payer_id, account_name, bound_email, monitor_email FROM accounts";
+
+    // An account write can also create/relink its email and changes what its payer matches
+    private static final List<Kind> ACCOUNT_KINDS = List.of(Kind.ACCOUNT, Kind.EMAIL, Kind.PAYER);
+
+    private static final String VERSION_KEY_PREFIX = "search_";
+    private static final String BUMP_VERSION =
+            "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + 1), updated_at = NOW() WHERE seq_key = ?";
+    private static final String INSERT_VERSION =
+            "INSERT IGNORE INTO id_sequences (seq_key, next_value, updated_at) VALUES (?, 0, NOW())";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    // Joins the writing transaction; opens one of its own when an event is published outside a transaction
+    private final TransactionTemplate versionTransaction;
+    private final Map<Kind, NgramIndex> indexes = new ConcurrentHashMap<>();
+    // Shared version each published index reflects; written under the indexes lock together with the index it describes
+    private final Map<Kind, Long> applied = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SearchIndexService.class);
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${search.index.max-candidates:10000}")
+    private int maxCandidates;
+
+    public SearchIndexService(NamedParameterJdbcTemplate namedParameterJdbcTemplate, PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.versionTransaction = new TransactionTemplate(transactionManager);
+        for (Kind kind : Kind.values()) {
+            indexes.put(kind, new NgramIndex());
+            Gauge.builder("search.index.documents", this, s -> s.indexes.get(kind).size())
+                    .tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    // Candidate ids for a search term, or null when the caller should fall back to LIKE alone (index disabled, not built
+    // yet or behind the shared version, term with LIKE wildcards or shorter than a trigram, or too many matches to be
+    // worth an IN list)
+    public Set<Long> candidates(Kind kind, String search) {
+        if (!enabled || !ready || search == null || hasLikeWildcard(search)) {
+            return null;
+        }
+        NgramIndex index;
+        Long version;
+        synchronized (indexes) {
+            index = indexes.get(kind);
+            version = applied.get(kind);
+        }
+        if (version == null || !version.equals(readVersions(List.of(kind)).get(kind))) {
+            return null;
+        }
+        Set<Long> ids = index.search(search);
+        if (ids != null && ids.size() > maxCandidates) {
+            return null;
+        }
+        return ids;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled && rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    // A node whose index fell behind (writes on other nodes, failed updates) serves LIKE until this rebuilds it
+    @Scheduled(initialDelayString = "${search.index.catch-up-interval-ms:30000}",
+            fixedDelayString = "${search.index.catch-up-interval-ms:30000}")
+    public void catchUp() {
+        if (!enabled || !ready) {
+            return;
+        }
+        try {
+            Map<Kind, Long> shared = readVersions(List.of(Kind.values()));
+            if (!shared.equals(Map.copyOf(applied))) {
+                log.debug("Search index behind the shared versions; rebuilding. applied={}, shared={}", applied, shared);
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Search index version check failed", e);
+        }
+    }
+
+    // Picks up rows written outside the services (imports by SQL, manual fixes)
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${search.index.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            // Read first: a write committed while the tables are being read leaves the new index marked behind
+            Map<Kind, Long> versions = readVersions(List.of(Kind.values()));
+            Map<Kind, NgramIndex> fresh = new EnumMap<>(Kind.class);
+            for (Kind kind : Kind.values()) {
+                fresh.put(kind, new NgramIndex());
+            }
+            loadAccounts(fresh.get(Kind.ACCOUNT), null);
+            loadEmails(fresh.get(Kind.EMAIL), null);
+            loadCustomers(fresh.get(Kind.CUSTOMER), null);
+            loadPayers(fresh.get(Kind.PAYER), null);
+            synchronized (indexes) {
+                indexes.putAll(fresh);
+                applied.putAll(versions);
+            }
+            ready = true;
+            log.info("Search index rebuilt in {} ms. accounts={}, emails={}, customers={}, payers={}",
+                    System.currentTimeMillis() - started,
+                    fresh.get(Kind.ACCOUNT).size(), fresh.get(Kind.EMAIL).size(),
+                    fresh.get(Kind.CUSTOMER).size(), fresh.get(Kind.PAYER).size());
+        } catch (Exception e) {
+            log.error("Search index rebuild failed; list searches keep using LIKE", e);
+        }
+    }
+
+    // Version bumps run inside the writing transaction, the index update after it commits
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        changed(ACCOUNT_KINDS, () -> reindexAccounts(List.of(event.accountId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onAccountsChanged(AccountsChangedEvent event) {
+        changed(ACCOUNT_KINDS, () -> reindexAccounts(event.accountIds()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onEmailChanged(EmailChangedEvent event) {
+        changed(List.of(Kind.EMAIL), () -> reindex(Kind.EMAIL, List.of(event.emailId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        changed(List.of(Kind.CUSTOMER), () -> reindex(Kind.CUSTOMER, List.of(event.customerId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPayerChanged(PayerChangedEvent event) {
+        changed(List.of(Kind.PAYER), () -> reindex(Kind.PAYER, List.of(event.payerId())));
+    }
+
+    private void changed(List<Kind> kinds, Supplier<Map<Kind, NgramIndex>> reindex) {
+        if (!enabled) {
+            return;
+        }
+        Map<Kind, Long> versions = versionTransaction.execute(status -> bumpVersions(kinds));
+        Runnable apply = () -> {
+            Map<Kind, NgramIndex> updated = reindex.get();
+            if (updated != null) {
+                markApplied(updated, versions);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // The row lock on each version row is held until commit, so versions of a kind commit in order; kinds are
+    // always bumped in enum order so concurrent writers cannot deadlock on them
+    private Map<Kind, Long> bumpVersions(List<Kind> kinds) {
+        JdbcTemplate jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+        Map<Kind, Long> versions = new EnumMap<>(Kind.class);
+        for (Kind kind : EnumSet.copyOf(kinds)) {
+            String key = versionKey(kind);
+            if (jdbcTemplate.update(BUMP_VERSION, key) == 0) {
+                jdbcTemplate.update(INSERT_VERSION, key);
+                jdbcTemplate.update(BUMP_VERSION, key);
+            }
+            versions.put(kind, jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class));
+        }
+        return versions;
+    }
+
+    // An index only moves to a write's version if it already reflected every earlier one and is still the published
+    // instance the write was applied to; otherwise it stays behind until the catch-up rebuild
+    private void markApplied(Map<Kind, NgramIndex> updated, Map<Kind, Long> versions) {
+        synchronized (indexes) {
+            versions.forEach((kind, version) -> {
+                Long current = applied.get(kind);
+                if (current != null && current == version - 1 && indexes.get(kind) == updated.get(kind)) {
+                    applied.put(kind, version);
+                }
+            });
+        }
+    }
+
+    private Map<Kind, Long> readVersions(List<Kind> kinds) {
+        Map<String, Kind> byKey = new HashMap<>();
+        Map<Kind, Long> versions = new EnumMap<>(Kind.class);
+        for (Kind kind : kinds) {
+            byKey.put(versionKey(kind), kind);
+            versions.put(kind, 0L);
+        }
+        namedParameterJdbcTemplate.query("SELECT seq_key, next_value FROM id_sequences WHERE seq_key IN (:keys)",
+                new MapSqlParameterSource("keys", byKey.keySet()),
+                (RowCallbackHandler) rs -> versions.put(byKey.get(rs.getString("seq_key")), rs.getLong("next_value")));
+        return versions;
+    }
+
+    private static String versionKey(Kind kind) {
+        return VERSION_KEY_PREFIX + kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    // The trigram lookup takes the term literally, while LIKE would treat these as wildcards/escapes
+    private static boolean hasLikeWildcard(String search) {
+        return search.indexOf('%') >= 0 || search.indexOf('_') >= 0 || search.indexOf('\\') >= 0;
+    }
+
+    // Returns the index instances that were updated, or null if the update failed
+    private Map<Kind, NgramIndex> reindexAccounts(Collection<Long> accountIds) {
+        Map<Kind, NgramIndex> targets = targets(ACCOUNT_KINDS);
+        try {
+            Map<Kind, Set<Long>> related = new EnumMap<>(Kind.class);
+            related.put(Kind.EMAIL, new HashSet<>());
+            related.put(Kind.PAYER, new HashSet<>());
+            reindexInto(Kind.ACCOUNT, targets.get(Kind.ACCOUNT), accountIds, related);
+            reindexInto(Kind.EMAIL, targets.get(Kind.EMAIL), related.get(Kind.EMAIL), null);
+            reindexInto(Kind.PAYER, targets.get(Kind.PAYER), related.get(Kind.PAYER), null);
+            return targets;
+        } catch (Exception e) {
+            // The index stays behind its shared version, so searches use LIKE until the catch-up rebuild
+            log.warn("Search index update failed. kind={}, ids={}", Kind.ACCOUNT, accountIds, e);
+            return null;
+        }
+    }
+
+    private Map<Kind, NgramIndex> reindex(Kind kind, Collection<Long> ids) {
+        Map<Kind, NgramIndex> targets = targets(List.of(kind));
+        try {
+            reindexInto(kind, targets.get(kind), ids, null);
+            return targets;
+        } catch (Exception e) {
+            log.warn("Search index update failed. kind={}, ids={}", kind, ids, e);
+            return null;
+        }
+    }
+
+    private Map<Kind, NgramIndex> targets(List<Kind> kinds) {
+        Map<Kind, NgramIndex> targets = new EnumMap<>(Kind.class);
+        synchronized (indexes) {
+            kinds.forEach(kind -> targets.put(kind, indexes.get(kind)));
+        }
+        return targets;
+    }
+
+    private void reindexInto(Kind kind, NgramIndex index, Collection<Long> ids, Map<Kind, Set<Long>> related) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Set<Long> found = switch (kind) {
+            case ACCOUNT -> loadAccounts(index, ids, related);
+            case EMAIL -> loadEmails(index, ids);
+            case CUSTOMER -> loadCustomers(index, ids);
+            case PAYER -> loadPayers(index, ids);
+        };
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                index.remove(id);
+            }
+        }
+    }
+
+    private Set<Long> loadAccounts(NgramIndex index, Collection<Long> ids) {
+        return loadAccounts(index, ids, null);
+    }
+
+    private Set<Long> loadAccounts(NgramIndex index, Collection<Long> ids, Map<Kind, Set<Long>> related) {
+        Set<Long> found = new HashSet<>();
+        query(ACCOUNT_DOCS, ids, rs -> {
+            long id = rs.getLong("id");
+            index.put(id, rs.getString("account_name"), rs.getString("uid"), rs.getString("account_internal_id"));
+            found.add(id);
+            if (related != null) {
+                long payerId = rs.getLong("payer_id");
+                if (!rs.wasNull()) related.get(Kind.PAYER).add(payerId);
+                long emailId = rs.getLong("email_id_fk");
+                if (!rs.wasNull()) related.get(Kind.EMAIL).add(emailId);
+            }
+        });
+        return found;
+    }
+
+    private Set<Long> loadEmails(NgramIndex index, Collection<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        query(EMAIL_DOCS, ids, rs -> {
+            long id = rs.getLong("id");
+            index.put(id, rs.getString("email_address"), rs.getString("email_internal_id"),
+                    rs.getString("source"), rs.getString("remarks"));
+            found.add(id);
+        });
+        return found;
+    }
+
+    private Set<Long> loadCustomers(NgramIndex index, Collection<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        query(CUSTOMER_DOCS, ids, rs -> {
+            long id = rs.getLong("id");
+            index.put(id, rs.getString("customer_name"), rs.getString("email"),
+                    rs.getString("customer_internal_id"), rs.getString("company"));
+            found.add(id);
+        });
+        return found;
+    }
+
+    private Set<Long> loadPayers(NgramIndex index, Collection<Long> ids) {
+        Map<Long, List<String>> texts = new HashMap<>();
+        query(PAYER_DOCS, ids, rs -> texts.computeIfAbsent(rs.getLong("id"), k -> new ArrayList<>())
+                .addAll(List.of(nz(rs.getString("payer_name")), nz(rs.getString("payer_id")), nz(rs.getString("contact_email")))));
+        String accountsSql = PAYER_ACCOUNT_DOCS + (ids == null ? " WHERE payer_id IS NOT NULL" : "");
+        queryBy(accountsSql, "payer_id", ids, rs -> {
+            List<String> text = texts.get(rs.getLong("payer_id"));
+            if (text != null) {
+                text.add(nz(rs.getString("account_name")));
+                text.add(nz(rs.getString("bound_email")));
+                text.add(nz(rs.getString("monitor_email")));
+            }
+        });
+        texts.forEach((id, text) -> index.put(id, text.toArray(new String[0])));
+        return texts.keySet();
+    }
+
+    private void query(String sql, Collection<Long> ids, RowCallbackHandler handler) {
+        queryBy(sql, "id", ids, handler);
+    }
+
+    // ids == null means the whole table (rebuild); otherwise only those rows
+    private void queryBy(String sql, String idColumn, Collection<Long> ids, RowCallbackHandler handler) {
+        if (ids == null) {
+            namedParameterJdbcTemplate.getJdbcTemplate().query(sql, handler);
+            return;
+        }
+        List<Long> list = new ArrayList<>(ids);
+        String where = sql.contains(" WHERE ") ? " AND " : " WHERE ";
+        for (int from = 0; from < list.size(); from += 1000) {
+            List<Long> chunk = list.subList(from, Math.min(from + 1000, list.size()));
+            namedParameterJdbcTemplate.query(sql + where + idColumn + " IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), handler);
+        }
+    }
+
+    private static String nz(String value) {
+        return value == null ? "" : value;
+    }
+}
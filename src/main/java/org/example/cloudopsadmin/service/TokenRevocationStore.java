@@ -0,0 +1,11 @@
+package org.example.cloudopsadmin.service;
+
+// Revoked access tokens, keyed by JwtService.digest(token) and kept only until the token would have expired
+public interface TokenRevocationStore {
+
+    void revoke(String tokenHash, long expiresAt);
+
+    boolean isRevoked(String tokenHash);
+
+    int size();
+}
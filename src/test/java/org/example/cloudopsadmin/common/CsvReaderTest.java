@@ -0,0 +1,60 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvReaderTest {
+
+    @Test
+    void quotedFieldsKeepSeparatorsAndEscapedQuotes() throws IOException {
+        List<List<String>> records = readAll("uid,remarks\n1001,\"a, \"\"quoted\"\" note\"\n");
+        assertEquals(List.of(List.of("uid", "remarks"), List.of("1001", "a, \"quoted\" note")), records);
+    }
+
+    @Test
+    void embeddedLineBreaksStayInTheFieldAndCountLines() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("uid,remarks\r\n1001,\"line one\nline two\"\r\n1002,x\r\n"))) {
+            csv.next();
+            assertEquals(List.of("1001", "line one\nline two"), csv.next());
+            assertEquals(2, csv.getRecordLine());
+            assertEquals(List.of("1002", "x"), csv.next());
+            assertEquals(4, csv.getRecordLine());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void leadingBomIsSkippedOnlyAtTheStart() throws IOException {
+        List<List<String>> records = readAll("\uFEFFuid,name\n1,\uFEFFx");
+        assertEquals(List.of(List.of("uid", "name"), List.of("1", "\uFEFFx")), records);
+    }
+
+    @Test
+    void emptyFieldsAndLoneCarriageReturns() throws IOException {
+        assertEquals(List.of(List.of("a", "", ""), List.of("b")), readAll("a,,\rb"));
+    }
+
+    @Test
+    void unterminatedQuoteFails() {
+        assertThrows(IOException.class, () -> readAll("uid\n\"1001\n"));
+    }
+
+    private static List<List<String>> readAll(String text) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(new StringReader(text))) {
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.cloudopsadmin.common;
+
+import org.example.cloudopsadmin.entity.CustomerMonthlyBill;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Run with: mvn -Pbenchmark test-compile exec:exec
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinancialAggregatorBenchmark {
+
+    private static final String[] VENDORS = {"AWS", "Ali", "Azure"};
+
+    @Param({"100000"})
+    private int billCount;
+
+    private List<CustomerMonthlyBill> bills;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bills = new ArrayList<>(billCount);
+        for (int i = 0; i < billCount; i++) {
+            CustomerMonthlyBill bill = new CustomerMonthlyBill();
+            bill.setMonth(String.format("2024-%02d", 1 + random.nextInt(12)));
+            bill.setCloudVendor(VENDORS[random.nextInt(VENDORS.length)]);
+            bill.setCustomerName("customer-" + random.nextInt(500));
+            bill.setLinkedAccountUid(String.valueOf(100000000000L + i));
+            bill.setUndiscountedBill(random.nextDouble() * 10000);
+            bill.setOriginalBillingPercentage(90 + random.nextDouble() * 10);
+            bill.setCostDiscountPercentage(random.nextDouble() * 20);
+            // Roughly a third of the rows carry stored amounts, the rest are derived
+            if (random.nextInt(3) == 0) {
+                bill.setCustomerPayableBill(random.nextDouble() * 10000);
+                bill.setSupplierPayableBill(random.nextDouble() * 8000);
+                bill.setProfit(bill.getCustomerPayableBill() - bill.getSupplierPayableBill());
+            }
+            bills.add(bill);
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        FinancialAggregator aggregator = new FinancialAggregator();
+        for (CustomerMonthlyBill bill : bills) {
+            aggregator.add(bill);
+        }
+        bh.consume(aggregator.total());
+        bh.consume(aggregator.byVendor());
+        bh.consume(aggregator.byCustomer());
+        bh.consume(aggregator.byQuarter());
+    }
+
+    // The shape the analysis endpoints used before: one derivation per grouping
+    @Benchmark
+    public void perDimensionStreams(Blackhole bh) {
+        double revenue = 0;
+        for (CustomerMonthlyBill bill : bills) {
+            revenue += BillFinancials.of(bill).revenue;
+        }
+        bh.consume(revenue);
+        Map<String, Double> byVendor = bills.stream().collect(Collectors.groupingBy(
+                CustomerMonthlyBill::getCloudVendor, Collectors.summingDouble(b -> BillFinancials.of(b).revenue)));
+        Map<String, Double> byCustomer = bills.stream().collect(Collectors.groupingBy(
+                CustomerMonthlyBill::getCustomerName, Collectors.summingDouble(b -> BillFinancials.of(b).profit)));
+        Map<String, Double> byQuarter = bills.stream().collect(Collectors.groupingBy(
+                b -> FinancialAggregator.quarterOf(b.getMonth()), Collectors.summingDouble(b -> BillFinancials.of(b).cost)));
+        bh.consume(byVendor);
+        bh.consume(byCustomer);
+        bh.consume(byQuarter);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FinancialAggregatorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InvertedIndexTest {
+
+    @Test
+    void everyQueryTermMustMatch() {
+        InvertedIndex index = sample();
+        assertEquals(List.of(1L), ids(index.search("nginx timeout")));
+        assertEquals(List.of(), ids(index.search("nginx billing")));
+        assertEquals(List.of(), index.search("  ,, "));
+    }
+
+    @Test
+    void latinAndSingleCjkTermsMatchAsPrefixes() {
+        InvertedIndex index = sample();
+        assertEquals(List.of(1L), ids(index.search("ngi time")));
+        assertEquals(List.of(3L, 2L), ids(index.search("账")));
+        assertEquals(List.of(2L), ids(index.search("账单导出")));
+    }
+
+    @Test
+    void everyExpansionOfAShortPrefixTakesPartInMatching() {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 100; i++) {
+            index.put(i, 1, new InvertedIndex.Terms().add(String.format("se%03d", i), 1f));
+        }
+        index.put(500, 1, new InvertedIndex.Terms().add("sez apple", 1f));
+        assertEquals(101, index.search("se").size());
+        assertEquals(List.of(500L), ids(index.search("se apple")));
+    }
+
+    @Test
+    void heavierFieldsRankHigher() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, new InvertedIndex.Terms().add("Network notes", 3f).add("mentions redis once", 1f));
+        index.put(2, 1, new InvertedIndex.Terms().add("Redis failover", 3f).add("steps for the cluster", 1f));
+        assertEquals(List.of(2L, 1L), ids(index.search("redis")));
+    }
+
+    @Test
+    void segmentRoundTripKeepsDocumentsAndVersions() throws IOException {
+        InvertedIndex index = sample();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        InvertedIndex copy = InvertedIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.versions(), copy.versions());
+        assertEquals(index.search("账单"), copy.search("账单"));
+        assertThrows(IOException.class, () -> InvertedIndex.readFrom(new ByteArrayInputStream(new byte[16])));
+    }
+
+    @Test
+    void removeDropsTheDocumentFromResults() {
+        InvertedIndex index = sample();
+        index.remove(1L);
+        assertEquals(List.of(), ids(index.search("nginx")));
+        assertEquals(Map.of(2L, 20L, 3L, 30L), index.versions());
+    }
+
+    @Test
+    void snippetEscapesHtmlAndHighlightsMatches() {
+        String snippet = InvertedIndex.snippet("<b>Nginx</b> & upstream timeouts", "nginx time", 200);
+        assertEquals("&lt;b&gt;<em>Nginx</em>&lt;/b&gt; &amp; upstream <em>time</em>outs", snippet);
+    }
+
+    @Test
+    void snippetWindowsAroundTheFirstMatch() {
+        String text = "x".repeat(100) + " target " + "y".repeat(100);
+        String snippet = InvertedIndex.snippet(text, "target", 40);
+        assertTrue(snippet.startsWith("…") && snippet.endsWith("…"));
+        assertTrue(snippet.contains("<em>target</em>"));
+    }
+
+    private static InvertedIndex sample() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 10, new InvertedIndex.Terms().add("Nginx timeout", 3f).add("Raise proxy_read_timeout", 1f));
+        index.put(2, 20, new InvertedIndex.Terms().add("账单导出", 3f).add("每月导出客户账单", 1f));
+        index.put(3, 30, new InvertedIndex.Terms().add("账号管理", 3f).add("账单", 1f));
+        return index;
+    }
+
+    private static List<Long> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::id).toList();
+    }
+}
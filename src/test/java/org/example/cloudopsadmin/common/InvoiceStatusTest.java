@@ -0,0 +1,47 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InvoiceStatusTest {
+
+    private static final Map<InvoiceStatus, Set<InvoiceStatus>> ALLOWED = Map.of(
+            InvoiceStatus.DRAFT, EnumSet.of(InvoiceStatus.POSTED),
+            InvoiceStatus.POSTED, EnumSet.of(InvoiceStatus.SENT, InvoiceStatus.PAID, InvoiceStatus.OVERDUE, InvoiceStatus.DRAFT),
+            InvoiceStatus.SENT, EnumSet.of(InvoiceStatus.PAID, InvoiceStatus.OVERDUE, InvoiceStatus.DRAFT),
+            InvoiceStatus.OVERDUE, EnumSet.of(InvoiceStatus.PAID, InvoiceStatus.DRAFT),
+            InvoiceStatus.PAID, EnumSet.of(InvoiceStatus.PAID, InvoiceStatus.DRAFT));
+
+    @Test
+    void everyPairFollowsTheTransitionTable() {
+        for (InvoiceStatus from : InvoiceStatus.values()) {
+            for (InvoiceStatus to : InvoiceStatus.values()) {
+                assertEquals(ALLOWED.get(from).contains(to), from.canTransitionTo(to), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void draftsMustBePostedBeforeAnythingElse() {
+        assertFalse(InvoiceStatus.DRAFT.canTransitionTo(InvoiceStatus.SENT));
+        assertFalse(InvoiceStatus.DRAFT.canTransitionTo(InvoiceStatus.PAID));
+        assertFalse(InvoiceStatus.DRAFT.canTransitionTo(InvoiceStatus.DRAFT));
+    }
+
+    @Test
+    void checkTransitionToRejectsDisallowedMoves() {
+        InvoiceStatus.SENT.checkTransitionTo(InvoiceStatus.PAID);
+        InvoiceStatus.PAID.checkTransitionTo(InvoiceStatus.DRAFT);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> InvoiceStatus.PAID.checkTransitionTo(InvoiceStatus.SENT));
+        assertEquals("Invoice cannot move from PAID to SENT", e.getMessage());
+        assertThrows(IllegalStateException.class, () -> InvoiceStatus.OVERDUE.checkTransitionTo(InvoiceStatus.SENT));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.cloudopsadmin.common;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KeysetCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        KeysetCursor cursor = KeysetCursor.of("createdAt", Sort.Direction.DESC, LocalDateTime.of(2026, 3, 1, 9, 30), 42L);
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+
+        KeysetCursor multiline = KeysetCursor.of("customerName", Sort.Direction.ASC, "line1\nline2", 7L);
+        assertEquals(multiline, KeysetCursor.decode(multiline.encode()));
+    }
+
+    @Test
+    void nullValueStaysDistinctFromText() {
+        KeysetCursor nullValue = KeysetCursor.of("remarks", Sort.Direction.ASC, null, 1L);
+        KeysetCursor textNull = KeysetCursor.of("remarks", Sort.Direction.ASC, "n", 1L);
+        assertNull(KeysetCursor.decode(nullValue.encode()).value());
+        assertEquals("n", KeysetCursor.decode(textNull.encode()).value());
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("MgpmCkFTQwox"));
+        String wrongDirection = Base64.getUrlEncoder().encodeToString("1\nid\nUP\n1\nn".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(wrongDirection));
+    }
+
+    @Test
+    void afterOnIdOnlyComparesTheId() {
+        assertEquals("greaterThan(id, 5)", after(Sort.Direction.ASC, "id", "5"));
+        assertEquals("lessThan(id, 5)", after(Sort.Direction.DESC, "id", "5"));
+    }
+
+    @Test
+    void afterAValueTiesOnIdAndPlacesNullsLikeMysql() {
+        // Ascending: nulls came first, so they are all behind a non-null cursor
+        assertEquals("or(greaterThan(totalBill, 12.5), and(equal(totalBill, 12.5), greaterThan(id, 5)))",
+                after(Sort.Direction.ASC, "totalBill", "12.5"));
+        // Descending: nulls come last, so they are all still ahead
+        assertEquals("or(lessThan(totalBill, 12.5), and(equal(totalBill, 12.5), lessThan(id, 5)), isNull(totalBill))",
+                after(Sort.Direction.DESC, "totalBill", "12.5"));
+    }
+
+    @Test
+    void afterANullValueContinuesWithinTheNulls() {
+        assertEquals("or(and(isNull(totalBill), greaterThan(id, 5)), isNotNull(totalBill))",
+                after(Sort.Direction.ASC, "totalBill", null));
+        assertEquals("and(isNull(totalBill), lessThan(id, 5))",
+                after(Sort.Direction.DESC, "totalBill", null));
+    }
+
+    @Test
+    void unsupportedSortTypesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> after(Sort.Direction.ASC, "tags", "x"));
+    }
+
+    private static final Map<String, Class<?>> FIELD_TYPES = Map.of("id", Long.class, "totalBill", Double.class, "tags", List.class);
+
+    // Renders the predicate tree as text through a recording CriteriaBuilder
+    private static String after(Sort.Direction direction, String sortField, String value) {
+        KeysetCursor cursor = new KeysetCursor(sortField, direction, value, 5L);
+        @SuppressWarnings("unchecked")
+        Root<Object> root = (Root<Object>) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(),
+                new Class<?>[]{Root.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> path((String) args[0]);
+                    case "toString" -> "root";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        CriteriaBuilder cb = (CriteriaBuilder) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(),
+                new Class<?>[]{CriteriaBuilder.class}, (proxy, method, args) -> {
+                    List<String> rendered = new ArrayList<>();
+                    for (Object arg : args) {
+                        if (arg instanceof Object[] array) {
+                            Arrays.stream(array).map(String::valueOf).forEach(rendered::add);
+                        } else {
+                            rendered.add(String.valueOf(arg));
+                        }
+                    }
+                    return predicate(method.getName() + "(" + String.join(", ", rendered) + ")");
+                });
+        return cursor.after(root, cb).toString();
+    }
+
+    private static Path<?> path(String name) {
+        return (Path<?>) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(),
+                new Class<?>[]{Path.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getJavaType" -> FIELD_TYPES.get(name);
+                    case "toString" -> name;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Predicate predicate(String text) {
+        return (Predicate) Proxy.newProxyInstance(KeysetCursorTest.class.getClassLoader(),
+                new Class<?>[]{Predicate.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> text;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
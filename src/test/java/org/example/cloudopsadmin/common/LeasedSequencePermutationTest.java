@@ -0,0 +1,95 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// In-process half of EightDigitIdGenerator: block hand-out across threads and the position -> ID permutation.
+// The leaser below is an AtomicLong standing in for the id_sequences row, so this says nothing about the
+// UPDATE ... LAST_INSERT_ID lease itself or about allocators on separate nodes.
+public class LeasedSequencePermutationTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void threadsSharingOneSequenceNeverRepeatAndStayEightDigits() throws Exception {
+        EightDigitPermutation permutation = new EightDigitPermutation(42L);
+        AtomicLong sequenceRow = new AtomicLong();
+        AtomicInteger leases = new AtomicInteger();
+        LeasedSequence sequence = new LeasedSequence(size -> {
+            leases.incrementAndGet();
+            return sequenceRow.getAndAdd(size);
+        }, 50);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                long[] ids = new long[IDS_PER_THREAD];
+                start.await();
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids[i] = permutation.toId(sequence.next());
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        BitSet seen = new BitSet((int) EightDigitPermutation.DOMAIN);
+        for (Future<long[]> result : results) {
+            for (long id : result.get()) {
+                assertTrue(id >= 10_000_000L && id <= 99_999_999L, "not 8 digits: " + id);
+                int offset = (int) (id - EightDigitPermutation.MIN_ID);
+                assertFalse(seen.get(offset), "duplicate id: " + id);
+                seen.set(offset);
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(THREADS * IDS_PER_THREAD, seen.cardinality());
+        // Positions handed out can only exceed the ones used by blocks lost to CAS races
+        assertTrue(sequenceRow.get() >= THREADS * IDS_PER_THREAD);
+        assertTrue(leases.get() < THREADS * IDS_PER_THREAD / 10, "leasing should be amortised over blocks");
+    }
+
+    @Test
+    void permutationIsBijectiveOverALargeWindow() {
+        EightDigitPermutation permutation = new EightDigitPermutation(7L);
+        BitSet seen = new BitSet((int) EightDigitPermutation.DOMAIN);
+        long sequential = 0;
+        long previous = -1;
+        for (long position = 0; position < 2_000_000L; position++) {
+            long id = permutation.toId(position);
+            int offset = (int) (id - EightDigitPermutation.MIN_ID);
+            assertFalse(seen.get(offset), "duplicate id: " + id);
+            seen.set(offset);
+            if (id == previous + 1) {
+                sequential++;
+            }
+            previous = id;
+        }
+        assertTrue(sequential < 100, "consecutive positions should not map to consecutive IDs");
+    }
+
+    @Test
+    void rejectsPositionsOutsideTheEightDigitSpace() {
+        EightDigitPermutation permutation = new EightDigitPermutation(1L);
+        assertThrows(IllegalArgumentException.class, () -> permutation.toId(EightDigitPermutation.DOMAIN));
+        assertThrows(IllegalArgumentException.class, () -> permutation.toId(-1));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NgramIndexTest {
+
+    @Test
+    void foldIgnoresCaseAccentsAndOuterWhitespace() {
+        assertEquals("cafe resume", NgramIndex.fold("  Café RÉSUMÉ "));
+        assertEquals("", NgramIndex.fold(null));
+    }
+
+    @Test
+    void searchReturnsIdsContainingEveryTrigram() {
+        NgramIndex index = new NgramIndex();
+        index.put(1L, "Acme Cloud", "uid-1001");
+        index.put(2L, "Cloudy Days");
+        index.put(3L, "Crème Brûlée");
+
+        assertEquals(Set.of(1L, 2L), index.search("CLOUD"));
+        assertEquals(Set.of(1L), index.search("me cl"));
+        assertEquals(Set.of(1L), index.search("1001"));
+        assertEquals(Set.of(3L), index.search("creme brulee"));
+        assertEquals(Set.of(), index.search("cloudless"));
+    }
+
+    @Test
+    void termsShorterThanOneGramCannotUseTheIndex() {
+        NgramIndex index = new NgramIndex();
+        index.put(1L, "Acme");
+        assertNull(index.search("ac"));
+        assertNull(index.search("  a "));
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsADocument() {
+        NgramIndex index = new NgramIndex();
+        index.put(1L, "alpha");
+        index.put(1L, "bravo");
+        assertEquals(Set.of(), index.search("alpha"));
+        assertEquals(Set.of(1L), index.search("bravo"));
+
+        index.remove(1L);
+        assertEquals(Set.of(), index.search("bravo"));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.cloudopsadmin.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TextTokenizerTest {
+
+    @Test
+    void latinRunsBecomeFoldedWordsWithOriginalOffsets() {
+        List<TextTokenizer.Token> tokens = TextTokenizer.tokenize("Résumé, ECS-2024!");
+        assertEquals(List.of("resume", "ecs", "2024"), terms(tokens));
+        assertEquals(new TextTokenizer.Token("resume", 0, 6, false), tokens.get(0));
+        assertEquals(new TextTokenizer.Token("2024", 12, 16, false), tokens.get(2));
+    }
+
+    @Test
+    void cjkRunsBecomeBigramsPlusTheLastCharacter() {
+        List<TextTokenizer.Token> tokens = TextTokenizer.tokenize("云服务器");
+        assertEquals(List.of("云服", "服务", "务器", "器"), terms(tokens));
+        assertTrue(tokens.stream().allMatch(TextTokenizer.Token::cjk));
+        assertEquals(new TextTokenizer.Token("器", 3, 4, true), tokens.get(3));
+    }
+
+    @Test
+    void mixedTextSplitsAtScriptBoundaries() {
+        assertEquals(List.of("阿里", "里云", "云", "oss", "存储", "储"), terms(TextTokenizer.tokenize("阿里云OSS存储")));
+        assertEquals(List.of("单"), terms(TextTokenizer.tokenize(" 单 ")));
+    }
+
+    @Test
+    void emptyAndPunctuationOnlyTextHasNoTokens() {
+        assertEquals(List.of(), TextTokenizer.tokenize(null));
+        assertEquals(List.of(), TextTokenizer.tokenize(" -- , "));
+    }
+
+    private static List<String> terms(List<TextTokenizer.Token> tokens) {
+        return tokens.stream().map(TextTokenizer.Token::term).toList();
+    }
+}
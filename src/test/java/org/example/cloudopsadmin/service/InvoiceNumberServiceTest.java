@@ -0,0 +1,93 @@
+package org.example.cloudopsadmin.service;
+
+import org.example.cloudopsadmin.repository.IdSequenceRepository;
+import org.example.cloudopsadmin.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InvoiceNumberServiceTest {
+
+    private static final LocalDate MARCH_2026 = LocalDate.of(2026, 3, 1);
+
+    @Test
+    void newYearCounterIsSeededFromExistingReferences() {
+        Fixture fixture = new Fixture(Set.of("INV/2026/007", "INV/2026/012", "INV/2026/abc", "INV/2025/500"));
+        assertEquals("INV/2026/013", fixture.service.next(MARCH_2026));
+        assertEquals(List.of("INV/2026/014", "INV/2026/015"), fixture.service.reserve(MARCH_2026, 2));
+        assertEquals("INV/2025/501", fixture.service.next(LocalDate.of(2025, 12, 31)));
+    }
+
+    @Test
+    void seedingComparesNumbersNotStringsAndWidensPast999() {
+        Fixture fixture = new Fixture(Set.of("INV/2026/999", "INV/2026/1000", "INV/2026/0998"));
+        assertEquals(List.of("INV/2026/1001", "INV/2026/1002"), fixture.service.reserve(MARCH_2026, 2));
+        assertEquals("INV/2026/005", InvoiceNumberService.format(2026, 5));
+        assertEquals("INV/2026/12345", InvoiceNumberService.format(2026, 12345));
+    }
+
+    @Test
+    void numbersAlreadyTypedOnDraftsAreSkipped() {
+        Fixture fixture = new Fixture(Set.of("INV/2026/006", "INV/2026/008"));
+        fixture.counters.put("inv_2026", 5L);
+        assertEquals(List.of("INV/2026/005", "INV/2026/007", "INV/2026/009"), fixture.service.reserve(MARCH_2026, 3));
+        assertEquals(Map.of("inv_2026", 10L), fixture.counters);
+    }
+
+    @Test
+    void nothingIsReservedForAnEmptyRequest() {
+        Fixture fixture = new Fixture(Set.of());
+        assertEquals(List.of(), fixture.service.reserve(MARCH_2026, 0));
+        assertEquals(Map.of(), fixture.counters);
+    }
+
+    // In-memory id_sequences rows and invoice references behind the repositories and the seeding query
+    private static class Fixture {
+        final Map<String, Long> counters = new HashMap<>();
+        final Set<String> references;
+        final InvoiceNumberService service;
+        long lastInsertId;
+
+        Fixture(Set<String> references) {
+            this.references = references;
+            IdSequenceRepository sequences = (IdSequenceRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{IdSequenceRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "existsById" -> counters.containsKey((String) args[0]);
+                        case "insertIfAbsent" -> counters.putIfAbsent((String) args[0], (Long) args[1]) == null ? 1 : 0;
+                        case "advance" -> {
+                            lastInsertId = counters.get((String) args[0]) + (Integer) args[1];
+                            counters.put((String) args[0], lastInsertId);
+                            yield 1;
+                        }
+                        case "lastInsertId" -> lastInsertId;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+            InvoiceRepository invoices = (InvoiceRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{InvoiceRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "findPaymentReferencesIn" ->
+                                ((Collection<?>) args[0]).stream().filter(references::contains).toList();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+            JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                    String pattern = (String) args[2];
+                    int start = (Integer) args[0] - 1;
+                    return (T) references.stream().filter(r -> r.matches(pattern))
+                            .map(r -> Long.parseLong(r.substring(start))).max(Long::compare).orElse(null);
+                }
+            };
+            service = new InvoiceNumberService(sequences, invoices, jdbcTemplate);
+        }
+    }
+}